@@ -26,4 +26,24 @@ public class EnergySource {
     public double generateEnergy() {
         return capacityKwh;
     }
+
+    /**
+     * Hourly generation (kWh per hour) for every hour of the weather series, in a new array.
+     */
+    public double[] generateSeries(WeatherSeries weather) {
+        double[] out = new double[weather.getHours()];
+        generateSeries(weather, out, 0);
+        return out;
+    }
+
+    /**
+     * Hourly generation written to out[offset .. offset + weather.getHours()).
+     * Lets many sources share one preallocated buffer.
+     */
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] = capacityKwh;
+        }
+    }
 }
@@ -0,0 +1,370 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists EnergySource fleets in the H2 database used by the dashboard.
+ *
+ * ENERGY_SOURCES is a single table for the whole hierarchy: common fields plus one
+ * nullable column per subclass field, with type_code/type_name naming the class.
+ * Location strings live once in ENERGY_LOCATIONS and rows refer to them by ID.
+ * The eight model parameter columns come first, in FleetEngine's column order, so
+ * loadInto() can stream rows straight into a FleetEngine reading only ints and
+ * doubles - no EnergySource or String is created per row.
+ */
+public class EnergySourceStore {
+
+    /**
+     * System property with the JDBC URL of the database, e.g.
+     * -Denergy.db.url=jdbc:h2:"../Source Code/renewable_energy_hardware" for the dashboard's database.
+     * There is no default: a relative URL would open a different database per working directory.
+     */
+    public static final String URL_PROPERTY = "energy.db.url";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int FETCH_SIZE = 10000;
+
+    // FleetEngine parameter columns, by FleetEngine column constant
+    private static final String[] PARAMETER_COLUMNS = {
+            "efficiency", "avg_wind_speed_kmh", "water_flow_rate_lps", "shading_factor",
+            "cooling_effect", "head_height", "coverage_area", "pumping_capacity"
+    };
+
+    private static final String INSERT_SQL = "INSERT INTO energy_sources (name, type_code, type_name, location_id, " +
+            "capacity_kwh, is_active, efficiency, avg_wind_speed_kmh, water_flow_rate_lps, shading_factor, " +
+            "cooling_effect, head_height, coverage_area, pumping_capacity, roof_tilt_angle, connected_devices, " +
+            "water_surface_area, noise_level, bird_safety_rating, manual_maintenance, local_materials_used, " +
+            "foundation_type, maintenance_interval, stream_width, storage_tank_volume, channel_length, " +
+            "environmental_impact) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private EnergySourceStore() {
+    }
+
+    /**
+     * Connect to the database named by the energy.db.url system property.
+     */
+    public static Connection connect() throws SQLException {
+        String url = System.getProperty(URL_PROPERTY);
+        if (url == null || url.trim().isEmpty()) {
+            throw new SQLException("No database configured: set -D" + URL_PROPERTY + "=<jdbc url>");
+        }
+        return connect(url);
+    }
+
+    public static Connection connect(String url) throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    public static void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS energy_locations (" +
+                    "location_id INT PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL UNIQUE)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS energy_sources (" +
+                    "unit_id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(255), " +
+                    "type_code SMALLINT NOT NULL, " +
+                    "type_name VARCHAR(50) NOT NULL, " +
+                    "location_id INT NOT NULL REFERENCES energy_locations (location_id), " +
+                    "capacity_kwh DOUBLE NOT NULL, " +
+                    "is_active BOOLEAN NOT NULL DEFAULT FALSE, " +
+                    "efficiency DOUBLE, " +
+                    "avg_wind_speed_kmh DOUBLE, " +
+                    "water_flow_rate_lps DOUBLE, " +
+                    "shading_factor DOUBLE, " +
+                    "cooling_effect DOUBLE, " +
+                    "head_height DOUBLE, " +
+                    "coverage_area DOUBLE, " +
+                    "pumping_capacity DOUBLE, " +
+                    "roof_tilt_angle DOUBLE, " +
+                    "connected_devices INT, " +
+                    "water_surface_area DOUBLE, " +
+                    "noise_level DOUBLE, " +
+                    "bird_safety_rating INT, " +
+                    "manual_maintenance BOOLEAN, " +
+                    "local_materials_used BOOLEAN, " +
+                    "foundation_type VARCHAR(100), " +
+                    "maintenance_interval INT, " +
+                    "stream_width DOUBLE, " +
+                    "storage_tank_volume DOUBLE, " +
+                    "channel_length DOUBLE, " +
+                    "environmental_impact VARCHAR(255))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_energy_sources_type ON energy_sources (type_code)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_energy_sources_location ON energy_sources (location_id)");
+        }
+    }
+
+    /**
+     * Insert sources with batched statements in one transaction. Returns the number of rows inserted.
+     */
+    public static int insertAll(Connection conn, Iterable<? extends EnergySource> sources) throws SQLException {
+        createTables(conn);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            Map<String, Integer> locationIds = loadLocationIds(conn);
+            int inserted = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL);
+                 PreparedStatement addLocation = conn.prepareStatement(
+                         "INSERT INTO energy_locations (location_id, name) VALUES (?, ?)")) {
+                int pending = 0;
+                for (EnergySource source : sources) {
+                    String location = source.location == null ? "" : source.location;
+                    Integer locationId = locationIds.get(location);
+                    if (locationId == null) {
+                        locationId = locationIds.size();
+                        addLocation.setInt(1, locationId);
+                        addLocation.setString(2, location);
+                        addLocation.executeUpdate();
+                        locationIds.put(location, locationId);
+                    }
+                    bind(pstmt, source, locationId);
+                    pstmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        pstmt.executeBatch();
+                        inserted += pending;
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    pstmt.executeBatch();
+                    inserted += pending;
+                }
+            }
+            conn.commit();
+            return inserted;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, EnergySource source, int locationId) throws SQLException {
+        EnergySourceType type = EnergySourceType.of(source);
+        for (int i = 7; i <= 27; i++) {
+            pstmt.setNull(i, sqlType(i));
+        }
+        pstmt.setString(1, source.name);
+        pstmt.setInt(2, type.ordinal());
+        pstmt.setString(3, type.name());
+        pstmt.setInt(4, locationId);
+        pstmt.setDouble(5, source.capacityKwh);
+        pstmt.setBoolean(6, source.isActive);
+
+        if (source instanceof SolarPanel) {
+            pstmt.setDouble(7, ((SolarPanel) source).efficiency);
+        }
+        if (source instanceof WindTurbine) {
+            pstmt.setDouble(8, ((WindTurbine) source).avgWindSpeedKmh);
+        }
+        if (source instanceof HydroGenerator) {
+            pstmt.setDouble(9, ((HydroGenerator) source).waterFlowRateLps);
+        }
+        switch (type) {
+            case ROOFTOP_SOLAR_PANEL:
+                RooftopSolarPanel rooftop = (RooftopSolarPanel) source;
+                pstmt.setDouble(10, rooftop.getShadingFactor());
+                pstmt.setDouble(15, rooftop.getRoofTiltAngle());
+                break;
+            case SOLAR_CANOPY:
+                SolarCanopy canopy = (SolarCanopy) source;
+                pstmt.setDouble(13, canopy.getCoverageArea());
+                pstmt.setInt(16, canopy.getConnectedDevices());
+                break;
+            case FLOATING_SOLAR_FARM:
+                FloatingSolarFarm floating = (FloatingSolarFarm) source;
+                pstmt.setDouble(11, floating.getCoolingEffect());
+                pstmt.setDouble(17, floating.getWaterSurfaceArea());
+                break;
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+                UrbanVerticalAxisWindTurbine vawt = (UrbanVerticalAxisWindTurbine) source;
+                pstmt.setDouble(18, vawt.getNoiseLevel());
+                pstmt.setInt(19, vawt.getBirdSafetyRating());
+                break;
+            case SMALL_COMMUNITY_WIND_MILL:
+                SmallCommunityWindMill windmill = (SmallCommunityWindMill) source;
+                pstmt.setBoolean(20, windmill.isManualMaintenance());
+                pstmt.setBoolean(21, windmill.isLocalMaterialsUsed());
+                break;
+            case OFFSHORE_WIND_TURBINE:
+                OffshoreWindTurbine offshore = (OffshoreWindTurbine) source;
+                pstmt.setString(22, offshore.getFoundationType());
+                pstmt.setInt(23, offshore.getMaintenanceInterval());
+                break;
+            case PICO_HYDRO_GENERATOR:
+                PicoHydroGenerator pico = (PicoHydroGenerator) source;
+                pstmt.setDouble(12, pico.getHeadHeight());
+                pstmt.setDouble(24, pico.getStreamWidth());
+                break;
+            case HYDRO_PUMP_STORAGE_UNIT:
+                HydroPumpStorageUnit pump = (HydroPumpStorageUnit) source;
+                pstmt.setDouble(14, pump.getPumpingCapacity());
+                pstmt.setDouble(25, pump.getStorageTankVolume());
+                break;
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                RunOfRiverMicroHydro river = (RunOfRiverMicroHydro) source;
+                pstmt.setDouble(26, river.getChannelLength());
+                pstmt.setString(27, river.getEnvironmentalImpact());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int sqlType(int parameterIndex) {
+        switch (parameterIndex) {
+            case 16:
+            case 19:
+            case 23:
+                return Types.INTEGER;
+            case 20:
+            case 21:
+                return Types.BOOLEAN;
+            case 22:
+            case 27:
+                return Types.VARCHAR;
+            default:
+                return Types.DOUBLE;
+        }
+    }
+
+    private static Map<String, Integer> loadLocationIds(Connection conn) throws SQLException {
+        Map<String, Integer> ids = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT location_id, name FROM energy_locations")) {
+            while (rs.next()) {
+                ids.put(rs.getString("name"), rs.getInt("location_id"));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Stream every row into a FleetEngine (and its activation state into registry, if given).
+     * Returns the number of units loaded.
+     */
+    public static int loadInto(Connection conn, FleetEngine engine, FleetRegistry registry) throws SQLException {
+        createTables(conn);
+
+        // Map stored location and type codes once, so the row loop only reads numbers
+        Map<Integer, Integer> fleetLocations = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : loadLocationIds(conn).entrySet()) {
+            fleetLocations.put(entry.getValue(), engine.locationId(entry.getKey()));
+        }
+        int[] locationMap = new int[fleetLocations.size()];
+        for (Map.Entry<Integer, Integer> entry : fleetLocations.entrySet()) {
+            locationMap[entry.getKey()] = entry.getValue();
+        }
+        EnergySourceType[] typeMap = new EnergySourceType[Short.MAX_VALUE];
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT DISTINCT type_code, type_name FROM energy_sources")) {
+            while (rs.next()) {
+                typeMap[rs.getInt(1)] = EnergySourceType.valueOf(rs.getString(2));
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT type_code, location_id, capacity_kwh, is_active");
+        for (String column : PARAMETER_COLUMNS) {
+            sql.append(", ").append(column);
+        }
+        sql.append(" FROM energy_sources ORDER BY unit_id");
+
+        int loaded = 0;
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql.toString())) {
+                while (rs.next()) {
+                    EnergySourceType type = typeMap[rs.getInt(1)];
+                    int locationId = locationMap[rs.getInt(2)];
+                    double capacity = rs.getDouble(3);
+                    boolean active = rs.getBoolean(4);
+                    // getDouble returns 0 for NULL, which is also FleetEngine's value for unused parameters
+                    double p1 = type.getParam1() < 0 ? 0 : rs.getDouble(5 + type.getParam1());
+                    double p2 = type.getParam2() < 0 ? 0 : rs.getDouble(5 + type.getParam2());
+                    int unitId = engine.add(type, locationId, capacity, p1, p2);
+                    if (active && registry != null) {
+                        registry.activate(unitId);
+                    }
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Rebuild the stored sources as objects (for small fleets and the tester).
+     */
+    public static List<EnergySource> loadObjects(Connection conn) throws SQLException {
+        createTables(conn);
+        List<EnergySource> sources = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT s.*, l.name AS location_name FROM energy_sources s " +
+                     "JOIN energy_locations l ON l.location_id = s.location_id ORDER BY s.unit_id")) {
+            while (rs.next()) {
+                EnergySource source = createObject(EnergySourceType.valueOf(rs.getString("type_name")), rs);
+                if (rs.getBoolean("is_active")) {
+                    source.activate();
+                }
+                sources.add(source);
+            }
+        }
+        return sources;
+    }
+
+    private static EnergySource createObject(EnergySourceType type, ResultSet rs) throws SQLException {
+        String name = rs.getString("name");
+        double capacity = rs.getDouble("capacity_kwh");
+        String location = rs.getString("location_name");
+        double efficiency = rs.getDouble("efficiency");
+        double wind = rs.getDouble("avg_wind_speed_kmh");
+        double flow = rs.getDouble("water_flow_rate_lps");
+        switch (type) {
+            case SOLAR_PANEL:
+                return new SolarPanel(name, capacity, location, efficiency);
+            case ROOFTOP_SOLAR_PANEL:
+                return new RooftopSolarPanel(name, capacity, location, efficiency,
+                        rs.getDouble("roof_tilt_angle"), rs.getDouble("shading_factor"));
+            case SOLAR_CANOPY:
+                return new SolarCanopy(name, capacity, location, efficiency,
+                        rs.getDouble("coverage_area"), rs.getInt("connected_devices"));
+            case FLOATING_SOLAR_FARM:
+                return new FloatingSolarFarm(name, capacity, location, efficiency,
+                        rs.getDouble("water_surface_area"), rs.getDouble("cooling_effect"));
+            case WIND_TURBINE:
+                return new WindTurbine(name, capacity, location, wind);
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+                return new UrbanVerticalAxisWindTurbine(name, capacity, location, wind,
+                        rs.getDouble("noise_level"), rs.getInt("bird_safety_rating"));
+            case SMALL_COMMUNITY_WIND_MILL:
+                return new SmallCommunityWindMill(name, capacity, location, wind,
+                        rs.getBoolean("manual_maintenance"), rs.getBoolean("local_materials_used"));
+            case OFFSHORE_WIND_TURBINE:
+                return new OffshoreWindTurbine(name, capacity, location, wind,
+                        rs.getString("foundation_type"), rs.getInt("maintenance_interval"));
+            case HYDRO_GENERATOR:
+                return new HydroGenerator(name, capacity, location, flow);
+            case PICO_HYDRO_GENERATOR:
+                return new PicoHydroGenerator(name, capacity, location, flow,
+                        rs.getDouble("stream_width"), rs.getDouble("head_height"));
+            case HYDRO_PUMP_STORAGE_UNIT:
+                return new HydroPumpStorageUnit(name, capacity, location, flow,
+                        rs.getDouble("pumping_capacity"), rs.getDouble("storage_tank_volume"));
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                return new RunOfRiverMicroHydro(name, capacity, location, flow,
+                        rs.getDouble("channel_length"), rs.getString("environmental_impact"));
+            default:
+                return new EnergySource(name, capacity, location);
+        }
+    }
+}
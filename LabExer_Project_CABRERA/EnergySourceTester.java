@@ -44,5 +44,78 @@ public class EnergySourceTester {
         RunOfRiverMicroHydro river = new RunOfRiverMicroHydro("River Flow Plant", 600, "River Delta", 35, 5.5, "Low Impact");
         System.out.println(river.name + " generates: " + river.generateEnergy() + " kWh");
 
+        // Fleet engine: same units stored in columns and evaluated per type
+        EnergySource[] units = {source, solar, rooftop, canopy, floating, wind, vawt, windmill, offshore,
+                hydro, pico, pumpStorage, river};
+        FleetEngine fleet = new FleetEngine();
+        for (EnergySource unit : units) {
+            fleet.add(unit);
+        }
+        double[] fleetOutput = new double[fleet.size()];
+        fleet.generateAll(fleetOutput);
+        for (int i = 0; i < units.length; i++) {
+            if (fleetOutput[i] != units[i].generateEnergy()) {
+                System.out.println("Fleet engine mismatch for " + units[i].name);
+            }
+        }
+        System.out.println("Fleet total generates: " + fleet.totalGeneration() + " kWh");
+
+        // Hourly series: one year of weather, all units written into one shared buffer
+        WeatherSeries weather = WeatherSeries.synthetic(WeatherSeries.HOURS_PER_YEAR, 1000, 30, 30, 7);
+        int hours = weather.getHours();
+        double[] unitSeries = new double[units.length * hours];
+        for (int i = 0; i < units.length; i++) {
+            units[i].generateSeries(weather, unitSeries, i * hours);
+        }
+        double[] fleetSeries = new double[hours];
+        fleet.generateSeries(weather, fleetSeries);
+        double annualTotal = 0;
+        for (int h = 0; h < hours; h++) {
+            double hourTotal = 0;
+            for (int i = 0; i < units.length; i++) {
+                hourTotal += unitSeries[i * hours + h];
+            }
+            if (Math.abs(hourTotal - fleetSeries[h]) > 1e-6 * Math.max(1.0, hourTotal)) {
+                System.out.println("Fleet series mismatch at hour " + h);
+            }
+            annualTotal += fleetSeries[h];
+        }
+        System.out.printf("Fleet annual generation: %.1f kWh%n", annualTotal);
+
+        // Activation registry: bulk switch by type and location, O(1) capacity totals
+        FleetRegistry registry = new FleetRegistry(fleet);
+        registry.setActive(EnergySourceType.OFFSHORE_WIND_TURBINE, true);
+        registry.setActive("River Valley", true);
+        registry.activate(0);
+        System.out.println("Active units: " + registry.getActiveCount() + ", active capacity: "
+                + registry.getActiveCapacityKw() + " kW");
+
+        // Store round trip (needs a JDBC driver and -Denergy.db.url, e.g. jdbc:h2:mem:tester)
+        if (System.getProperty(EnergySourceStore.URL_PROPERTY) == null) {
+            System.out.println("Store round trip: skipped (no " + EnergySourceStore.URL_PROPERTY + ")");
+            return;
+        }
+        try (java.sql.Connection conn = EnergySourceStore.connect()) {
+            int before = EnergySourceStore.loadObjects(conn).size();
+            EnergySourceStore.insertAll(conn, java.util.Arrays.asList(units));
+
+            java.util.List<EnergySource> stored = EnergySourceStore.loadObjects(conn);
+            FleetEngine storedFleet = new FleetEngine();
+            EnergySourceStore.loadInto(conn, storedFleet, null);
+            double[] storedOutput = new double[storedFleet.size()];
+            storedFleet.generateAll(storedOutput);
+
+            boolean ok = stored.size() == before + units.length && storedFleet.size() == stored.size();
+            for (int i = 0; ok && i < units.length; i++) {
+                EnergySource copy = stored.get(before + i);
+                ok = copy.getClass() == units[i].getClass()
+                        && copy.generateEnergy() == units[i].generateEnergy()
+                        && storedOutput[before + i] == units[i].generateEnergy();
+            }
+            System.out.println("Store round trip: " + (ok ? "OK" : "MISMATCH"));
+        } catch (java.sql.SQLException e) {
+            System.out.println("Store round trip failed: " + e.getMessage());
+        }
+
     }
 }
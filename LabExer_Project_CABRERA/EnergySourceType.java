@@ -0,0 +1,79 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The concrete classes of the EnergySource hierarchy, with the family each belongs to
+ * and the two model parameters (besides capacityKwh) its generateEnergy formula uses.
+ */
+public enum EnergySourceType {
+    GENERIC(EnergySource.class, Family.GENERIC, -1, -1),
+    SOLAR_PANEL(SolarPanel.class, Family.SOLAR, FleetEngine.EFFICIENCY, -1),
+    ROOFTOP_SOLAR_PANEL(RooftopSolarPanel.class, Family.SOLAR, FleetEngine.EFFICIENCY, FleetEngine.SHADING_FACTOR),
+    SOLAR_CANOPY(SolarCanopy.class, Family.SOLAR, FleetEngine.EFFICIENCY, FleetEngine.COVERAGE_AREA),
+    FLOATING_SOLAR_FARM(FloatingSolarFarm.class, Family.SOLAR, FleetEngine.EFFICIENCY, FleetEngine.COOLING_EFFECT),
+    WIND_TURBINE(WindTurbine.class, Family.WIND, FleetEngine.AVG_WIND_SPEED_KMH, -1),
+    URBAN_VERTICAL_AXIS_WIND_TURBINE(UrbanVerticalAxisWindTurbine.class, Family.WIND, FleetEngine.AVG_WIND_SPEED_KMH, -1),
+    SMALL_COMMUNITY_WIND_MILL(SmallCommunityWindMill.class, Family.WIND, FleetEngine.AVG_WIND_SPEED_KMH, -1),
+    OFFSHORE_WIND_TURBINE(OffshoreWindTurbine.class, Family.WIND, FleetEngine.AVG_WIND_SPEED_KMH, -1),
+    HYDRO_GENERATOR(HydroGenerator.class, Family.HYDRO, FleetEngine.WATER_FLOW_RATE_LPS, -1),
+    PICO_HYDRO_GENERATOR(PicoHydroGenerator.class, Family.HYDRO, FleetEngine.WATER_FLOW_RATE_LPS, FleetEngine.HEAD_HEIGHT),
+    HYDRO_PUMP_STORAGE_UNIT(HydroPumpStorageUnit.class, Family.HYDRO, FleetEngine.WATER_FLOW_RATE_LPS, FleetEngine.PUMPING_CAPACITY),
+    RUN_OF_RIVER_MICRO_HYDRO(RunOfRiverMicroHydro.class, Family.HYDRO, FleetEngine.WATER_FLOW_RATE_LPS, -1);
+
+    public enum Family {
+        GENERIC, SOLAR, WIND, HYDRO
+    }
+
+    private static final Map<Class<?>, EnergySourceType> BY_CLASS = new HashMap<>();
+
+    static {
+        for (EnergySourceType type : values()) {
+            BY_CLASS.put(type.sourceClass, type);
+        }
+    }
+
+    private final Class<? extends EnergySource> sourceClass;
+    private final Family family;
+    private final int param1;
+    private final int param2;
+
+    EnergySourceType(Class<? extends EnergySource> sourceClass, Family family, int param1, int param2) {
+        this.sourceClass = sourceClass;
+        this.family = family;
+        this.param1 = param1;
+        this.param2 = param2;
+    }
+
+    /**
+     * Exact type of a source (subclasses outside this hierarchy are not supported).
+     */
+    public static EnergySourceType of(EnergySource source) {
+        EnergySourceType type = BY_CLASS.get(source.getClass());
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported energy source class: " + source.getClass().getName());
+        }
+        return type;
+    }
+
+    public Class<? extends EnergySource> getSourceClass() {
+        return sourceClass;
+    }
+
+    public Family getFamily() {
+        return family;
+    }
+
+    /**
+     * FleetEngine column of the first model parameter, or -1 if the type has none.
+     */
+    public int getParam1() {
+        return param1;
+    }
+
+    /**
+     * FleetEngine column of the second model parameter, or -1 if the type has none.
+     */
+    public int getParam2() {
+        return param2;
+    }
+}
@@ -0,0 +1,471 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar store and evaluator for large fleets of energy sources.
+ * Units are kept per EnergySourceType in primitive structure-of-arrays columns
+ * (capacityKwh plus the type's two model parameters), so generation is computed
+ * with one tight loop per type instead of a virtual generateEnergy() call per object.
+ * The per-unit results are the same as the generateEnergy() formulas of each class.
+ */
+public class FleetEngine {
+
+    // Parameter columns (see EnergySourceType.getParam1 / getParam2)
+    public static final int EFFICIENCY = 0;
+    public static final int AVG_WIND_SPEED_KMH = 1;
+    public static final int WATER_FLOW_RATE_LPS = 2;
+    public static final int SHADING_FACTOR = 3;
+    public static final int COOLING_EFFECT = 4;
+    public static final int HEAD_HEIGHT = 5;
+    public static final int COVERAGE_AREA = 6;
+    public static final int PUMPING_CAPACITY = 7;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Columns of all units of one type. param1/param2 hold the type's model parameters.
+     */
+    static final class Block {
+        final EnergySourceType type;
+        int size;
+        int[] unitIds = new int[INITIAL_CAPACITY];
+        int[] locationIds = new int[INITIAL_CAPACITY];
+        double[] capacityKwh = new double[INITIAL_CAPACITY];
+        double[] param1 = new double[INITIAL_CAPACITY];
+        double[] param2 = new double[INITIAL_CAPACITY];
+
+        Block(EnergySourceType type) {
+            this.type = type;
+        }
+
+        void ensureCapacity(int needed) {
+            if (needed > capacityKwh.length) {
+                int newLength = Math.max(needed, capacityKwh.length * 2);
+                unitIds = Arrays.copyOf(unitIds, newLength);
+                locationIds = Arrays.copyOf(locationIds, newLength);
+                capacityKwh = Arrays.copyOf(capacityKwh, newLength);
+                param1 = Arrays.copyOf(param1, newLength);
+                param2 = Arrays.copyOf(param2, newLength);
+            }
+        }
+    }
+
+    private final Block[] blocks = new Block[EnergySourceType.values().length];
+
+    // Per unit ID: its type ordinal and row inside that type's block
+    private byte[] unitTypes = new byte[INITIAL_CAPACITY];
+    private int[] unitRows = new int[INITIAL_CAPACITY];
+    private int unitCount;
+
+    private final List<String> locationNames = new ArrayList<>();
+    private final Map<String, Integer> locationIdsByName = new HashMap<>();
+
+    public FleetEngine() {
+        for (EnergySourceType type : EnergySourceType.values()) {
+            blocks[type.ordinal()] = new Block(type);
+        }
+    }
+
+    /**
+     * Dense ID of a location string (IDs are assigned in order of first use).
+     */
+    public int locationId(String location) {
+        String key = location == null ? "" : location;
+        Integer id = locationIdsByName.get(key);
+        if (id == null) {
+            id = locationNames.size();
+            locationNames.add(key);
+            locationIdsByName.put(key, id);
+        }
+        return id;
+    }
+
+    public String locationName(int locationId) {
+        return locationNames.get(locationId);
+    }
+
+    public int getLocationCount() {
+        return locationNames.size();
+    }
+
+    /**
+     * Copy an existing object into the columns. Returns the unit ID.
+     */
+    public int add(EnergySource source) {
+        EnergySourceType type = EnergySourceType.of(source);
+        double p1 = 0;
+        double p2 = 0;
+        switch (type) {
+            case SOLAR_PANEL:
+                p1 = ((SolarPanel) source).efficiency;
+                break;
+            case ROOFTOP_SOLAR_PANEL:
+                p1 = ((SolarPanel) source).efficiency;
+                p2 = ((RooftopSolarPanel) source).getShadingFactor();
+                break;
+            case SOLAR_CANOPY:
+                p1 = ((SolarPanel) source).efficiency;
+                p2 = ((SolarCanopy) source).getCoverageArea();
+                break;
+            case FLOATING_SOLAR_FARM:
+                p1 = ((SolarPanel) source).efficiency;
+                p2 = ((FloatingSolarFarm) source).getCoolingEffect();
+                break;
+            case WIND_TURBINE:
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+            case SMALL_COMMUNITY_WIND_MILL:
+            case OFFSHORE_WIND_TURBINE:
+                p1 = ((WindTurbine) source).avgWindSpeedKmh;
+                break;
+            case HYDRO_GENERATOR:
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                p1 = ((HydroGenerator) source).waterFlowRateLps;
+                break;
+            case PICO_HYDRO_GENERATOR:
+                p1 = ((HydroGenerator) source).waterFlowRateLps;
+                p2 = ((PicoHydroGenerator) source).getHeadHeight();
+                break;
+            case HYDRO_PUMP_STORAGE_UNIT:
+                p1 = ((HydroGenerator) source).waterFlowRateLps;
+                p2 = ((HydroPumpStorageUnit) source).getPumpingCapacity();
+                break;
+            default:
+                break;
+        }
+        return add(type, locationId(source.location), source.capacityKwh, p1, p2);
+    }
+
+    /**
+     * Append a unit directly from its parameters (no EnergySource object needed).
+     * p1 and p2 are the columns named by type.getParam1() / getParam2(); pass 0 if unused.
+     */
+    public int add(EnergySourceType type, int locationId, double capacityKwh, double p1, double p2) {
+        Block block = blocks[type.ordinal()];
+        int row = block.size;
+        block.ensureCapacity(row + 1);
+
+        if (unitCount == unitTypes.length) {
+            unitTypes = Arrays.copyOf(unitTypes, unitCount * 2);
+            unitRows = Arrays.copyOf(unitRows, unitCount * 2);
+        }
+        int unitId = unitCount++;
+        unitTypes[unitId] = (byte) type.ordinal();
+        unitRows[unitId] = row;
+
+        block.unitIds[row] = unitId;
+        block.locationIds[row] = locationId;
+        block.capacityKwh[row] = capacityKwh;
+        block.param1[row] = p1;
+        block.param2[row] = p2;
+        block.size = row + 1;
+        return unitId;
+    }
+
+    public int size() {
+        return unitCount;
+    }
+
+    public int count(EnergySourceType type) {
+        return blocks[type.ordinal()].size;
+    }
+
+    public EnergySourceType getType(int unitId) {
+        return EnergySourceType.values()[unitTypes[unitId]];
+    }
+
+    public double getCapacityKwh(int unitId) {
+        return blocks[unitTypes[unitId]].capacityKwh[unitRows[unitId]];
+    }
+
+    public int getLocationId(int unitId) {
+        return blocks[unitTypes[unitId]].locationIds[unitRows[unitId]];
+    }
+
+    Block block(EnergySourceType type) {
+        return blocks[type.ordinal()];
+    }
+
+    /**
+     * Total generation of the whole fleet (kWh).
+     */
+    public double totalGeneration() {
+        double total = 0;
+        for (Block block : blocks) {
+            total += sum(block.type, block.capacityKwh, block.param1, block.param2, 0, block.size);
+        }
+        return total;
+    }
+
+    /**
+     * Total generation of one type (kWh).
+     */
+    public double generation(EnergySourceType type) {
+        Block block = blocks[type.ordinal()];
+        return sum(type, block.capacityKwh, block.param1, block.param2, 0, block.size);
+    }
+
+    /**
+     * Total generation per type, indexed by EnergySourceType.ordinal().
+     */
+    public double[] generationByType() {
+        double[] totals = new double[blocks.length];
+        for (Block block : blocks) {
+            totals[block.type.ordinal()] = sum(block.type, block.capacityKwh, block.param1, block.param2, 0, block.size);
+        }
+        return totals;
+    }
+
+    /**
+     * Generation of every unit, written to out[unitId]. out must hold size() values.
+     */
+    public void generateAll(double[] out) {
+        double[] rows = new double[0];
+        for (Block block : blocks) {
+            if (rows.length < block.size) {
+                rows = new double[block.size];
+            }
+            evaluate(block.type, block.capacityKwh, block.param1, block.param2, block.size, rows);
+            int[] ids = block.unitIds;
+            for (int i = 0; i < block.size; i++) {
+                out[ids[i]] = rows[i];
+            }
+        }
+    }
+
+    /**
+     * Hourly generation of the whole fleet, written to hourlyTotals[0 .. weather.getHours()).
+     * Every formula is linear in its weather input, so each type is reduced once to
+     * base + slope * input and the hourly loop runs per type rather than per unit;
+     * a fleet-year needs one double[] of hours whatever the fleet size.
+     */
+    public void generateSeries(WeatherSeries weather, double[] hourlyTotals) {
+        Arrays.fill(hourlyTotals, 0, weather.getHours(), 0.0);
+        for (Block block : blocks) {
+            addSeries(block, weather, hourlyTotals);
+        }
+    }
+
+    /**
+     * Hourly generation of one type, written to out[0 .. weather.getHours()).
+     */
+    public void generateSeries(EnergySourceType type, WeatherSeries weather, double[] out) {
+        Arrays.fill(out, 0, weather.getHours(), 0.0);
+        addSeries(blocks[type.ordinal()], weather, out);
+    }
+
+    /**
+     * Hourly generation of one unit for hours [fromHour, fromHour + n) of weather, written to out[0 .. n).
+     */
+    public void generateSeries(int unitId, WeatherSeries weather, int fromHour, int n, double[] out) {
+        Block block = blocks[unitTypes[unitId]];
+        int row = unitRows[unitId];
+        LinearModel model = linearModel(block, row, row + 1, weather);
+        for (int h = 0; h < n; h++) {
+            out[h] = model.base + model.slope * (model.input[fromHour + h] / model.scale);
+        }
+    }
+
+    private static double windFactor(EnergySourceType type) {
+        return type == EnergySourceType.URBAN_VERTICAL_AXIS_WIND_TURBINE ? 0.9
+                : type == EnergySourceType.OFFSHORE_WIND_TURBINE ? 1.2 : 1.0;
+    }
+
+    private static void addSeries(Block block, WeatherSeries weather, double[] out) {
+        if (block.size == 0) {
+            return;
+        }
+        LinearModel model = linearModel(block, 0, block.size, weather);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[h] += model.base + model.slope * (model.input[h] / model.scale);
+        }
+    }
+
+    /**
+     * Generation of some rows of a block as base + slope * (input[hour] / scale).
+     */
+    private static final class LinearModel {
+        double base;
+        double slope;
+        double[] input;
+        double scale;
+    }
+
+    /**
+     * Reduce rows [from, to) of a block to one linear model of its weather input.
+     */
+    private static LinearModel linearModel(Block block, int from, int to, WeatherSeries weather) {
+        LinearModel model = new LinearModel();
+        switch (block.type.getFamily()) {
+            case SOLAR:
+                // All solar formulas scale with irradiance relative to standard conditions
+                model.slope = sum(block.type, block.capacityKwh, block.param1, block.param2, from, to);
+                model.input = weather.getIrradiance();
+                model.scale = WeatherSeries.STANDARD_IRRADIANCE;
+                break;
+            case WIND:
+                double factor = windFactor(block.type);
+                for (int i = from; i < to; i++) {
+                    model.slope += block.capacityKwh[i] * factor;
+                }
+                model.input = weather.getWindSpeedKmh();
+                model.scale = 100;
+                break;
+            case HYDRO:
+                for (int i = from; i < to; i++) {
+                    if (block.type == EnergySourceType.PICO_HYDRO_GENERATOR) {
+                        model.slope += block.capacityKwh[i] * block.param2[i];
+                    } else {
+                        model.slope += block.capacityKwh[i];
+                    }
+                    if (block.type == EnergySourceType.HYDRO_PUMP_STORAGE_UNIT) {
+                        model.base += block.param2[i] * 0.5;
+                    }
+                }
+                model.input = weather.getRiverFlowLps();
+                model.scale = 100;
+                break;
+            default:
+                for (int i = from; i < to; i++) {
+                    model.base += block.capacityKwh[i];
+                }
+                model.input = weather.getIrradiance();
+                model.scale = 1;
+                break;
+        }
+        return model;
+    }
+
+    /**
+     * Per-unit generation of n rows into out[0..n), same arithmetic as each class's generateEnergy().
+     */
+    static void evaluate(EnergySourceType type, double[] cap, double[] p1, double[] p2, int n, double[] out) {
+        switch (type) {
+            case GENERIC:
+                System.arraycopy(cap, 0, out, 0, n);
+                break;
+            case SOLAR_PANEL:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * p1[i];
+                }
+                break;
+            case ROOFTOP_SOLAR_PANEL:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * p1[i] * (1 - p2[i]);
+                }
+                break;
+            case SOLAR_CANOPY:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * p1[i] + p2[i] * 0.1;
+                }
+                break;
+            case FLOATING_SOLAR_FARM:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * p1[i] * (1 + p2[i]);
+                }
+                break;
+            case WIND_TURBINE:
+            case SMALL_COMMUNITY_WIND_MILL:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100);
+                }
+                break;
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100) * 0.9;
+                }
+                break;
+            case OFFSHORE_WIND_TURBINE:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100) * 1.2;
+                }
+                break;
+            case HYDRO_GENERATOR:
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100);
+                }
+                break;
+            case PICO_HYDRO_GENERATOR:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100) * p2[i];
+                }
+                break;
+            case HYDRO_PUMP_STORAGE_UNIT:
+                for (int i = 0; i < n; i++) {
+                    out[i] = cap[i] * (p1[i] / 100) + p2[i] * 0.5;
+                }
+                break;
+            default:
+                throw new IllegalStateException("No kernel for " + type);
+        }
+    }
+
+    /**
+     * Sum of per-unit generation of rows [from, to), same arithmetic as evaluate().
+     */
+    static double sum(EnergySourceType type, double[] cap, double[] p1, double[] p2, int from, int to) {
+        double total = 0;
+        switch (type) {
+            case GENERIC:
+                for (int i = from; i < to; i++) {
+                    total += cap[i];
+                }
+                break;
+            case SOLAR_PANEL:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * p1[i];
+                }
+                break;
+            case ROOFTOP_SOLAR_PANEL:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * p1[i] * (1 - p2[i]);
+                }
+                break;
+            case SOLAR_CANOPY:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * p1[i] + p2[i] * 0.1;
+                }
+                break;
+            case FLOATING_SOLAR_FARM:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * p1[i] * (1 + p2[i]);
+                }
+                break;
+            case WIND_TURBINE:
+            case SMALL_COMMUNITY_WIND_MILL:
+            case HYDRO_GENERATOR:
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * (p1[i] / 100);
+                }
+                break;
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * (p1[i] / 100) * 0.9;
+                }
+                break;
+            case OFFSHORE_WIND_TURBINE:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * (p1[i] / 100) * 1.2;
+                }
+                break;
+            case PICO_HYDRO_GENERATOR:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * (p1[i] / 100) * p2[i];
+                }
+                break;
+            case HYDRO_PUMP_STORAGE_UNIT:
+                for (int i = from; i < to; i++) {
+                    total += cap[i] * (p1[i] / 100) + p2[i] * 0.5;
+                }
+                break;
+            default:
+                throw new IllegalStateException("No kernel for " + type);
+        }
+        return total;
+    }
+}
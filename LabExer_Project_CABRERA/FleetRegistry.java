@@ -0,0 +1,215 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Activation state of every unit of a FleetEngine, one bit per dense unit ID.
+ * Units can be switched on and off one at a time or in bulk by type or location, and
+ * the active capacity per type, per location and per type at a location is updated
+ * on every change, so "active MW" queries are O(1) instead of a getStatus() walk.
+ *
+ * Totals are kept as whole watts (long), so any sequence of activations and
+ * deactivations returns to exactly the same figures. Units added to the engine
+ * after the registry was created are picked up (as inactive) on the next call.
+ * Not thread-safe; guard externally if several threads change activation.
+ */
+public class FleetRegistry {
+
+    private static final int TYPES = EnergySourceType.values().length;
+
+    private final FleetEngine engine;
+    private long[] bits = new long[1];
+    private int tracked;
+
+    private long[] unitWatts = new long[16];
+    private final long[] activeWattsByType = new long[TYPES];
+    private final int[] activeCountByType = new int[TYPES];
+    private long[] activeWattsByLocation = new long[16];
+    private long[] activeWattsByTypeLocation = new long[16 * TYPES];
+    private long activeWatts;
+    private int activeCount;
+
+    // Unit IDs per location, for bulk changes by location
+    private int[][] unitsByLocation = new int[16][];
+    private int[] unitsByLocationSize = new int[16];
+
+    public FleetRegistry(FleetEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Add a source to the engine and record its current isActive state. Returns the unit ID.
+     */
+    public int register(EnergySource source) {
+        int unitId = engine.add(source);
+        catchUp();
+        if (source.isActive) {
+            activate(unitId);
+        }
+        return unitId;
+    }
+
+    private void catchUp() {
+        int size = engine.size();
+        if (tracked == size) {
+            return;
+        }
+        if (size > bits.length * 64) {
+            bits = Arrays.copyOf(bits, Math.max(bits.length * 2, (size + 63) / 64));
+        }
+        if (size > unitWatts.length) {
+            unitWatts = Arrays.copyOf(unitWatts, Math.max(unitWatts.length * 2, size));
+        }
+        int locations = engine.getLocationCount();
+        if (locations > activeWattsByLocation.length) {
+            int newLength = Math.max(activeWattsByLocation.length * 2, locations);
+            activeWattsByLocation = Arrays.copyOf(activeWattsByLocation, newLength);
+            activeWattsByTypeLocation = Arrays.copyOf(activeWattsByTypeLocation, newLength * TYPES);
+            unitsByLocation = Arrays.copyOf(unitsByLocation, newLength);
+            unitsByLocationSize = Arrays.copyOf(unitsByLocationSize, newLength);
+        }
+        for (int unitId = tracked; unitId < size; unitId++) {
+            unitWatts[unitId] = Math.round(engine.getCapacityKwh(unitId) * 1000);
+            int location = engine.getLocationId(unitId);
+            int[] list = unitsByLocation[location];
+            int count = unitsByLocationSize[location];
+            if (list == null) {
+                list = new int[4];
+            } else if (count == list.length) {
+                list = Arrays.copyOf(list, count * 2);
+            }
+            list[count] = unitId;
+            unitsByLocation[location] = list;
+            unitsByLocationSize[location] = count + 1;
+        }
+        tracked = size;
+    }
+
+    public boolean isActive(int unitId) {
+        catchUp();
+        return (bits[unitId >>> 6] & (1L << unitId)) != 0;
+    }
+
+    /**
+     * Same strings as EnergySource.getStatus().
+     */
+    public String getStatus(int unitId) {
+        return isActive(unitId) ? "Active" : "Inactive";
+    }
+
+    public void activate(int unitId) {
+        catchUp();
+        set(unitId, true);
+    }
+
+    public void deactivate(int unitId) {
+        catchUp();
+        set(unitId, false);
+    }
+
+    /**
+     * Switch every unit of a type on or off. Returns how many units changed state.
+     */
+    public int setActive(EnergySourceType type, boolean active) {
+        catchUp();
+        FleetEngine.Block block = engine.block(type);
+        int changed = 0;
+        for (int row = 0; row < block.size; row++) {
+            if (set(block.unitIds[row], active)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Switch every unit at a location (FleetEngine location ID) on or off. Returns how many units changed.
+     */
+    public int setActive(int locationId, boolean active) {
+        catchUp();
+        if (locationId >= unitsByLocation.length || unitsByLocation[locationId] == null) {
+            return 0;
+        }
+        int[] units = unitsByLocation[locationId];
+        int changed = 0;
+        for (int i = 0; i < unitsByLocationSize[locationId]; i++) {
+            if (set(units[i], active)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    public int setActive(String location, boolean active) {
+        return setActive(engine.locationId(location), active);
+    }
+
+    private boolean set(int unitId, boolean active) {
+        int word = unitId >>> 6;
+        long mask = 1L << unitId;
+        boolean current = (bits[word] & mask) != 0;
+        if (current == active) {
+            return false;
+        }
+        bits[word] ^= mask;
+
+        long watts = active ? unitWatts[unitId] : -unitWatts[unitId];
+        int type = engine.getType(unitId).ordinal();
+        int location = engine.getLocationId(unitId);
+        activeWatts += watts;
+        activeCount += active ? 1 : -1;
+        activeWattsByType[type] += watts;
+        activeCountByType[type] += active ? 1 : -1;
+        activeWattsByLocation[location] += watts;
+        activeWattsByTypeLocation[location * TYPES + type] += watts;
+        return true;
+    }
+
+    public int getActiveCount() {
+        catchUp();
+        return activeCount;
+    }
+
+    public int getActiveCount(EnergySourceType type) {
+        catchUp();
+        return activeCountByType[type.ordinal()];
+    }
+
+    /**
+     * Active capacity of the whole fleet (kW).
+     */
+    public double getActiveCapacityKw() {
+        catchUp();
+        return activeWatts / 1000.0;
+    }
+
+    public double getActiveCapacityKw(EnergySourceType type) {
+        catchUp();
+        return activeWattsByType[type.ordinal()] / 1000.0;
+    }
+
+    public double getActiveCapacityKw(int locationId) {
+        catchUp();
+        return locationId < activeWattsByLocation.length ? activeWattsByLocation[locationId] / 1000.0 : 0;
+    }
+
+    public double getActiveCapacityKw(EnergySourceType type, int locationId) {
+        catchUp();
+        return locationId < activeWattsByLocation.length
+                ? activeWattsByTypeLocation[locationId * TYPES + type.ordinal()] / 1000.0 : 0;
+    }
+
+    /**
+     * Call action with the ID of every active unit, in ID order.
+     */
+    public void forEachActive(IntConsumer action) {
+        catchUp();
+        for (int word = 0; word < bits.length; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                int bit = Long.numberOfTrailingZeros(value);
+                action.accept((word << 6) + bit);
+                value &= value - 1;
+            }
+        }
+    }
+}
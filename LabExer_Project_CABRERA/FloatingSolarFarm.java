@@ -8,7 +8,23 @@ public class FloatingSolarFarm extends SolarPanel {
         this.coolingEffect = coolingEffect;
     }
 
+    public double getWaterSurfaceArea() {
+        return waterSurfaceArea;
+    }
+
+    public double getCoolingEffect() {
+        return coolingEffect;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() * (1 + coolingEffect);
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] *= (1 + coolingEffect);
+        }
+    }
 }
@@ -0,0 +1,518 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 48-hour-ahead hourly generation forecasts per unit and per site.
+ *
+ * Three light models run side by side for every unit:
+ *   PERSISTENCE    - the last observed hour carries on
+ *   SEASONAL_NAIVE - the same hour one (or two) days earlier
+ *   REGRESSION     - kW = w0 + w1 * model + w2 * dayBefore, where model is the unit's
+ *                    EnergySource formula driven by the location's weather (FleetEngine
+ *                    per-unit series). The weights are refitted on every observation by
+ *                    recursive least squares with forgetting, starting from w = (0, 1, 0),
+ *                    so a unit with no history is forecast by its formula.
+ * Each model's recent absolute error is tracked per unit for short (up to 6 h) and long
+ * horizons, and every forecast hour uses the model that has been most accurate there.
+ *
+ * Forecasts are cached and reused until they are older than the staleness bound, so
+ * dashboard refreshes do not recompute them; observations keep refitting in the meantime.
+ */
+public class ForecastService implements TelemetryAggregator.WindowListener {
+
+    public static final int HORIZON_HOURS = 48;
+
+    public static final int PERSISTENCE = 0;
+    public static final int SEASONAL_NAIVE = 1;
+    public static final int REGRESSION = 2;
+    private static final String[] MODEL_NAMES = {"persistence", "seasonal naive", "regression"};
+    private static final int MODELS = 3;
+
+    private static final long HOUR_MILLIS = 3600000L;
+    private static final int HISTORY_HOURS = 48;
+    private static final long NO_DATA = Long.MIN_VALUE;
+    private static final int SHORT_HORIZON = 6;
+    private static final int LONG_HORIZON_SCORED = 12;
+    private static final int FEATURES = 3;
+    private static final double FORGETTING = 0.995;   // about 8 days of memory
+    private static final double PRIOR_VARIANCE = 10;
+    private static final double SCORE_WEIGHT = 0.05;
+
+    /**
+     * Hourly forecast in kW, starting at getStartMillis().
+     */
+    public static final class Forecast {
+        private final long startMillis;
+        private final double[] kw;
+        private final long computedAtMillis;
+
+        Forecast(long startMillis, double[] kw, long computedAtMillis) {
+            this.startMillis = startMillis;
+            this.kw = kw;
+            this.computedAtMillis = computedAtMillis;
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public int getHours() {
+            return kw.length;
+        }
+
+        public double getKw(int hour) {
+            return kw[hour];
+        }
+
+        public double[] toArray() {
+            return kw.clone();
+        }
+
+        public long getComputedAtMillis() {
+            return computedAtMillis;
+        }
+    }
+
+    private final FleetEngine engine;
+    private final int units;
+    private final long maxStalenessMillis;
+
+    private final double[] scale;       // per unit: its formula output, to normalise kW
+    private final long[] lastHour;      // epoch hour of the latest observation
+    private final double[] history;     // units * HISTORY_HOURS ring indexed by epoch hour
+    private final double[] weights;     // units * FEATURES
+    private final double[] covariance;  // units * FEATURES * FEATURES
+    private final double[] score;       // units * MODELS * 2 (short, long), mean absolute error / scale
+    private long latestHour = NO_DATA;
+
+    // 15-minute telemetry means summed into the current hour
+    private final long[] pendingHour;
+    private final double[] pendingSum;
+    private final int[] pendingCount;
+
+    private WeatherSeries[] weather = new WeatherSeries[0];
+    private long[] weatherStartHour = new long[0];
+    private final double[] scratch = new double[HORIZON_HOURS];
+    private final double[] features = new double[FEATURES];
+    private final double[] gain = new double[FEATURES];
+
+    private final ConcurrentHashMap<Integer, Forecast> unitForecasts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Forecast> siteForecasts = new ConcurrentHashMap<>();
+
+    public ForecastService(FleetEngine engine, long maxStalenessMillis) {
+        this.engine = engine;
+        this.units = engine.size();
+        this.maxStalenessMillis = maxStalenessMillis;
+        scale = new double[units];
+        engine.generateAll(scale);
+        for (int unitId = 0; unitId < units; unitId++) {
+            if (!(scale[unitId] > 0)) {
+                scale[unitId] = Math.max(1, engine.getCapacityKwh(unitId));
+            }
+        }
+        lastHour = new long[units];
+        Arrays.fill(lastHour, NO_DATA);
+        history = new double[units * HISTORY_HOURS];
+        Arrays.fill(history, Double.NaN);
+        weights = new double[units * FEATURES];
+        covariance = new double[units * FEATURES * FEATURES];
+        for (int unitId = 0; unitId < units; unitId++) {
+            weights[unitId * FEATURES + 1] = 1;
+            int p = unitId * FEATURES * FEATURES;
+            for (int i = 0; i < FEATURES; i++) {
+                covariance[p + i * FEATURES + i] = PRIOR_VARIANCE;
+            }
+        }
+        score = new double[units * MODELS * 2];
+        Arrays.fill(score, Double.NaN);
+        pendingHour = new long[units];
+        Arrays.fill(pendingHour, NO_DATA);
+        pendingSum = new double[units];
+        pendingCount = new int[units];
+    }
+
+    public static String modelName(int model) {
+        return MODEL_NAMES[model];
+    }
+
+    /**
+     * Weather of a location from startMillis on, one value per hour: recent observations
+     * followed by the forecast for the coming hours (e.g. WeatherStore.series()). Cached
+     * forecasts are dropped so the next request uses it.
+     */
+    public synchronized void setWeather(int locationId, long startMillis, WeatherSeries series) {
+        if (locationId >= weather.length) {
+            int length = Math.max(locationId + 1, engine.getLocationCount());
+            weather = Arrays.copyOf(weather, length);
+            weatherStartHour = Arrays.copyOf(weatherStartHour, length);
+        }
+        weather[locationId] = series;
+        weatherStartHour[locationId] = Math.floorDiv(startMillis, HOUR_MILLIS);
+        unitForecasts.clear();
+        siteForecasts.clear();
+    }
+
+    /**
+     * Sums 15-minute telemetry means into hours and observes each completed hour.
+     */
+    public synchronized void onWindowClosed(int window, int unitId, long bucketStartMillis, double meanKw, int samples) {
+        if (window != TelemetryAggregator.FIFTEEN_MINUTES || unitId >= units) {
+            return;
+        }
+        long hour = Math.floorDiv(bucketStartMillis, HOUR_MILLIS);
+        if (hour != pendingHour[unitId]) {
+            if (pendingCount[unitId] > 0) {
+                observe(unitId, pendingHour[unitId] * HOUR_MILLIS, pendingSum[unitId] / pendingCount[unitId]);
+            }
+            pendingHour[unitId] = hour;
+            pendingSum[unitId] = 0;
+            pendingCount[unitId] = 0;
+        }
+        pendingSum[unitId] += meanKw;
+        pendingCount[unitId]++;
+    }
+
+    /**
+     * Mean output of a unit over the hour starting at hourStartMillis. Scores the three models
+     * on it, then refits the regression. Hours must arrive in order; older ones are ignored.
+     */
+    public synchronized boolean observe(int unitId, long hourStartMillis, double kw) {
+        long hour = Math.floorDiv(hourStartMillis, HOUR_MILLIS);
+        long last = lastHour[unitId];
+        if (last != NO_DATA && hour <= last) {
+            return false;
+        }
+        double s = scale[unitId];
+        double y = kw / s;
+        double dayBefore = valueAt(unitId, hour - 24) / s;
+        double model = physics(unitId, hour) / s;
+
+        updateScore(unitId, PERSISTENCE, 0, valueAt(unitId, hour - 1) / s, y);
+        updateScore(unitId, PERSISTENCE, 1, valueAt(unitId, hour - LONG_HORIZON_SCORED) / s, y);
+        updateScore(unitId, SEASONAL_NAIVE, 0, dayBefore, y);
+        updateScore(unitId, SEASONAL_NAIVE, 1, dayBefore, y);
+        if (!Double.isNaN(model)) {
+            setFeatures(model, dayBefore);
+            double predicted = predict(unitId);
+            updateScore(unitId, REGRESSION, 0, predicted, y);
+            updateScore(unitId, REGRESSION, 1, predicted, y);
+            refit(unitId, y);
+        }
+
+        int base = unitId * HISTORY_HOURS;
+        if (last != NO_DATA) {
+            for (long gap = Math.max(last + 1, hour - HISTORY_HOURS + 1); gap < hour; gap++) {
+                history[base + (int) Math.floorMod(gap, (long) HISTORY_HOURS)] = Double.NaN;
+            }
+        }
+        history[base + (int) Math.floorMod(hour, (long) HISTORY_HOURS)] = kw;
+        lastHour[unitId] = hour;
+        if (hour > latestHour) {
+            latestHour = hour;
+        }
+        return true;
+    }
+
+    /**
+     * Forecast of one unit for the 48 hours after its latest observation, from the cache if fresh enough.
+     */
+    public Forecast getUnitForecast(int unitId) {
+        Forecast cached = unitForecasts.get(unitId);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.getComputedAtMillis() <= maxStalenessMillis) {
+            return cached;
+        }
+        Forecast forecast;
+        synchronized (this) {
+            long start = lastHour[unitId] != NO_DATA ? lastHour[unitId] + 1 : defaultStartHour();
+            double[] kw = new double[HORIZON_HOURS];
+            addForecast(unitId, start, kw);
+            forecast = new Forecast(start * HOUR_MILLIS, kw, now);
+        }
+        unitForecasts.put(unitId, forecast);
+        return forecast;
+    }
+
+    /**
+     * Forecast of all units at a location, summed per hour, for the 48 hours after the site's latest observation.
+     */
+    public Forecast getSiteForecast(int locationId) {
+        Forecast cached = siteForecasts.get(locationId);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.getComputedAtMillis() <= maxStalenessMillis) {
+            return cached;
+        }
+        Forecast forecast;
+        synchronized (this) {
+            long start = NO_DATA;
+            for (int unitId = 0; unitId < units; unitId++) {
+                if (engine.getLocationId(unitId) == locationId && lastHour[unitId] != NO_DATA) {
+                    start = Math.max(start, lastHour[unitId] + 1);
+                }
+            }
+            if (start == NO_DATA) {
+                start = defaultStartHour();
+            }
+            double[] kw = new double[HORIZON_HOURS];
+            for (int unitId = 0; unitId < units; unitId++) {
+                if (engine.getLocationId(unitId) == locationId) {
+                    addForecast(unitId, start, kw);
+                }
+            }
+            forecast = new Forecast(start * HOUR_MILLIS, kw, now);
+        }
+        siteForecasts.put(locationId, forecast);
+        return forecast;
+    }
+
+    /**
+     * Model currently used for a unit at the given horizon (hours after its latest observation).
+     */
+    public synchronized int getBestModel(int unitId, int horizonHours) {
+        int band = horizonHours <= SHORT_HORIZON ? 0 : 1;
+        int best = REGRESSION;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int model = 0; model < MODELS; model++) {
+            double error = score[(unitId * MODELS + model) * 2 + band];
+            if (error < bestScore) {
+                bestScore = error;
+                best = model;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Recent mean absolute error of a model for a unit in kW (NaN until it has been scored).
+     */
+    public synchronized double getMeanAbsoluteError(int unitId, int model, int horizonHours) {
+        int band = horizonHours <= SHORT_HORIZON ? 0 : 1;
+        return score[(unitId * MODELS + model) * 2 + band] * scale[unitId];
+    }
+
+    private long defaultStartHour() {
+        return latestHour != NO_DATA ? latestHour + 1 : Math.floorDiv(System.currentTimeMillis(), HOUR_MILLIS) + 1;
+    }
+
+    /**
+     * Add the unit's forecast for hours [start, start + 48) to out. Each hour takes the best-scored
+     * model that has an input for it, falling back to the formula.
+     */
+    private void addForecast(int unitId, long start, double[] out) {
+        double s = scale[unitId];
+        long last = lastHour[unitId];
+        double persistence = last != NO_DATA ? valueAt(unitId, last) / s : Double.NaN;
+        physics(unitId, start, out.length, scratch);
+        for (int h = 0; h < out.length; h++) {
+            long target = start + h;
+            int horizon = last != NO_DATA ? (int) Math.min(Integer.MAX_VALUE, target - last) : Integer.MAX_VALUE;
+            double dayBefore = Double.NaN;
+            for (long earlier = target - 24; Double.isNaN(dayBefore) && earlier > target - 24 * 3; earlier -= 24) {
+                dayBefore = valueAt(unitId, earlier) / s;
+            }
+            double model = scratch[h] / s;
+            double regression = Double.NaN;
+            if (!Double.isNaN(model)) {
+                setFeatures(model, dayBefore);
+                regression = predict(unitId);
+            }
+
+            int band = horizon <= SHORT_HORIZON ? 0 : 1;
+            double value = Double.NaN;
+            double bestScore = Double.POSITIVE_INFINITY;
+            for (int m = 0; m < MODELS; m++) {
+                double candidate = m == PERSISTENCE ? persistence : m == SEASONAL_NAIVE ? dayBefore : regression;
+                double error = score[(unitId * MODELS + m) * 2 + band];
+                if (!Double.isNaN(candidate) && (error < bestScore || Double.isNaN(value))) {
+                    value = candidate;
+                    if (error < bestScore) {
+                        bestScore = error;
+                    }
+                }
+            }
+            if (Double.isNaN(value)) {
+                value = Double.isNaN(regression) ? 1 : regression;
+            }
+            out[h] += Math.max(0, value * s);
+        }
+    }
+
+    private double valueAt(int unitId, long hour) {
+        long last = lastHour[unitId];
+        if (last == NO_DATA || hour > last || hour <= last - HISTORY_HOURS) {
+            return Double.NaN;
+        }
+        return history[unitId * HISTORY_HOURS + (int) Math.floorMod(hour, (long) HISTORY_HOURS)];
+    }
+
+    private double physics(int unitId, long hour) {
+        physics(unitId, hour, 1, scratch);
+        return scratch[0];
+    }
+
+    /**
+     * The unit's formula output for n hours from hour, NaN where the location has no weather.
+     */
+    private void physics(int unitId, long hour, int n, double[] out) {
+        Arrays.fill(out, 0, n, Double.NaN);
+        int locationId = engine.getLocationId(unitId);
+        if (locationId >= weather.length || weather[locationId] == null) {
+            return;
+        }
+        WeatherSeries series = weather[locationId];
+        long from = Math.max(hour, weatherStartHour[locationId]);
+        long to = Math.min(hour + n, weatherStartHour[locationId] + series.getHours());
+        if (from >= to) {
+            return;
+        }
+        double[] values = new double[(int) (to - from)];
+        engine.generateSeries(unitId, series, (int) (from - weatherStartHour[locationId]), values.length, values);
+        System.arraycopy(values, 0, out, (int) (from - hour), values.length);
+    }
+
+    private void setFeatures(double model, double dayBefore) {
+        features[0] = 1;
+        features[1] = model;
+        features[2] = Double.isNaN(dayBefore) ? model : dayBefore;
+    }
+
+    private double predict(int unitId) {
+        int w = unitId * FEATURES;
+        double y = 0;
+        for (int i = 0; i < FEATURES; i++) {
+            y += weights[w + i] * features[i];
+        }
+        return y;
+    }
+
+    /**
+     * Recursive least squares step on the current features. Forgetting is paused while the
+     * covariance is large, so long flat spells (nights, calm days) cannot blow it up.
+     */
+    private void refit(int unitId, double y) {
+        int w = unitId * FEATURES;
+        int p = unitId * FEATURES * FEATURES;
+        double denominator = 0;
+        double trace = 0;
+        for (int i = 0; i < FEATURES; i++) {
+            double sum = 0;
+            for (int j = 0; j < FEATURES; j++) {
+                sum += covariance[p + i * FEATURES + j] * features[j];
+            }
+            gain[i] = sum;
+            denominator += features[i] * sum;
+            trace += covariance[p + i * FEATURES + i];
+        }
+        double lambda = trace > FEATURES * PRIOR_VARIANCE ? 1 : FORGETTING;
+        denominator += lambda;
+        double error = y - predict(unitId);
+        for (int i = 0; i < FEATURES; i++) {
+            weights[w + i] += gain[i] / denominator * error;
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            for (int j = 0; j < FEATURES; j++) {
+                int index = p + i * FEATURES + j;
+                covariance[index] = (covariance[index] - gain[i] * gain[j] / denominator) / lambda;
+            }
+        }
+    }
+
+    private void updateScore(int unitId, int model, int band, double predicted, double actual) {
+        if (Double.isNaN(predicted)) {
+            return;
+        }
+        int index = (unitId * MODELS + model) * 2 + band;
+        double error = Math.abs(predicted - actual);
+        score[index] = Double.isNaN(score[index]) ? error : score[index] + SCORE_WEIGHT * (error - score[index]);
+    }
+
+    /**
+     * Demo: units whose real output differs from their formula, 60 days of hourly history,
+     * then a 48-hour site forecast checked against what actually happens.
+     */
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int days = 60;
+        FleetEngine fleet = new FleetEngine();
+        int site = fleet.locationId("Bukidnon");
+        java.util.SplittableRandom random = new java.util.SplittableRandom(5);
+        double[] derate = new double[units];
+        for (int i = 0; i < units; i++) {
+            switch (i % 3) {
+                case 0:
+                    fleet.add(EnergySourceType.SOLAR_PANEL, site, 10, 0.85, 0);
+                    break;
+                case 1:
+                    fleet.add(EnergySourceType.WIND_TURBINE, site, 50, 20, 0);
+                    break;
+                default:
+                    fleet.add(EnergySourceType.RUN_OF_RIVER_MICRO_HYDRO, site, 30, 80, 0);
+                    break;
+            }
+            derate[i] = 0.7 + 0.3 * random.nextDouble(); // soiling, wear, siting the formula does not know
+        }
+
+        int hours = (days + 2) * 24;
+        WeatherSeries weather = WeatherSeries.synthetic(hours, 950, 18, 90, 17);
+        long start = 1717200000000L; // 2024-06-01 00:00 UTC
+        // The service sees measured weather for the past and an imperfect forecast for the last two days
+        double[] irradiance = weather.getIrradiance().clone();
+        double[] wind = weather.getWindSpeedKmh().clone();
+        double[] flow = weather.getRiverFlowLps().clone();
+        for (int h = days * 24; h < hours; h++) {
+            irradiance[h] *= 0.75 + 0.5 * random.nextDouble();
+            wind[h] *= 0.7 + 0.6 * random.nextDouble();
+            flow[h] *= 0.9 + 0.2 * random.nextDouble();
+        }
+        ForecastService service = new ForecastService(fleet, 60000L);
+        service.setWeather(site, start, new WeatherSeries(irradiance, wind, flow));
+
+        double[] truth = new double[hours * units];
+        double[] one = new double[hours];
+        for (int unitId = 0; unitId < units; unitId++) {
+            fleet.generateSeries(unitId, weather, 0, hours, one);
+            for (int h = 0; h < hours; h++) {
+                truth[h * units + unitId] = one[h] * derate[unitId] * (0.95 + 0.1 * random.nextDouble());
+            }
+        }
+
+        long t0 = System.nanoTime();
+        for (int h = 0; h < days * 24; h++) {
+            for (int unitId = 0; unitId < units; unitId++) {
+                service.observe(unitId, start + h * HOUR_MILLIS, truth[h * units + unitId]);
+            }
+        }
+        double observeSeconds = (System.nanoTime() - t0) / 1e9;
+
+        long t1 = System.nanoTime();
+        Forecast forecast = service.getSiteForecast(site);
+        long t2 = System.nanoTime();
+        service.getSiteForecast(site);
+        long t3 = System.nanoTime();
+
+        double formulaError = 0;
+        double forecastError = 0;
+        double actualTotal = 0;
+        int first = days * 24;
+        for (int h = 0; h < HORIZON_HOURS; h++) {
+            double actual = 0;
+            double formula = 0;
+            for (int unitId = 0; unitId < units; unitId++) {
+                actual += truth[(first + h) * units + unitId];
+                fleet.generateSeries(unitId, weather, first + h, 1, one);
+                formula += one[0];
+            }
+            actualTotal += actual;
+            formulaError += Math.abs(formula - actual);
+            forecastError += Math.abs(forecast.getKw(h) - actual);
+        }
+        System.out.printf("%d units, %d hourly observations refitted in %.2f s%n", units, days * 24 * units, observeSeconds);
+        System.out.printf("48 h site forecast: %.1f ms to compute, %.3f ms from cache%n", (t2 - t1) / 1e6, (t3 - t2) / 1e6);
+        System.out.printf("Mean absolute error vs actual: formula only %.1f%%, forecast %.1f%%%n",
+                100 * formulaError / actualTotal, 100 * forecastError / actualTotal);
+        for (int unitId = 0; unitId < 3; unitId++) {
+            System.out.println("  " + fleet.getType(unitId) + " #" + unitId + ": " + modelName(service.getBestModel(unitId, 1))
+                    + " for the next hour, " + modelName(service.getBestModel(unitId, 24)) + " for day-ahead");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Micro-benchmark for generateEnergy() dispatch.
+ * Measures per-call cost and throughput over monomorphic (SolarPanel), bimorphic
+ * (SolarPanel + WindTurbine) and mixed (all 13 types) fleets, comparing:
+ *   virtual  - the class hierarchy, calling generateEnergy() through EnergySource
+ *   switch   - a type tag per object and one switch with the formulas inlined
+ *   columnar - FleetEngine's per-type primitive columns
+ * Each case runs in its own JVM (like a JMH fork) so call-site profiles of one
+ * case do not leak into the next. Results are written as a JSON array.
+ *
+ * Usage: java GenerateEnergyBenchmark [units] [output.json]
+ */
+public class GenerateEnergyBenchmark {
+
+    private static final String[] FLEETS = {"monomorphic", "bimorphic", "mixed"};
+    private static final String[] VARIANTS = {"virtual", "switch", "columnar"};
+
+    // Warm-up runs until C2 has compiled the loop: at least this many iterations and this long,
+    // then until the mean of the last window stays within WARMUP_TOLERANCE of the window before
+    private static final int MIN_WARMUP_ITERATIONS = 2000;
+    private static final long MIN_WARMUP_NANOS = 2000000000L;
+    private static final long MAX_WARMUP_NANOS = 30000000000L;
+    private static final int WARMUP_WINDOW = 200;
+    private static final double WARMUP_TOLERANCE = 0.05;
+    private static final int MEASURE_ITERATIONS = 200;
+
+    // Results are accumulated here so the JIT cannot drop the work
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--case")) {
+            // Forked child: run one case and print its JSON object
+            System.out.println(runCase(args[1], args[2], Integer.parseInt(args[3])));
+            return;
+        }
+
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String output = args.length > 1 ? args[1] : "generate_energy_bench.json";
+
+        List<String> results = new ArrayList<>();
+        for (String fleet : FLEETS) {
+            for (String variant : VARIANTS) {
+                String json = fork(fleet, variant, units);
+                System.out.println(json);
+                results.add(json);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(output))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                out.println("  " + results.get(i) + (i + 1 < results.size() ? "," : ""));
+            }
+            out.println("]");
+        }
+        System.out.println("Results written to " + output);
+    }
+
+    private static String fork(String fleet, String variant, int units) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                GenerateEnergyBenchmark.class.getName(), "--case", fleet, variant, String.valueOf(units));
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        String last = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                last = line;
+            }
+        }
+        if (process.waitFor() != 0 || last == null) {
+            throw new IllegalStateException("Benchmark fork failed: " + fleet + "/" + variant + ": " + last);
+        }
+        return last;
+    }
+
+    private static String runCase(String fleetName, String variant, int units) {
+        EnergySource[] fleet = buildFleet(fleetName, units, new Random(42));
+        EnergySourceType[] types = new EnergySourceType[fleet.length];
+        FleetEngine engine = new FleetEngine();
+        for (int i = 0; i < fleet.length; i++) {
+            types[i] = EnergySourceType.of(fleet[i]);
+            engine.add(fleet[i]);
+        }
+
+        // All variants must agree before their timings mean anything
+        double expected = sumVirtual(fleet);
+        double actual = runOnce(variant, fleet, types, engine);
+        if (Math.abs(expected - actual) > 1e-6 * Math.max(1.0, Math.abs(expected))) {
+            throw new IllegalStateException(variant + " total " + actual + " differs from virtual total " + expected);
+        }
+
+        int warmupIterations = warmUp(variant, fleet, types, engine);
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            sink += runOnce(variant, fleet, types, engine);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+
+        double avgNsPerCall = (double) total / MEASURE_ITERATIONS / units;
+        double bestNsPerCall = (double) best / units;
+        double callsPerSecond = 1e9 / avgNsPerCall;
+        return String.format(Locale.ROOT,
+                "{\"fleet\": \"%s\", \"variant\": \"%s\", \"units\": %d, \"warmupIterations\": %d, " +
+                "\"iterations\": %d, \"avgNsPerCall\": %.4f, \"bestNsPerCall\": %.4f, \"callsPerSecond\": %.0f}",
+                fleetName, variant, units, warmupIterations, MEASURE_ITERATIONS, avgNsPerCall, bestNsPerCall,
+                callsPerSecond);
+    }
+
+    /**
+     * Run the case until its timings settle. Returns the number of warm-up iterations.
+     */
+    private static int warmUp(String variant, EnergySource[] fleet, EnergySourceType[] types, FleetEngine engine) {
+        long start = System.nanoTime();
+        long previousWindow = Long.MAX_VALUE;
+        long window = 0;
+        int iterations = 0;
+        while (true) {
+            long t0 = System.nanoTime();
+            sink += runOnce(variant, fleet, types, engine);
+            window += System.nanoTime() - t0;
+            iterations++;
+            if (iterations % WARMUP_WINDOW != 0) {
+                continue;
+            }
+            long elapsed = System.nanoTime() - start;
+            boolean settled = Math.abs(window - previousWindow) <= WARMUP_TOLERANCE * previousWindow;
+            if (elapsed > MAX_WARMUP_NANOS
+                    || (iterations >= MIN_WARMUP_ITERATIONS && elapsed >= MIN_WARMUP_NANOS && settled)) {
+                return iterations;
+            }
+            previousWindow = window;
+            window = 0;
+        }
+    }
+
+    private static double runOnce(String variant, EnergySource[] fleet, EnergySourceType[] types, FleetEngine engine) {
+        switch (variant) {
+            case "virtual":
+                return sumVirtual(fleet);
+            case "switch":
+                return sumSwitch(fleet, types);
+            case "columnar":
+                return engine.totalGeneration();
+            default:
+                throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+    }
+
+    private static double sumVirtual(EnergySource[] fleet) {
+        double total = 0;
+        for (EnergySource source : fleet) {
+            total += source.generateEnergy();
+        }
+        return total;
+    }
+
+    private static double sumSwitch(EnergySource[] fleet, EnergySourceType[] types) {
+        double total = 0;
+        for (int i = 0; i < fleet.length; i++) {
+            total += generateBySwitch(fleet[i], types[i]);
+        }
+        return total;
+    }
+
+    /**
+     * The generateEnergy() formulas as one switch on the type tag (no virtual call).
+     */
+    static double generateBySwitch(EnergySource s, EnergySourceType type) {
+        switch (type) {
+            case SOLAR_PANEL:
+                return s.capacityKwh * ((SolarPanel) s).efficiency;
+            case ROOFTOP_SOLAR_PANEL:
+                return s.capacityKwh * ((SolarPanel) s).efficiency * (1 - ((RooftopSolarPanel) s).getShadingFactor());
+            case SOLAR_CANOPY:
+                return s.capacityKwh * ((SolarPanel) s).efficiency + ((SolarCanopy) s).getCoverageArea() * 0.1;
+            case FLOATING_SOLAR_FARM:
+                return s.capacityKwh * ((SolarPanel) s).efficiency * (1 + ((FloatingSolarFarm) s).getCoolingEffect());
+            case WIND_TURBINE:
+            case SMALL_COMMUNITY_WIND_MILL:
+                return s.capacityKwh * (((WindTurbine) s).avgWindSpeedKmh / 100);
+            case URBAN_VERTICAL_AXIS_WIND_TURBINE:
+                return s.capacityKwh * (((WindTurbine) s).avgWindSpeedKmh / 100) * 0.9;
+            case OFFSHORE_WIND_TURBINE:
+                return s.capacityKwh * (((WindTurbine) s).avgWindSpeedKmh / 100) * 1.2;
+            case HYDRO_GENERATOR:
+            case RUN_OF_RIVER_MICRO_HYDRO:
+                return s.capacityKwh * (((HydroGenerator) s).waterFlowRateLps / 100);
+            case PICO_HYDRO_GENERATOR:
+                return s.capacityKwh * (((HydroGenerator) s).waterFlowRateLps / 100) * ((PicoHydroGenerator) s).getHeadHeight();
+            case HYDRO_PUMP_STORAGE_UNIT:
+                return s.capacityKwh * (((HydroGenerator) s).waterFlowRateLps / 100) + ((HydroPumpStorageUnit) s).getPumpingCapacity() * 0.5;
+            default:
+                return s.capacityKwh;
+        }
+    }
+
+    /**
+     * Build a shuffled fleet; "mixed" cycles through all 13 types in random order.
+     */
+    static EnergySource[] buildFleet(String fleetName, int units, Random random) {
+        int typeCount;
+        switch (fleetName) {
+            case "monomorphic":
+                typeCount = 1;
+                break;
+            case "bimorphic":
+                typeCount = 2;
+                break;
+            case "mixed":
+                typeCount = 13;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown fleet: " + fleetName);
+        }
+
+        EnergySource[] fleet = new EnergySource[units];
+        for (int i = 0; i < units; i++) {
+            fleet[i] = createUnit(random.nextInt(typeCount), random);
+        }
+        return fleet;
+    }
+
+    private static EnergySource createUnit(int kind, Random r) {
+        double capacity = 50 + r.nextDouble() * 950;
+        switch (kind) {
+            case 0:
+                return new SolarPanel("Solar", capacity, "Site", 0.7 + r.nextDouble() * 0.2);
+            case 1:
+                return new WindTurbine("Wind", capacity, "Site", 10 + r.nextDouble() * 50);
+            case 2:
+                return new RooftopSolarPanel("Rooftop", capacity, "Site", 0.8, 30, r.nextDouble() * 0.3);
+            case 3:
+                return new SolarCanopy("Canopy", capacity, "Site", 0.9, 100 + r.nextDouble() * 200, 50);
+            case 4:
+                return new FloatingSolarFarm("Floating", capacity, "Site", 0.85, 1000, r.nextDouble() * 0.2);
+            case 5:
+                return new UrbanVerticalAxisWindTurbine("VAWT", capacity, "Site", 10 + r.nextDouble() * 30, 45, 8);
+            case 6:
+                return new SmallCommunityWindMill("Windmill", capacity, "Site", 10 + r.nextDouble() * 30, true, true);
+            case 7:
+                return new OffshoreWindTurbine("Offshore", capacity, "Site", 40 + r.nextDouble() * 30, "Monopile", 12);
+            case 8:
+                return new HydroGenerator("Hydro", capacity, "Site", 10 + r.nextDouble() * 40);
+            case 9:
+                return new PicoHydroGenerator("Pico", capacity, "Site", 10 + r.nextDouble() * 20, 2, 1 + r.nextDouble() * 5);
+            case 10:
+                return new HydroPumpStorageUnit("Pump", capacity, "Site", 40, 100 + r.nextDouble() * 300, 5000);
+            case 11:
+                return new RunOfRiverMicroHydro("River", capacity, "Site", 10 + r.nextDouble() * 40, 5.5, "Low Impact");
+            default:
+                return new EnergySource("Generic", capacity, "Site");
+        }
+    }
+}
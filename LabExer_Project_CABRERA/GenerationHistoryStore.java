@@ -0,0 +1,733 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Embedded, append-only store of per-unit generation history (kW readings keyed by
+ * FleetEngine unit ID), kept compressed on memory-mapped segment files.
+ *
+ * Each level (raw, hourly means, daily means) is a directory of 64 MB segment files made of
+ * 4 KB blocks. A block belongs to one series and holds a 32-byte header
+ * (series ID, point count, first and last timestamp, bits used) and a bit stream in which
+ * timestamps are stored as delta-of-deltas and values as the XOR with the previous value
+ * (the Gorilla encoding). Evenly spaced meter readings cost one bit for the timestamp and
+ * unchanged or similar values only a few bits, so a reading usually takes 2-4 bytes instead
+ * of 16. Points are written straight into the mapped block and the header updated last, and
+ * a block is never changed once it is full, so readers can decode without copying.
+ *
+ * Hourly and daily rollups are built as raw points are appended; chart queries over long
+ * ranges read the rollups, so a site's year is a few hundred points per unit.
+ */
+public class GenerationHistoryStore implements Closeable, TelemetryAggregator.WindowListener {
+
+    public static final int RAW = 0;
+    public static final int HOURLY = 1;
+    public static final int DAILY = 2;
+
+    private static final String[] LEVEL_NAMES = {"raw", "hourly", "daily"};
+    private static final long[] LEVEL_WIDTH = {0L, 3600000L, 86400000L};
+
+    private static final int MAGIC = 0x47545331; // "GTS1"
+    private static final int VERSION = 1;
+    private static final int BLOCK_BYTES = 4096;
+    private static final int BLOCK_HEADER_BYTES = 32;
+    private static final int PAYLOAD_BITS = (BLOCK_BYTES - BLOCK_HEADER_BYTES) * 8;
+    // Worst case: '1111' + 64-bit delta-of-delta, then '11' + 5 + 6 control bits + 64 value bits
+    private static final int MAX_POINT_BITS = 4 + 64 + 2 + 5 + 6 + 64;
+    // Block 0 of every segment is the file header
+    private static final int SEGMENT_BLOCKS = 16384;
+
+    // Block header fields
+    private static final int SERIES_ID = 0;
+    private static final int COUNT = 4;
+    private static final int FIRST_TS = 8;
+    private static final int LAST_TS = 16;
+    private static final int BIT_LENGTH = 24;
+
+    /**
+     * Receives the points of a range query in time order.
+     */
+    public interface PointVisitor {
+        void onPoint(long timestampMillis, double kw);
+    }
+
+    private final Level[] levels;
+    private final long offsetMillis;
+
+    private GenerationHistoryStore(Level[] levels, long offsetMillis) {
+        this.levels = levels;
+        this.offsetMillis = offsetMillis;
+    }
+
+    /**
+     * Open (or create) a store directory. Daily rollups are aligned to local midnight for the given UTC offset.
+     */
+    public static GenerationHistoryStore open(Path directory, int utcOffsetMinutes) throws IOException {
+        Level[] levels = new Level[LEVEL_NAMES.length];
+        try {
+            for (int level = 0; level < levels.length; level++) {
+                levels[level] = new Level(directory.resolve(LEVEL_NAMES[level]), LEVEL_WIDTH[level]);
+            }
+        } catch (IOException e) {
+            for (Level level : levels) {
+                if (level != null) {
+                    level.close();
+                }
+            }
+            throw e;
+        }
+        GenerationHistoryStore store = new GenerationHistoryStore(levels, utcOffsetMinutes * 60000L);
+        store.restoreOpenBuckets();
+        return store;
+    }
+
+    /**
+     * Append a reading. Timestamps must increase per unit; an older or repeated one is dropped and false returned.
+     */
+    public synchronized boolean append(int unitId, long timestampMillis, double kw) throws IOException {
+        Level raw = levels[RAW];
+        if (!raw.append(unitId, timestampMillis, kw)) {
+            return false;
+        }
+        Series series = raw.get(unitId);
+        for (int level = HOURLY; level <= DAILY; level++) {
+            long start = bucketStart(timestampMillis, LEVEL_WIDTH[level]);
+            if (start != series.bucketStart[level]) {
+                if (series.bucketCount[level] > 0) {
+                    levels[level].append(unitId, series.bucketStart[level],
+                            series.bucketSum[level] / series.bucketCount[level]);
+                }
+                series.bucketStart[level] = start;
+                series.bucketSum[level] = 0;
+                series.bucketCount[level] = 0;
+            }
+            series.bucketSum[level] += kw;
+            series.bucketCount[level]++;
+        }
+        return true;
+    }
+
+    /**
+     * Stores every completed 1-minute telemetry mean as a raw point.
+     */
+    public void onWindowClosed(int window, int unitId, long bucketStartMillis, double meanKw, int samples) {
+        if (window == TelemetryAggregator.ONE_MINUTE) {
+            try {
+                append(unitId, bucketStartMillis, meanKw);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Visit the unit's points with from <= timestamp < to at the given level. For HOURLY and DAILY
+     * the bucket still being filled is included with its running mean. Returns the number of points visited.
+     */
+    public int query(int level, int unitId, long from, long to, PointVisitor visitor) {
+        ByteBuffer[] buffers;
+        int[] offsets;
+        int[] counts;
+        int blocks = 0;
+        boolean open = false;
+        long openStart = 0;
+        double openMean = 0;
+        // Only the block list is read under the lock; full blocks never change and the
+        // last one is decoded up to the point count seen here
+        synchronized (this) {
+            Level l = levels[level];
+            Series series = l.get(unitId);
+            if (series != null && series.blockCount > 0) {
+                int first = series.firstBlockEndingAtOrAfter(from);
+                int last = first;
+                while (last < series.blockCount && series.firstTs[last] < to) {
+                    last++;
+                }
+                buffers = new ByteBuffer[last - first];
+                offsets = new int[last - first];
+                counts = new int[last - first];
+                for (int b = first; b < last; b++) {
+                    int block = series.blocks[b];
+                    buffers[blocks] = l.segment(block);
+                    offsets[blocks] = l.offset(block);
+                    counts[blocks] = buffers[blocks].getInt(offsets[blocks] + COUNT);
+                    blocks++;
+                }
+            } else {
+                buffers = new ByteBuffer[0];
+                offsets = new int[0];
+                counts = new int[0];
+            }
+            Series raw = levels[RAW].get(unitId);
+            if (level != RAW && raw != null && raw.bucketCount[level] > 0) {
+                open = true;
+                openStart = raw.bucketStart[level];
+                openMean = raw.bucketSum[level] / raw.bucketCount[level];
+            }
+        }
+
+        int visited = 0;
+        BlockReader reader = new BlockReader();
+        for (int b = 0; b < blocks; b++) {
+            reader.reset(buffers[b], offsets[b]);
+            for (int i = 0; i < counts[b]; i++) {
+                if (i > 0) {
+                    reader.next();
+                }
+                if (reader.timestamp >= to) {
+                    return visited;
+                }
+                if (reader.timestamp >= from) {
+                    visitor.onPoint(reader.timestamp, Double.longBitsToDouble(reader.valueBits));
+                    visited++;
+                }
+            }
+        }
+        if (open && openStart >= from && openStart < to) {
+            visitor.onPoint(openStart, openMean);
+            visited++;
+        }
+        return visited;
+    }
+
+    /**
+     * Mean kW per HOURLY or DAILY bucket, summed over the given units (e.g. every unit of a site).
+     * Element 0 is the bucket containing from.
+     */
+    public double[] sumBuckets(int level, int[] unitIds, long from, long to) {
+        if (level == RAW) {
+            throw new IllegalArgumentException("Raw points have no fixed buckets; use HOURLY or DAILY");
+        }
+        long width = LEVEL_WIDTH[level];
+        long start = bucketStart(from, width);
+        double[] out = new double[(int) Math.max(0, (to - start + width - 1) / width)];
+        PointVisitor sum = (timestamp, kw) -> out[(int) ((timestamp - start) / width)] += kw;
+        for (int unitId : unitIds) {
+            query(level, unitId, start, to, sum);
+        }
+        return out;
+    }
+
+    /**
+     * Site chart: mean kW per bucket of all fleet units at a location.
+     */
+    public double[] siteChart(FleetEngine engine, int locationId, int level, long from, long to) {
+        int[] units = new int[engine.size()];
+        int count = 0;
+        for (int unitId = 0; unitId < engine.size(); unitId++) {
+            if (engine.getLocationId(unitId) == locationId) {
+                units[count++] = unitId;
+            }
+        }
+        return sumBuckets(level, Arrays.copyOf(units, count), from, to);
+    }
+
+    /**
+     * Coarsest level that still gives about maxPoints points over the range: raw for up to
+     * maxPoints minutes, then hourly, then daily.
+     */
+    public static int levelFor(long from, long to, int maxPoints) {
+        long range = to - from;
+        if (range <= maxPoints * 60000L) {
+            return RAW;
+        }
+        return range <= maxPoints * LEVEL_WIDTH[HOURLY] ? HOURLY : DAILY;
+    }
+
+    /**
+     * Bytes of segment blocks in use at a level.
+     */
+    public synchronized long getStoredBytes(int level) {
+        return (long) levels[level].usedBlocks() * BLOCK_BYTES;
+    }
+
+    /**
+     * Write all mapped segments to disk.
+     */
+    public synchronized void flush() {
+        for (Level level : levels) {
+            level.flush();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        flush();
+        for (Level level : levels) {
+            level.close();
+        }
+    }
+
+    private long bucketStart(long timestampMillis, long width) {
+        return Math.floorDiv(timestampMillis + offsetMillis, width) * width - offsetMillis;
+    }
+
+    /**
+     * The hour and day still being filled when the store was last closed are not in the rollup
+     * levels yet; rebuild their running sums from the raw points.
+     */
+    private void restoreOpenBuckets() {
+        Level raw = levels[RAW];
+        for (int unitId = 0; unitId < raw.series.length; unitId++) {
+            Series series = raw.series[unitId];
+            if (series == null || series.blockCount == 0) {
+                continue;
+            }
+            long last = series.prevTs;
+            for (int level = HOURLY; level <= DAILY; level++) {
+                series.bucketStart[level] = bucketStart(last, LEVEL_WIDTH[level]);
+            }
+            query(RAW, unitId, series.bucketStart[DAILY], last + 1, (timestamp, kw) -> {
+                for (int level = HOURLY; level <= DAILY; level++) {
+                    if (timestamp >= series.bucketStart[level]) {
+                        series.bucketSum[level] += kw;
+                        series.bucketCount[level]++;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Blocks of one series and the encoder state of its last block.
+     */
+    private static final class Series {
+        int[] blocks = new int[8];
+        long[] firstTs = new long[8];
+        long[] lastTs = new long[8];
+        int blockCount;
+
+        int bitPos;
+        long prevTs;
+        long prevDelta;
+        long prevBits;
+        int prevLeading;
+        int prevTrailing;
+
+        // Rollup buckets being filled (raw level only), indexed by level
+        final long[] bucketStart = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+        final double[] bucketSum = new double[3];
+        final int[] bucketCount = new int[3];
+
+        void addBlock(int block, long first, long last) {
+            if (blockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blockCount * 2);
+                firstTs = Arrays.copyOf(firstTs, blockCount * 2);
+                lastTs = Arrays.copyOf(lastTs, blockCount * 2);
+            }
+            blocks[blockCount] = block;
+            firstTs[blockCount] = first;
+            lastTs[blockCount] = last;
+            blockCount++;
+        }
+
+        int firstBlockEndingAtOrAfter(long timestamp) {
+            int low = 0;
+            int high = blockCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lastTs[mid] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * One level's segment files, block allocator and series index.
+     */
+    private static final class Level {
+        private final Path dir;
+        private final long width;
+        private final List<FileChannel> channels = new ArrayList<>();
+        private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+        private int nextBlock;
+        Series[] series = new Series[0];
+
+        Level(Path dir, long width) throws IOException {
+            this.dir = dir;
+            this.width = width;
+            Files.createDirectories(dir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.gts")) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+            Collections.sort(files);
+            for (int s = 0; s < files.size(); s++) {
+                if (!files.get(s).equals(segmentPath(s))) {
+                    throw new IOException("Missing generation history segment: " + segmentPath(s));
+                }
+                mapSegment(files.get(s), false);
+            }
+            scan();
+        }
+
+        private Path segmentPath(int segment) {
+            return dir.resolve(String.format("segment-%05d.gts", segment));
+        }
+
+        private void mapSegment(Path file, boolean create) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+            channels.add(channel);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SEGMENT_BLOCKS * BLOCK_BYTES);
+            if (create) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, BLOCK_BYTES);
+                buffer.putLong(12, width);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != BLOCK_BYTES) {
+                throw new IOException("Not a generation history segment: " + file);
+            }
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            segments[segments.length - 1] = buffer;
+        }
+
+        /**
+         * Rebuild the series index from the block headers and resume encoding each series' last block.
+         */
+        private void scan() {
+            nextBlock = segments.length * SEGMENT_BLOCKS;
+            outer:
+            for (int s = 0; s < segments.length; s++) {
+                for (int b = 1; b < SEGMENT_BLOCKS; b++) {
+                    int block = s * SEGMENT_BLOCKS + b;
+                    int offset = offset(block);
+                    if (segments[s].getInt(offset + COUNT) == 0) {
+                        nextBlock = block;
+                        break outer;
+                    }
+                    getOrCreate(segments[s].getInt(offset + SERIES_ID)).addBlock(block,
+                            segments[s].getLong(offset + FIRST_TS), segments[s].getLong(offset + LAST_TS));
+                }
+            }
+            BlockReader reader = new BlockReader();
+            for (Series s : series) {
+                if (s == null) {
+                    continue;
+                }
+                int block = s.blocks[s.blockCount - 1];
+                ByteBuffer buffer = segment(block);
+                int count = buffer.getInt(offset(block) + COUNT);
+                reader.reset(buffer, offset(block));
+                for (int i = 1; i < count; i++) {
+                    reader.next();
+                }
+                s.bitPos = reader.bitPos;
+                s.prevTs = reader.timestamp;
+                s.prevDelta = reader.delta;
+                s.prevBits = reader.valueBits;
+                s.prevLeading = reader.leading;
+                s.prevTrailing = reader.trailing;
+            }
+        }
+
+        MappedByteBuffer segment(int block) {
+            return segments[block / SEGMENT_BLOCKS];
+        }
+
+        int offset(int block) {
+            return (block % SEGMENT_BLOCKS) * BLOCK_BYTES;
+        }
+
+        int usedBlocks() {
+            return nextBlock - (nextBlock + SEGMENT_BLOCKS - 1) / SEGMENT_BLOCKS;
+        }
+
+        Series get(int seriesId) {
+            return seriesId >= 0 && seriesId < series.length ? series[seriesId] : null;
+        }
+
+        private Series getOrCreate(int seriesId) {
+            if (seriesId < 0) {
+                throw new IllegalArgumentException("Series ID must not be negative: " + seriesId);
+            }
+            if (seriesId >= series.length) {
+                series = Arrays.copyOf(series, Math.max(seriesId + 1, series.length * 2));
+            }
+            Series s = series[seriesId];
+            if (s == null) {
+                s = new Series();
+                series[seriesId] = s;
+            }
+            return s;
+        }
+
+        private int allocate() throws IOException {
+            if (nextBlock % SEGMENT_BLOCKS == 0) {
+                int segment = nextBlock / SEGMENT_BLOCKS;
+                if (segment == segments.length) {
+                    mapSegment(segmentPath(segment), true);
+                }
+                nextBlock++;
+            }
+            return nextBlock++;
+        }
+
+        boolean append(int seriesId, long timestamp, double kw) throws IOException {
+            Series s = getOrCreate(seriesId);
+            if (s.blockCount > 0 && timestamp <= s.prevTs) {
+                return false;
+            }
+            long bits = Double.doubleToLongBits(kw);
+            if (s.blockCount == 0 || s.bitPos + MAX_POINT_BITS > PAYLOAD_BITS) {
+                startBlock(s, seriesId, timestamp, bits);
+                return true;
+            }
+
+            int block = s.blocks[s.blockCount - 1];
+            ByteBuffer buffer = segment(block);
+            int header = offset(block);
+            int base = header + BLOCK_HEADER_BYTES;
+            int pos = s.bitPos;
+
+            long delta = timestamp - s.prevTs;
+            long dod = delta - s.prevDelta;
+            if (dod == 0) {
+                pos = writeBits(buffer, base, pos, 0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                pos = writeBits(buffer, base, pos, 0b10, 2);
+                pos = writeBits(buffer, base, pos, dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                pos = writeBits(buffer, base, pos, 0b110, 3);
+                pos = writeBits(buffer, base, pos, dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                pos = writeBits(buffer, base, pos, 0b1110, 4);
+                pos = writeBits(buffer, base, pos, dod + 2047, 12);
+            } else {
+                pos = writeBits(buffer, base, pos, 0b1111, 4);
+                pos = writeBits(buffer, base, pos, dod, 64);
+            }
+
+            long xor = bits ^ s.prevBits;
+            if (xor == 0) {
+                pos = writeBits(buffer, base, pos, 0, 1);
+            } else {
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (s.prevLeading >= 0 && leading >= s.prevLeading && trailing >= s.prevTrailing) {
+                    // Reuse the previous window of meaningful bits
+                    pos = writeBits(buffer, base, pos, 0b10, 2);
+                    pos = writeBits(buffer, base, pos, xor >>> s.prevTrailing, 64 - s.prevLeading - s.prevTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    pos = writeBits(buffer, base, pos, 0b11, 2);
+                    pos = writeBits(buffer, base, pos, leading, 5);
+                    pos = writeBits(buffer, base, pos, significant - 1, 6);
+                    pos = writeBits(buffer, base, pos, xor >>> trailing, significant);
+                    s.prevLeading = leading;
+                    s.prevTrailing = trailing;
+                }
+            }
+
+            s.bitPos = pos;
+            s.prevDelta = delta;
+            s.prevTs = timestamp;
+            s.prevBits = bits;
+            s.lastTs[s.blockCount - 1] = timestamp;
+            buffer.putLong(header + LAST_TS, timestamp);
+            buffer.putInt(header + BIT_LENGTH, pos);
+            buffer.putInt(header + COUNT, buffer.getInt(header + COUNT) + 1); // published last
+            return true;
+        }
+
+        private void startBlock(Series s, int seriesId, long timestamp, long bits) throws IOException {
+            int block = allocate();
+            ByteBuffer buffer = segment(block);
+            int header = offset(block);
+            int pos = writeBits(buffer, header + BLOCK_HEADER_BYTES, 0, bits, 64);
+            buffer.putInt(header + SERIES_ID, seriesId);
+            buffer.putLong(header + FIRST_TS, timestamp);
+            buffer.putLong(header + LAST_TS, timestamp);
+            buffer.putInt(header + BIT_LENGTH, pos);
+            buffer.putInt(header + COUNT, 1);
+            s.addBlock(block, timestamp, timestamp);
+            s.bitPos = pos;
+            s.prevTs = timestamp;
+            s.prevDelta = 0;
+            s.prevBits = bits;
+            s.prevLeading = -1;
+            s.prevTrailing = 0;
+        }
+
+        void flush() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        void close() throws IOException {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            channels.clear();
+        }
+    }
+
+    /**
+     * Write the low n bits of value, most significant first, at bit position pos of the payload.
+     * Payload bytes start zeroed, so bits are ORed in. Returns the new position.
+     */
+    private static int writeBits(ByteBuffer buffer, int base, int pos, long value, int n) {
+        while (n > 0) {
+            int index = base + (pos >>> 3);
+            int free = 8 - (pos & 7);
+            int take = Math.min(free, n);
+            int bits = (int) (value >>> (n - take)) & ((1 << take) - 1);
+            buffer.put(index, (byte) (buffer.get(index) | (bits << (free - take))));
+            pos += take;
+            n -= take;
+        }
+        return pos;
+    }
+
+    /**
+     * Decodes one block point by point; reset() positions it on the first point.
+     */
+    private static final class BlockReader {
+        private ByteBuffer buffer;
+        private int base;
+        int bitPos;
+        long timestamp;
+        long delta;
+        long valueBits;
+        int leading;
+        int trailing;
+
+        void reset(ByteBuffer buffer, int headerOffset) {
+            this.buffer = buffer;
+            this.base = headerOffset + BLOCK_HEADER_BYTES;
+            bitPos = 0;
+            timestamp = buffer.getLong(headerOffset + FIRST_TS);
+            delta = 0;
+            valueBits = readBits(64);
+            leading = -1;
+            trailing = 0;
+        }
+
+        void next() {
+            long dod;
+            if (readBits(1) == 0) {
+                dod = 0;
+            } else if (readBits(1) == 0) {
+                dod = readBits(7) - 63;
+            } else if (readBits(1) == 0) {
+                dod = readBits(9) - 255;
+            } else if (readBits(1) == 0) {
+                dod = readBits(12) - 2047;
+            } else {
+                dod = readBits(64);
+            }
+            delta += dod;
+            timestamp += delta;
+
+            if (readBits(1) == 1) {
+                if (readBits(1) == 1) {
+                    leading = (int) readBits(5);
+                    int significant = (int) readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                valueBits ^= readBits(64 - leading - trailing) << trailing;
+            }
+        }
+
+        private long readBits(int n) {
+            long value = 0;
+            while (n > 0) {
+                int available = 8 - (bitPos & 7);
+                int take = Math.min(available, n);
+                int b = buffer.get(base + (bitPos >>> 3)) & 0xFF;
+                value = (value << take) | ((b >>> (available - take)) & ((1 << take) - 1));
+                bitPos += take;
+                n -= take;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Demo: java GenerationHistoryStore [units] [days] - writes 15-minute readings for a site,
+     * reopens the store and charts the site's history.
+     */
+    public static void main(String[] args) throws IOException {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 365;
+        Path dir = Files.createTempDirectory("generation-history");
+
+        FleetEngine fleet = new FleetEngine();
+        int site = fleet.locationId("Davao City");
+        for (int i = 0; i < units; i++) {
+            fleet.add(EnergySourceType.SOLAR_PANEL, site, 10, 0.8, 0);
+        }
+
+        long start = 1704067200000L - 8 * 3600000L; // 2024-01-01 00:00 at UTC+8
+        long step = 900000L;
+        int intervals = days * 96;
+        java.util.SplittableRandom random = new java.util.SplittableRandom(11);
+        long points = 0;
+        long begin = System.nanoTime();
+        try (GenerationHistoryStore store = open(dir, 8 * 60)) {
+            for (int i = 0; i < intervals; i++) {
+                double hour = (i % 96) / 4.0;
+                double sun = Math.max(0, Math.sin((hour - 6) / 12 * Math.PI));
+                for (int unitId = 0; unitId < units; unitId++) {
+                    // Meters report to 0.01 kW
+                    double kw = Math.round(8 * sun * (0.9 + 0.1 * random.nextDouble()) * 100) / 100.0;
+                    store.append(unitId, start + i * step, kw);
+                    points++;
+                }
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("Wrote %d points in %.2f s (%.0f points/s), %.2f bytes/point raw%n",
+                    points, seconds, points / seconds, (double) store.getStoredBytes(RAW) / points);
+        }
+
+        try (GenerationHistoryStore store = open(dir, 8 * 60)) {
+            long end = start + intervals * step;
+            for (int pass = 0; pass < 3; pass++) {
+                long t0 = System.nanoTime();
+                double[] daily = store.siteChart(fleet, site, levelFor(start, end, 1000), start, end);
+                long t1 = System.nanoTime();
+                double[] hourly = store.siteChart(fleet, site, HOURLY, start, end);
+                long t2 = System.nanoTime();
+                if (pass == 2) {
+                    System.out.printf("Site year chart: %d daily points in %.1f ms, %d hourly points in %.1f ms%n",
+                            daily.length, (t1 - t0) / 1e6, hourly.length, (t2 - t1) / 1e6);
+                    System.out.printf("Site mean output, first day: %.1f kW, noon hour: %.1f kW%n",
+                            daily[0], hourly[12]);
+                }
+            }
+            int[] count = new int[1];
+            long t0 = System.nanoTime();
+            store.query(RAW, 0, start, end, (timestamp, kw) -> count[0]++);
+            System.out.printf("Unit 0 raw history: %d points decoded in %.1f ms%n", count[0], (System.nanoTime() - t0) / 1e6);
+        }
+
+        try (DirectoryStream<Path> levels = Files.newDirectoryStream(dir)) {
+            for (Path level : levels) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(level)) {
+                    for (Path file : files) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(level);
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -9,4 +9,11 @@ public class HydroGenerator extends EnergySource {
     public double generateEnergy() {
         return capacityKwh * (waterFlowRateLps / 100);
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        double[] flow = weather.getRiverFlowLps();
+        for (int h = 0; h < flow.length; h++) {
+            out[offset + h] = capacityKwh * (flow[h] / 100);
+        }
+    }
 }
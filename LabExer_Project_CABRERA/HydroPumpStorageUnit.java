@@ -8,7 +8,23 @@ public class HydroPumpStorageUnit extends HydroGenerator {
         this.storageTankVolume = storageTankVolume;
     }
 
+    public double getPumpingCapacity() {
+        return pumpingCapacity;
+    }
+
+    public double getStorageTankVolume() {
+        return storageTankVolume;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() + pumpingCapacity * 0.5;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] += pumpingCapacity * 0.5;
+        }
+    }
 }
@@ -0,0 +1,312 @@
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 25-year yield and cashflow projection for quoted systems.
+ * A quote's first-year yield comes from the sources' generateSeries() over its weather
+ * (or generateEnergy() x 8760 without weather). Each later year applies the type's
+ * degradation rate and, for OffshoreWindTurbines, the downtime of the maintenance
+ * visits due every maintenanceInterval months. Years are produced one at a time and
+ * handed to a YearListener as they are computed, so results stream out while many
+ * quotes run concurrently on the simulator's worker pool.
+ */
+public class LifetimeSimulator {
+
+    public static final int DEFAULT_YEARS = 25;
+
+    private static final double SOLAR_FIRST_YEAR_LOSS = 0.02; // light-induced degradation
+
+    private final ExecutorService pool;
+    private final double[] annualDegradation = new double[EnergySourceType.values().length];
+    private double outageDaysPerVisit = 5;
+    private double costPerVisit = 15000;
+
+    public LifetimeSimulator(int workers) {
+        pool = Executors.newFixedThreadPool(workers);
+        for (EnergySourceType type : EnergySourceType.values()) {
+            switch (type.getFamily()) {
+                case SOLAR:
+                    annualDegradation[type.ordinal()] = 0.005;
+                    break;
+                case WIND:
+                    annualDegradation[type.ordinal()] = 0.016;
+                    break;
+                case HYDRO:
+                    annualDegradation[type.ordinal()] = 0.002;
+                    break;
+                default:
+                    annualDegradation[type.ordinal()] = 0.005;
+                    break;
+            }
+        }
+        // Floating panels age faster in the humid air over water
+        annualDegradation[EnergySourceType.FLOATING_SOLAR_FARM.ordinal()] = 0.006;
+    }
+
+    /**
+     * Fraction of output lost per year for one type.
+     */
+    public void setAnnualDegradation(EnergySourceType type, double rate) {
+        annualDegradation[type.ordinal()] = rate;
+    }
+
+    public void setOutageDaysPerVisit(double outageDaysPerVisit) {
+        this.outageDaysPerVisit = outageDaysPerVisit;
+    }
+
+    public void setCostPerVisit(double costPerVisit) {
+        this.costPerVisit = costPerVisit;
+    }
+
+    /**
+     * A quoted system and its financial assumptions (money in PHP).
+     */
+    public static class Quote {
+        public final String quoteId;
+        public final List<EnergySource> sources = new ArrayList<>();
+        public double installedCost;
+        public double tariffPerKwh = 10.0;
+        public double tariffEscalation = 0.03;
+        public double omCostRate = 0.01;   // share of installed cost per year
+        public double inflation = 0.04;
+        public double discountRate = 0.08;
+        public int years = DEFAULT_YEARS;
+        public WeatherSeries weather;
+
+        public Quote(String quoteId, double installedCost) {
+            this.quoteId = quoteId;
+            this.installedCost = installedCost;
+        }
+    }
+
+    /**
+     * One projected year of a quote.
+     */
+    public static class YearResult {
+        public int year;
+        public double energyKwh;
+        public double revenue;
+        public double operatingCost;
+        public double netCashflow;
+        public double cumulativeCashflow;
+        public double discountedCashflow;
+    }
+
+    /**
+     * Receives each year as soon as it is computed. Called from worker threads.
+     * Every call gets its own YearResult.
+     */
+    public interface YearListener {
+        void onYear(Quote quote, YearResult year);
+    }
+
+    /**
+     * Lifetime totals of a quote.
+     */
+    public static class Summary {
+        public final String quoteId;
+        public double lifetimeEnergyKwh;
+        public double npv;
+        public double paybackYears = Double.NaN;
+        public double lcoePerKwh;
+
+        Summary(String quoteId) {
+            this.quoteId = quoteId;
+        }
+    }
+
+    public Future<Summary> submit(Quote quote, YearListener listener) {
+        return pool.submit(() -> simulate(quote, listener));
+    }
+
+    /**
+     * Run all quotes on the pool and wait for their summaries (in quote order).
+     */
+    public List<Summary> runAll(List<Quote> quotes, YearListener listener) throws InterruptedException {
+        List<Future<Summary>> futures = new ArrayList<>();
+        for (Quote quote : quotes) {
+            futures.add(submit(quote, listener));
+        }
+        List<Summary> summaries = new ArrayList<>();
+        for (Future<Summary> future : futures) {
+            try {
+                summaries.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Lifetime simulation failed", e.getCause());
+            }
+        }
+        return summaries;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Project one quote year by year on the calling thread.
+     */
+    public Summary simulate(Quote quote, YearListener listener) {
+        int count = quote.sources.size();
+        double[] baseKwh = new double[count];
+        double[] degradation = new double[count];
+        boolean[] solar = new boolean[count];
+        double[] visitsPerYear = new double[count];
+        double[] series = quote.weather == null ? null : new double[quote.weather.getHours()];
+
+        for (int i = 0; i < count; i++) {
+            EnergySource source = quote.sources.get(i);
+            EnergySourceType type = EnergySourceType.of(source);
+            baseKwh[i] = firstYearKwh(source, quote.weather, series);
+            degradation[i] = annualDegradation[type.ordinal()];
+            solar[i] = type.getFamily() == EnergySourceType.Family.SOLAR;
+            if (source instanceof OffshoreWindTurbine) {
+                int interval = ((OffshoreWindTurbine) source).getMaintenanceInterval();
+                visitsPerYear[i] = interval > 0 ? 12.0 / interval : 0;
+            }
+        }
+
+        Summary summary = new Summary(quote.quoteId);
+        double cumulative = -quote.installedCost;
+        double npv = -quote.installedCost;
+        double discountedCost = quote.installedCost;
+        double discountedEnergy = 0;
+
+        for (int y = 1; y <= quote.years; y++) {
+            double energy = 0;
+            double visits = 0;
+            for (int i = 0; i < count; i++) {
+                double factor = Math.pow(1 - degradation[i], y - 1);
+                if (solar[i]) {
+                    factor *= 1 - SOLAR_FIRST_YEAR_LOSS;
+                }
+                double availability = Math.max(0, 1 - visitsPerYear[i] * outageDaysPerVisit / 365.0);
+                energy += baseKwh[i] * factor * availability;
+                visits += visitsPerYear[i];
+            }
+
+            double revenue = energy * quote.tariffPerKwh * Math.pow(1 + quote.tariffEscalation, y - 1);
+            double operatingCost = (quote.installedCost * quote.omCostRate + visits * costPerVisit)
+                    * Math.pow(1 + quote.inflation, y - 1);
+            double net = revenue - operatingCost;
+            double discount = Math.pow(1 + quote.discountRate, y);
+
+            double previous = cumulative;
+            cumulative += net;
+            if (Double.isNaN(summary.paybackYears) && previous < 0 && cumulative >= 0) {
+                summary.paybackYears = (y - 1) + (-previous / net);
+            }
+            npv += net / discount;
+            discountedCost += operatingCost / discount;
+            discountedEnergy += energy / discount;
+            summary.lifetimeEnergyKwh += energy;
+
+            // A new object per year, so listeners may keep it
+            YearResult year = new YearResult();
+            year.year = y;
+            year.energyKwh = energy;
+            year.revenue = revenue;
+            year.operatingCost = operatingCost;
+            year.netCashflow = net;
+            year.cumulativeCashflow = cumulative;
+            year.discountedCashflow = net / discount;
+            if (listener != null) {
+                listener.onYear(quote, year);
+            }
+        }
+
+        summary.npv = npv;
+        summary.lcoePerKwh = discountedEnergy == 0 ? Double.NaN : discountedCost / discountedEnergy;
+        return summary;
+    }
+
+    private static double firstYearKwh(EnergySource source, WeatherSeries weather, double[] series) {
+        if (weather == null) {
+            return source.generateEnergy() * WeatherSeries.HOURS_PER_YEAR;
+        }
+        source.generateSeries(weather, series, 0);
+        double total = 0;
+        for (double kwh : series) {
+            total += kwh;
+        }
+        // Scale a partial or multi-year series to one year
+        return total * WeatherSeries.HOURS_PER_YEAR / series.length;
+    }
+
+    /**
+     * Writes every year as a CSV line. Safe to share between workers.
+     */
+    public static class CsvYearSink implements YearListener, Closeable {
+        private final PrintWriter out;
+
+        public CsvYearSink(String path) throws IOException {
+            out = new PrintWriter(new FileWriter(path));
+            out.println("quote_id,year,energy_kwh,revenue,operating_cost,net_cashflow,cumulative_cashflow,discounted_cashflow");
+        }
+
+        public synchronized void onYear(Quote quote, YearResult year) {
+            out.println(String.format(Locale.ROOT, "%s,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f", quote.quoteId, year.year,
+                    year.energyKwh, year.revenue, year.operatingCost, year.netCashflow,
+                    year.cumulativeCashflow, year.discountedCashflow));
+        }
+
+        public synchronized void close() {
+            out.close();
+        }
+    }
+
+    /**
+     * Example: java LifetimeSimulator [quotes] [output.csv]
+     */
+    public static void main(String[] args) throws Exception {
+        int quoteCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String output = args.length > 1 ? args[1] : "lifetime_projections.csv";
+
+        WeatherSeries weather = WeatherSeries.synthetic(WeatherSeries.HOURS_PER_YEAR, 1000, 20, 30, 3);
+        Random random = new Random(5);
+        List<Quote> quotes = new ArrayList<>();
+        for (int q = 0; q < quoteCount; q++) {
+            double solarKw = 5 + random.nextInt(20);
+            Quote quote = new Quote("Q-" + (q + 1), solarKw * 60000);
+            quote.weather = weather;
+            // Hourly output at standard conditions; a year of real irradiance gives a realistic yield
+            quote.sources.add(new RooftopSolarPanel("Roof", solarKw, "Site", 0.2, 15, random.nextDouble() * 0.1));
+            if (random.nextBoolean()) {
+                quote.sources.add(new SmallCommunityWindMill("Mill", 3, "Site", 15, true, true));
+                quote.installedCost += 250000;
+            }
+            quotes.add(quote);
+        }
+
+        LifetimeSimulator simulator = new LifetimeSimulator(Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        List<Summary> summaries;
+        try (CsvYearSink sink = new CsvYearSink(output)) {
+            summaries = simulator.runAll(quotes, sink);
+        } finally {
+            simulator.shutdown();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        double[] paybacks = new double[summaries.size()];
+        for (int i = 0; i < paybacks.length; i++) {
+            paybacks[i] = summaries.get(i).paybackYears;
+        }
+        Arrays.sort(paybacks);
+        Summary first = summaries.get(0);
+        System.out.println(quoteCount + " quotes x " + DEFAULT_YEARS + " years in " + elapsedMs + " ms, written to " + output);
+        System.out.printf("Median payback: %.1f years%n", paybacks[paybacks.length / 2]);
+        System.out.printf("%s: %.0f kWh lifetime, NPV %.0f, payback %.1f years, LCOE %.2f per kWh%n",
+                first.quoteId, first.lifetimeEnergyKwh, first.npv, first.paybackYears, first.lcoePerKwh);
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the free-text EnergySource.location strings to WeatherStore location IDs.
+ * Matching is case- and punctuation-insensitive: an exact name or alias wins, otherwise
+ * the longest data set name contained in the text (so "Brgy. 5, Davao City" finds
+ * "Davao City"). Results are cached, so resolving a large fleet is one lookup per string.
+ */
+public class LocationResolver {
+
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private final String[] names;
+    private final Map<String, Integer> cache = new ConcurrentHashMap<>();
+
+    public LocationResolver(WeatherStore store) {
+        names = new String[store.getLocationCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = normalize(store.getLocationName(i));
+            idsByName.put(names[i], i);
+        }
+    }
+
+    /**
+     * Treat alias (e.g. "Offshore Site A") as another name of a data set location.
+     */
+    public synchronized void addAlias(String alias, int locationId) {
+        idsByName.put(normalize(alias), locationId);
+        cache.clear();
+    }
+
+    /**
+     * Data set location ID of a location string, or UNKNOWN.
+     */
+    public int resolve(String location) {
+        if (location == null) {
+            return UNKNOWN;
+        }
+        Integer cached = cache.get(location);
+        if (cached != null) {
+            return cached;
+        }
+        int id = match(normalize(location));
+        cache.put(location, id);
+        return id;
+    }
+
+    /**
+     * Data set ID for every location of a fleet, indexed by the fleet's location ID.
+     */
+    public int[] resolve(FleetEngine fleet) {
+        int[] ids = new int[fleet.getLocationCount()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = resolve(fleet.locationName(i));
+        }
+        return ids;
+    }
+
+    private synchronized int match(String text) {
+        Integer exact = idsByName.get(text);
+        if (exact != null) {
+            return exact;
+        }
+        int best = UNKNOWN;
+        int bestLength = 0;
+        String padded = " " + text + " ";
+        for (Map.Entry<String, Integer> entry : idsByName.entrySet()) {
+            String name = entry.getKey();
+            if (name.length() > bestLength && padded.contains(" " + name + " ")) {
+                best = entry.getValue();
+                bestLength = name.length();
+            }
+        }
+        return best;
+    }
+
+    private static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length());
+        boolean space = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+}
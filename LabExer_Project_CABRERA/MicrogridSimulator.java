@@ -0,0 +1,325 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Hour-by-hour balance of a community microgrid and a search for its cheapest sizing.
+ *
+ * Each generation option is one EnergySource (e.g. a SmallCommunityWindMill, PicoHydroGenerator
+ * or RooftopSolarPanel) whose generateSeries() output is computed once; a mix of n units of it
+ * supplies n times that series. Every hour supply meets the household load first, surplus
+ * charges the battery bank (limited by its power rating and free capacity) and what is left is
+ * curtailed; a deficit is drawn from the battery and anything it cannot cover is unmet demand.
+ *
+ * size() tries every combination of unit counts in parallel. For each combination the battery
+ * bank is found by binary search, since adding storage never increases unmet demand, and a run
+ * stops as soon as its unmet energy passes what the reliability target allows. Combinations
+ * that already cost more than the cheapest solution found so far are skipped, and the battery
+ * search never goes above what the remaining budget can buy. The cheapest mix by annualised
+ * cost (capital recovery plus O&M) that meets the target is recommended.
+ */
+public class MicrogridSimulator {
+
+    /**
+     * A generation option: per-unit hourly output and costs (money in PHP).
+     */
+    public static class Option {
+        public final String name;
+        public final double[] unitSeriesKwh;
+        public final double installedCostPerUnit;
+        public final int maxUnits;
+
+        Option(String name, double[] unitSeriesKwh, double installedCostPerUnit, int maxUnits) {
+            this.name = name;
+            this.unitSeriesKwh = unitSeriesKwh;
+            this.installedCostPerUnit = installedCostPerUnit;
+            this.maxUnits = maxUnits;
+        }
+    }
+
+    /**
+     * Outcome of one configuration over the simulated hours.
+     */
+    public static class Result {
+        public final int[] units;
+        public final int batteryModules;
+        public double annualCost;
+        public double loadKwh;
+        public double suppliedKwh;
+        public double unmetKwh;
+        public double curtailedKwh;
+        public int hoursWithUnmetLoad;
+
+        Result(int[] units, int batteryModules) {
+            this.units = units;
+            this.batteryModules = batteryModules;
+        }
+
+        /**
+         * Share of the load energy that was served.
+         */
+        public double getReliability() {
+            return loadKwh == 0 ? 1 : 1 - unmetKwh / loadKwh;
+        }
+    }
+
+    private final double[] loadKwh;
+    private final double totalLoadKwh;
+    private final List<Option> options = new ArrayList<>();
+
+    private double batteryModuleKwh = 10;
+    private double batteryModuleCost = 120000;
+    private int maxBatteryModules = 60;
+    private double batteryPowerRatio = 0.5;   // kW per kWh of capacity
+    private double roundTripEfficiency = 0.90;
+    private double initialCharge = 0.5;
+    private double discountRate = 0.08;
+    private int lifetimeYears = 20;
+    private double omCostRate = 0.02;          // share of installed cost per year
+
+    private final LongAdder simulationRuns = new LongAdder();
+
+    public MicrogridSimulator(double[] loadKwh) {
+        this.loadKwh = loadKwh;
+        double total = 0;
+        for (double kwh : loadKwh) {
+            total += kwh;
+        }
+        this.totalLoadKwh = total;
+    }
+
+    /**
+     * Add a generation option sized in whole units of source, from 0 to maxUnits.
+     */
+    public void addOption(EnergySource source, WeatherSeries weather, double installedCostPerUnit, int maxUnits) {
+        if (weather.getHours() != loadKwh.length) {
+            throw new IllegalArgumentException("Weather and load must cover the same hours");
+        }
+        options.add(new Option(source.name, source.generateSeries(weather), installedCostPerUnit, maxUnits));
+    }
+
+    public List<Option> getOptions() {
+        return options;
+    }
+
+    public void setBattery(double moduleKwh, double moduleCost, int maxModules) {
+        this.batteryModuleKwh = moduleKwh;
+        this.batteryModuleCost = moduleCost;
+        this.maxBatteryModules = maxModules;
+    }
+
+    public void setBatteryPowerRatio(double batteryPowerRatio) {
+        this.batteryPowerRatio = batteryPowerRatio;
+    }
+
+    public void setRoundTripEfficiency(double roundTripEfficiency) {
+        this.roundTripEfficiency = roundTripEfficiency;
+    }
+
+    public void setFinance(double discountRate, int lifetimeYears, double omCostRate) {
+        this.discountRate = discountRate;
+        this.lifetimeYears = lifetimeYears;
+        this.omCostRate = omCostRate;
+    }
+
+    /**
+     * Simulation runs (complete or stopped early) made by size() and simulate() so far.
+     */
+    public long getSimulationRuns() {
+        return simulationRuns.sum();
+    }
+
+    /**
+     * Annualised cost of a configuration: installed cost times the capital recovery factor plus O&M.
+     */
+    public double annualCost(int[] units, int batteryModules) {
+        double installed = batteryModules * batteryModuleCost;
+        for (int i = 0; i < units.length; i++) {
+            installed += units[i] * options.get(i).installedCostPerUnit;
+        }
+        double growth = Math.pow(1 + discountRate, lifetimeYears);
+        double recovery = discountRate == 0 ? 1.0 / lifetimeYears : discountRate * growth / (growth - 1);
+        return installed * (recovery + omCostRate);
+    }
+
+    /**
+     * Full simulation of one configuration (units[i] units of option i).
+     */
+    public Result simulate(int[] units, int batteryModules) {
+        Result result = new Result(units.clone(), batteryModules);
+        run(units, batteryModules, Double.POSITIVE_INFINITY, result);
+        result.annualCost = annualCost(units, batteryModules);
+        simulationRuns.increment();
+        return result;
+    }
+
+    /**
+     * Step through the hours; stops early and returns false once unmet demand passes maxUnmetKwh.
+     */
+    private boolean run(int[] units, int batteryModules, double maxUnmetKwh, Result result) {
+        double capacity = batteryModules * batteryModuleKwh;
+        double power = capacity * batteryPowerRatio;
+        double oneWay = Math.sqrt(roundTripEfficiency);
+        double charge = capacity * initialCharge;
+        double supplied = 0;
+        double unmet = 0;
+        double curtailed = 0;
+        int unmetHours = 0;
+
+        int sources = options.size();
+        double[][] series = new double[sources][];
+        for (int i = 0; i < sources; i++) {
+            series[i] = options.get(i).unitSeriesKwh;
+        }
+        int hours = loadKwh.length;
+        for (int h = 0; h < hours; h++) {
+            double supply = 0;
+            for (int i = 0; i < sources; i++) {
+                supply += units[i] * series[i][h];
+            }
+            supplied += supply;
+            double net = supply - loadKwh[h];
+            if (net >= 0) {
+                double stored = Math.min(net, Math.min(power, (capacity - charge) / oneWay));
+                charge += stored * oneWay;
+                curtailed += net - stored;
+            } else {
+                double drawn = Math.min(-net, Math.min(power, charge * oneWay));
+                charge -= drawn / oneWay;
+                double shortfall = -net - drawn;
+                if (shortfall > 1e-9) {
+                    unmet += shortfall;
+                    unmetHours++;
+                    if (unmet > maxUnmetKwh) {
+                        return false;
+                    }
+                }
+            }
+        }
+        result.loadKwh = totalLoadKwh;
+        result.suppliedKwh = supplied;
+        result.unmetKwh = unmet;
+        result.curtailedKwh = curtailed;
+        result.hoursWithUnmetLoad = unmetHours;
+        return true;
+    }
+
+    /**
+     * Cheapest configuration whose served share of load is at least reliabilityTarget,
+     * or null if none within the limits reaches it.
+     */
+    public Result size(double reliabilityTarget) {
+        int sources = options.size();
+        int combinations = 1;
+        for (Option option : options) {
+            combinations = Math.multiplyExact(combinations, option.maxUnits + 1);
+        }
+        double maxUnmet = (1 - reliabilityTarget) * totalLoadKwh;
+        double moduleCost = annualCost(new int[sources], 1);
+        DoubleAccumulator bestCost = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+
+        return IntStream.range(0, combinations).parallel().mapToObj(index -> {
+            int[] units = new int[sources];
+            int rest = index;
+            for (int i = 0; i < sources; i++) {
+                units[i] = rest % (options.get(i).maxUnits + 1);
+                rest /= options.get(i).maxUnits + 1;
+            }
+            double generationCost = annualCost(units, 0);
+            double budget = bestCost.get() - generationCost;
+            if (budget < 0) {
+                return null;
+            }
+            // Smallest affordable battery bank that meets the target
+            int low = 0;
+            int high = moduleCost > 0 ? (int) Math.min(maxBatteryModules, Math.floor(budget / moduleCost)) : maxBatteryModules;
+            Result found = new Result(units, high);
+            simulationRuns.increment();
+            if (!run(units, high, maxUnmet, found)) {
+                return null;
+            }
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Result probe = new Result(units, mid);
+                simulationRuns.increment();
+                if (run(units, mid, maxUnmet, probe)) {
+                    found = probe;
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            found.annualCost = annualCost(units, found.batteryModules);
+            bestCost.accumulate(found.annualCost);
+            return found;
+        }).filter(r -> r != null).reduce((a, b) -> a.annualCost <= b.annualCost ? a : b).orElse(null);
+    }
+
+    /**
+     * Hourly load of a number of households: a small base load with morning and evening peaks,
+     * scaled so a household uses about dailyKwh per day, varying from day to day.
+     */
+    public static double[] householdLoad(int households, int hours, double dailyKwh, long seed) {
+        double[] shape = new double[24];
+        double shapeTotal = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            double morning = Math.exp(-Math.pow(hour - 6.5, 2) / 2);
+            double evening = 1.6 * Math.exp(-Math.pow(hour - 19.5, 2) / 4);
+            shape[hour] = 0.35 + morning + evening;
+            shapeTotal += shape[hour];
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] load = new double[hours];
+        double dayFactor = 1;
+        for (int h = 0; h < hours; h++) {
+            if (h % 24 == 0) {
+                dayFactor = 0.85 + 0.3 * random.nextDouble();
+            }
+            load[h] = households * dailyKwh * dayFactor * shape[h % 24] / shapeTotal;
+        }
+        return load;
+    }
+
+    /**
+     * Example: a 60-household barangay choosing rooftop solar, community wind mills,
+     * pico hydro and batteries for 99% of its yearly demand.
+     */
+    public static void main(String[] args) {
+        double target = args.length > 0 ? Double.parseDouble(args[0]) : 0.99;
+        int hours = WeatherSeries.HOURS_PER_YEAR;
+        WeatherSeries weather = WeatherSeries.synthetic(hours, 900, 14, 60, 21);
+        double[] load = householdLoad(60, hours, 4.0, 3);
+
+        MicrogridSimulator grid = new MicrogridSimulator(load);
+        grid.addOption(new RooftopSolarPanel("Rooftop PV 3 kW", 3, "Barangay", 0.9, 15, 0.1), weather, 150000, 40);
+        grid.addOption(new SmallCommunityWindMill("Wind Mill 5 kW", 5, "Barangay", 14, true, true), weather, 280000, 12);
+        grid.addOption(new PicoHydroGenerator("Pico Hydro 2 kW", 2, "Barangay", 60, 1.5, 1.5), weather, 200000, 6);
+        grid.setBattery(10, 120000, 60);
+
+        int combinations = 1;
+        for (Option option : grid.getOptions()) {
+            combinations *= option.maxUnits + 1;
+        }
+        long start = System.nanoTime();
+        Result best = grid.size(target);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d configurations searched in %.2f s (%d simulation runs)%n",
+                combinations, seconds, grid.getSimulationRuns());
+        if (best == null) {
+            System.out.println("No configuration reaches " + target * 100 + "% reliability");
+            return;
+        }
+        Result detail = grid.simulate(best.units, best.batteryModules);
+        System.out.printf("Cheapest mix for %.1f%% reliability (PHP %.0f per year):%n", target * 100, detail.annualCost);
+        for (int i = 0; i < best.units.length; i++) {
+            System.out.println("  " + best.units[i] + " x " + grid.getOptions().get(i).name);
+        }
+        System.out.println("  " + best.batteryModules + " x battery module 10 kWh");
+        System.out.printf("Load %.0f kWh, unmet %.0f kWh (%d hours), curtailed %.0f kWh, reliability %.2f%%%n",
+                detail.loadKwh, detail.unmetKwh, detail.hoursWithUnmetLoad, detail.curtailedKwh,
+                detail.getReliability() * 100);
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo uncertainty analysis of a FleetEngine's annual yield.
+ * In every trial each unit's uncertain parameters (efficiency, shading factor, average
+ * wind speed, water flow rate) are drawn from normal distributions around their
+ * nominal values and the fleet is evaluated with FleetEngine's per-type kernels.
+ * Trials are split over a fork/join pool; each task owns a SplittableRandom split off
+ * its parent, so results are the same for a given seed whatever the thread count.
+ *
+ * Percentiles follow the energy-yield convention of probability of exceedance:
+ * P90 is the yield reached or exceeded in 90% of trials.
+ */
+public class MonteCarloAnalysis {
+
+    public static final double[] LEVELS = {50, 90, 99};
+
+    private static final int TRIALS_PER_TASK = 8;
+
+    private final FleetEngine fleet;
+    // Standard deviation per FleetEngine parameter column, relative to the nominal value
+    // (absolute for SHADING_FACTOR); 0 keeps the column fixed
+    private final double[] sigma = new double[8];
+    private double hoursPerYear = WeatherSeries.HOURS_PER_YEAR;
+
+    public MonteCarloAnalysis(FleetEngine fleet) {
+        this.fleet = fleet;
+        sigma[FleetEngine.EFFICIENCY] = 0.05;
+        sigma[FleetEngine.SHADING_FACTOR] = 0.05;
+        sigma[FleetEngine.AVG_WIND_SPEED_KMH] = 0.15;
+        sigma[FleetEngine.WATER_FLOW_RATE_LPS] = 0.20;
+    }
+
+    /**
+     * Set the uncertainty of one parameter column (see the FleetEngine column constants).
+     */
+    public void setSigma(int column, double value) {
+        sigma[column] = value;
+    }
+
+    /**
+     * Hours the generateEnergy() output is counted per year (default 8760).
+     */
+    public void setHoursPerYear(double hoursPerYear) {
+        this.hoursPerYear = hoursPerYear;
+    }
+
+    /**
+     * Percentiles of annual yield (kWh) per type, per location and for the whole fleet.
+     * Each row holds one value per entry of LEVELS.
+     */
+    public static class Result {
+        public final int trials;
+        public final double[][] byType;
+        public final double[][] byLocation;
+        public final double[] fleet;
+
+        Result(int trials, double[][] byType, double[][] byLocation, double[] fleet) {
+            this.trials = trials;
+            this.byType = byType;
+            this.byLocation = byLocation;
+            this.fleet = fleet;
+        }
+    }
+
+    /**
+     * Run the trials on the common fork/join pool.
+     */
+    public Result run(int trials, long seed) {
+        return run(trials, seed, ForkJoinPool.commonPool());
+    }
+
+    public Result run(int trials, long seed, ForkJoinPool pool) {
+        int typeCount = EnergySourceType.values().length;
+        int locationCount = fleet.getLocationCount();
+        double[] typeYield = new double[trials * typeCount];
+        double[] locationYield = new double[trials * locationCount];
+
+        pool.invoke(new TrialTask(0, trials, new SplittableRandom(seed), typeYield, locationYield));
+
+        double[][] byType = new double[typeCount][];
+        for (int t = 0; t < typeCount; t++) {
+            byType[t] = percentiles(typeYield, t, typeCount, trials);
+        }
+        double[][] byLocation = new double[locationCount][];
+        for (int l = 0; l < locationCount; l++) {
+            byLocation[l] = percentiles(locationYield, l, locationCount, trials);
+        }
+        double[] fleetYield = new double[trials];
+        for (int i = 0; i < trials; i++) {
+            for (int t = 0; t < typeCount; t++) {
+                fleetYield[i] += typeYield[i * typeCount + t];
+            }
+        }
+        return new Result(trials, byType, byLocation, percentiles(fleetYield, 0, 1, trials));
+    }
+
+    /**
+     * Splits its trial range in halves until it is small enough to run.
+     */
+    private final class TrialTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+        private final double[] typeYield;
+        private final double[] locationYield;
+
+        TrialTask(int from, int to, SplittableRandom random, double[] typeYield, double[] locationYield) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.typeYield = typeYield;
+            this.locationYield = locationYield;
+        }
+
+        protected void compute() {
+            if (to - from <= TRIALS_PER_TASK) {
+                runTrials(from, to, random, typeYield, locationYield);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            TrialTask left = new TrialTask(from, mid, random.split(), typeYield, locationYield);
+            TrialTask right = new TrialTask(mid, to, random, typeYield, locationYield);
+            invokeAll(left, right);
+        }
+    }
+
+    private void runTrials(int from, int to, SplittableRandom random, double[] typeYield, double[] locationYield) {
+        EnergySourceType[] types = EnergySourceType.values();
+        int locationCount = fleet.getLocationCount();
+        int maxRows = 0;
+        for (EnergySourceType type : types) {
+            maxRows = Math.max(maxRows, fleet.count(type));
+        }
+        double[] p1 = new double[maxRows];
+        double[] p2 = new double[maxRows];
+        double[] out = new double[maxRows];
+        double[] gaussian = new double[2];
+
+        for (int trial = from; trial < to; trial++) {
+            for (EnergySourceType type : types) {
+                FleetEngine.Block block = fleet.block(type);
+                int n = block.size;
+                if (n == 0) {
+                    continue;
+                }
+                sample(type.getParam1(), block.param1, p1, n, random, gaussian);
+                sample(type.getParam2(), block.param2, p2, n, random, gaussian);
+                FleetEngine.evaluate(type, block.capacityKwh, p1, p2, n, out);
+
+                double total = 0;
+                int[] locations = block.locationIds;
+                int rowBase = trial * locationCount;
+                for (int i = 0; i < n; i++) {
+                    double yield = out[i] * hoursPerYear;
+                    total += yield;
+                    locationYield[rowBase + locations[i]] += yield;
+                }
+                typeYield[trial * types.length + type.ordinal()] = total;
+            }
+        }
+    }
+
+    private void sample(int column, double[] nominal, double[] out, int n, SplittableRandom random, double[] gaussian) {
+        if (column < 0 || sigma[column] == 0) {
+            System.arraycopy(nominal, 0, out, 0, n);
+            return;
+        }
+        double s = sigma[column];
+        for (int i = 0; i < n; i += 2) {
+            nextGaussianPair(random, gaussian);
+            for (int k = 0; k < 2 && i + k < n; k++) {
+                double value;
+                switch (column) {
+                    case FleetEngine.EFFICIENCY:
+                        value = clamp(nominal[i + k] * (1 + s * gaussian[k]), 0, 1);
+                        break;
+                    case FleetEngine.SHADING_FACTOR:
+                        value = clamp(nominal[i + k] + s * gaussian[k], 0, 1);
+                        break;
+                    default:
+                        value = Math.max(0, nominal[i + k] * (1 + s * gaussian[k]));
+                        break;
+                }
+                out[i + k] = value;
+            }
+        }
+    }
+
+    /**
+     * Two independent standard normal values (Marsaglia polar method).
+     */
+    private static void nextGaussianPair(SplittableRandom random, double[] out) {
+        double u;
+        double v;
+        double s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        double factor = Math.sqrt(-2 * Math.log(s) / s);
+        out[0] = u * factor;
+        out[1] = v * factor;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    private static double[] percentiles(double[] values, int column, int stride, int trials) {
+        double[] sorted = new double[trials];
+        for (int i = 0; i < trials; i++) {
+            sorted[i] = values[i * stride + column];
+        }
+        Arrays.sort(sorted);
+        double[] result = new double[LEVELS.length];
+        for (int i = 0; i < LEVELS.length; i++) {
+            // Exceeded with probability LEVELS[i]%, i.e. the (100 - LEVELS[i])th percentile
+            int index = (int) Math.floor((100 - LEVELS[i]) / 100.0 * (trials - 1));
+            result[i] = sorted[index];
+        }
+        return result;
+    }
+
+    /**
+     * Default run on a random fleet: java MonteCarloAnalysis [units] [trials]
+     */
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        String[] sites = {"Davao City", "Cebu City", "Iloilo City", "Bukidnon", "Ilocos Norte", "Batangas"};
+        FleetEngine fleet = new FleetEngine();
+        SplittableRandom random = new SplittableRandom(1);
+        EnergySourceType[] types = EnergySourceType.values();
+        for (int i = 0; i < units; i++) {
+            EnergySourceType type = types[random.nextInt(types.length)];
+            double p1 = 0;
+            double p2 = 0;
+            switch (type.getFamily()) {
+                case SOLAR:
+                    p1 = 0.7 + random.nextDouble() * 0.2;
+                    p2 = type == EnergySourceType.SOLAR_CANOPY ? 100 + random.nextDouble() * 200 : random.nextDouble() * 0.3;
+                    break;
+                case WIND:
+                    p1 = 10 + random.nextDouble() * 50;
+                    break;
+                case HYDRO:
+                    p1 = 10 + random.nextDouble() * 40;
+                    p2 = type == EnergySourceType.HYDRO_PUMP_STORAGE_UNIT ? 100 + random.nextDouble() * 300 : 1 + random.nextDouble() * 4;
+                    break;
+                default:
+                    break;
+            }
+            fleet.add(type, fleet.locationId(sites[random.nextInt(sites.length)]), 50 + random.nextDouble() * 950, p1, p2);
+        }
+
+        long start = System.nanoTime();
+        Result result = new MonteCarloAnalysis(fleet).run(trials, 42);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        System.out.println(units + " units, " + trials + " trials in " + elapsedMs + " ms");
+        System.out.println(String.format(Locale.ROOT, "%-34s %14s %14s %14s", "Annual yield (MWh)", "P50", "P90", "P99"));
+        for (EnergySourceType type : types) {
+            print(type.name(), result.byType[type.ordinal()]);
+        }
+        for (int l = 0; l < fleet.getLocationCount(); l++) {
+            print(fleet.locationName(l), result.byLocation[l]);
+        }
+        print("FLEET", result.fleet);
+    }
+
+    private static void print(String label, double[] values) {
+        System.out.println(String.format(Locale.ROOT, "%-34s %14.1f %14.1f %14.1f",
+                label, values[0] / 1000, values[1] / 1000, values[2] / 1000));
+    }
+}
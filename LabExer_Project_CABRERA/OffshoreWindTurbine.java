@@ -8,7 +8,23 @@ public class OffshoreWindTurbine extends WindTurbine {
         this.maintenanceInterval = maintenanceInterval;
     }
 
+    public String getFoundationType() {
+        return foundationType;
+    }
+
+    public int getMaintenanceInterval() {
+        return maintenanceInterval;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() * 1.2;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] *= 1.2;
+        }
+    }
 }
@@ -0,0 +1,363 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Parameter sweeps over any EnergySource subtype.
+ * A factory turns a point (one value per parameter) into a source, and the objective
+ * (generateEnergy() by default) is evaluated for every point of a Cartesian grid or a
+ * Latin hypercube sample. Points are decoded from their index on demand, chunks of
+ * points run in parallel, and each chunk is written to the sink as it finishes.
+ *
+ * Sensitivity is accumulated on the fly: for every parameter the output mean is kept
+ * per bin of that parameter's range, and the spread between the lowest and highest
+ * bin mean (the main effect) ranks the parameters as in a tornado chart. Memory is
+ * O(parameters x bins) however many points are evaluated.
+ */
+public class ParameterSweep {
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int SENSITIVITY_BINS = 10;
+
+    private final Function<double[], ? extends EnergySource> factory;
+    private final ToDoubleFunction<EnergySource> objective;
+    private final List<String> names = new ArrayList<>();
+    private final List<double[]> ranges = new ArrayList<>(); // min, max, steps
+
+    public ParameterSweep(Function<double[], ? extends EnergySource> factory) {
+        this(factory, EnergySource::generateEnergy);
+    }
+
+    public ParameterSweep(Function<double[], ? extends EnergySource> factory, ToDoubleFunction<EnergySource> objective) {
+        this.factory = factory;
+        this.objective = objective;
+    }
+
+    /**
+     * Add a parameter; the factory receives it at the position it was added.
+     * steps is the number of grid values (used by the Cartesian grid only).
+     */
+    public ParameterSweep addParameter(String name, double min, double max, int steps) {
+        if (steps < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid range for " + name);
+        }
+        names.add(name);
+        ranges.add(new double[]{min, max, steps});
+        return this;
+    }
+
+    /**
+     * Receives evaluated points chunk by chunk, possibly from several threads at once.
+     * points holds count rows of dimensions values each.
+     */
+    public interface Sink {
+        void write(long[] indices, double[] points, double[] results, int count, int dimensions);
+    }
+
+    /**
+     * Main-effect sensitivity of one parameter.
+     */
+    public static class Sensitivity {
+        public final String parameter;
+        public final double lowMean;
+        public final double highMean;
+        public final double swing;
+
+        Sensitivity(String parameter, double lowMean, double highMean, double swing) {
+            this.parameter = parameter;
+            this.lowMean = lowMean;
+            this.highMean = highMean;
+            this.swing = swing;
+        }
+    }
+
+    /**
+     * Sweep statistics, with parameters ranked by swing (largest first).
+     */
+    public static class Result {
+        public final long points;
+        public final double min;
+        public final double max;
+        public final double mean;
+        public final List<Sensitivity> ranking;
+
+        Result(long points, double min, double max, double mean, List<Sensitivity> ranking) {
+            this.points = points;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.ranking = ranking;
+        }
+    }
+
+    /**
+     * Number of points of the full Cartesian grid.
+     */
+    public long gridSize() {
+        long size = 1;
+        for (double[] range : ranges) {
+            size = Math.multiplyExact(size, (long) range[2]);
+        }
+        return size;
+    }
+
+    public Result runGrid(Sink sink) {
+        int dimensions = names.size();
+        long[] strides = new long[dimensions];
+        long stride = 1;
+        for (int d = dimensions - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= (long) ranges.get(d)[2];
+        }
+        return run(gridSize(), sink, (index, point) -> {
+            for (int d = 0; d < dimensions; d++) {
+                double[] range = ranges.get(d);
+                int steps = (int) range[2];
+                int step = (int) ((index / strides[d]) % steps);
+                point[d] = steps == 1 ? range[0] : range[0] + (range[1] - range[0]) * step / (steps - 1);
+            }
+        });
+    }
+
+    /**
+     * Latin hypercube of samples points: every parameter range is cut into samples
+     * strata and each stratum is used exactly once, in a random order per parameter.
+     */
+    public Result runLatinHypercube(int samples, long seed, Sink sink) {
+        int dimensions = names.size();
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] strata = new int[dimensions][samples];
+        long[] jitterSeeds = new long[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            int[] order = strata[d];
+            for (int i = 0; i < samples; i++) {
+                order[i] = i;
+            }
+            for (int i = samples - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            jitterSeeds[d] = random.nextLong();
+        }
+        return run(samples, sink, (index, point) -> {
+            for (int d = 0; d < dimensions; d++) {
+                double[] range = ranges.get(d);
+                // Position inside the stratum, derived from the index so any thread gets the same value
+                double jitter = new SplittableRandom(jitterSeeds[d] ^ (index * 0x9E3779B97F4A7C15L)).nextDouble();
+                point[d] = range[0] + (range[1] - range[0]) * (strata[d][(int) index] + jitter) / samples;
+            }
+        });
+    }
+
+    private interface PointDecoder {
+        void decode(long index, double[] point);
+    }
+
+    /**
+     * Per-chunk running sums, merged into the sweep totals when the chunk ends.
+     */
+    private final class Accumulator {
+        final double[] binSum;
+        final long[] binCount;
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        Accumulator(int dimensions) {
+            binSum = new double[dimensions * SENSITIVITY_BINS];
+            binCount = new long[dimensions * SENSITIVITY_BINS];
+        }
+
+        void add(double[] point, int offset, double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            for (int d = 0; d < binSum.length / SENSITIVITY_BINS; d++) {
+                double[] range = ranges.get(d);
+                double width = range[1] - range[0];
+                int bin = width == 0 ? 0 : (int) ((point[offset + d] - range[0]) / width * SENSITIVITY_BINS);
+                bin = Math.max(0, Math.min(SENSITIVITY_BINS - 1, bin));
+                binSum[d * SENSITIVITY_BINS + bin] += value;
+                binCount[d * SENSITIVITY_BINS + bin]++;
+            }
+        }
+
+        synchronized void merge(Accumulator other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            for (int i = 0; i < binSum.length; i++) {
+                binSum[i] += other.binSum[i];
+                binCount[i] += other.binCount[i];
+            }
+        }
+    }
+
+    private Result run(long total, Sink sink, PointDecoder decoder) {
+        int dimensions = names.size();
+        Accumulator totals = new Accumulator(dimensions);
+        long chunks = (total + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        LongStream.range(0, chunks).parallel().forEach(chunk -> {
+            long from = chunk * CHUNK_SIZE;
+            int count = (int) Math.min(CHUNK_SIZE, total - from);
+            long[] indices = new long[count];
+            double[] points = new double[count * dimensions];
+            double[] results = new double[count];
+            double[] point = new double[dimensions];
+            Accumulator local = new Accumulator(dimensions);
+
+            for (int i = 0; i < count; i++) {
+                long index = from + i;
+                decoder.decode(index, point);
+                indices[i] = index;
+                System.arraycopy(point, 0, points, i * dimensions, dimensions);
+                results[i] = objective.applyAsDouble(factory.apply(point.clone()));
+                local.add(points, i * dimensions, results[i]);
+            }
+            if (sink != null) {
+                sink.write(indices, points, results, count, dimensions);
+            }
+            totals.merge(local);
+        });
+
+        List<Sensitivity> ranking = new ArrayList<>();
+        for (int d = 0; d < dimensions; d++) {
+            double lowest = Double.POSITIVE_INFINITY;
+            double highest = Double.NEGATIVE_INFINITY;
+            double first = Double.NaN;
+            double last = Double.NaN;
+            for (int b = 0; b < SENSITIVITY_BINS; b++) {
+                long n = totals.binCount[d * SENSITIVITY_BINS + b];
+                if (n == 0) {
+                    continue;
+                }
+                double mean = totals.binSum[d * SENSITIVITY_BINS + b] / n;
+                if (Double.isNaN(first)) {
+                    first = mean;
+                }
+                last = mean;
+                lowest = Math.min(lowest, mean);
+                highest = Math.max(highest, mean);
+            }
+            ranking.add(new Sensitivity(names.get(d), first, last, Double.isNaN(first) ? 0 : highest - lowest));
+        }
+        ranking.sort(Comparator.comparingDouble((Sensitivity s) -> s.swing).reversed());
+
+        double mean = totals.count == 0 ? Double.NaN : totals.sum / totals.count;
+        return new Result(totals.count, totals.min, totals.max, mean, ranking);
+    }
+
+    /**
+     * Streams points as CSV: index, one column per parameter, result.
+     */
+    public static class CsvSink implements Sink, Closeable {
+        private final PrintWriter out;
+
+        public CsvSink(String path, List<String> parameterNames) throws IOException {
+            out = new PrintWriter(new FileWriter(path));
+            out.println("index," + String.join(",", parameterNames) + ",result");
+        }
+
+        public synchronized void write(long[] indices, double[] points, double[] results, int count, int dimensions) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                line.setLength(0);
+                line.append(indices[i]);
+                for (int d = 0; d < dimensions; d++) {
+                    line.append(',').append(points[i * dimensions + d]);
+                }
+                line.append(',').append(results[i]);
+                out.println(line);
+            }
+        }
+
+        public synchronized void close() {
+            out.close();
+        }
+    }
+
+    /**
+     * Streams points as binary records: header (dimension count), then per point
+     * the index (long), the parameter values and the result (doubles), big-endian.
+     */
+    public static class BinarySink implements Sink, Closeable {
+        private final DataOutputStream out;
+
+        public BinarySink(String path, int dimensions) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+            out.writeInt(dimensions);
+        }
+
+        public synchronized void write(long[] indices, double[] points, double[] results, int count, int dimensions) {
+            try {
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(indices[i]);
+                    for (int d = 0; d < dimensions; d++) {
+                        out.writeDouble(points[i * dimensions + d]);
+                    }
+                    out.writeDouble(results[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public List<String> getParameterNames() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Example: sweep a FloatingSolarFarm design and print the tornado ranking.
+     */
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "sweep_results.csv";
+        ParameterSweep sweep = new ParameterSweep(p -> new FloatingSolarFarm("Design", p[0], "Site", p[1], 1000, p[2]))
+                .addParameter("capacityKwh", 200, 1000, 20)
+                .addParameter("efficiency", 0.15, 0.25, 20)
+                .addParameter("coolingEffect", 0.0, 0.15, 20);
+
+        long start = System.nanoTime();
+        Result grid;
+        try (CsvSink sink = new CsvSink(output, sweep.getParameterNames())) {
+            grid = sweep.runGrid(sink);
+        }
+        Result lhs = sweep.runLatinHypercube(100000, 11, null);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        System.out.println(grid.points + " grid points (written to " + output + ") and "
+                + lhs.points + " Latin hypercube points in " + elapsedMs + " ms");
+        for (Result result : Arrays.asList(grid, lhs)) {
+            System.out.println(String.format(Locale.ROOT, "Output %.1f .. %.1f kWh (mean %.1f)",
+                    result.min, result.max, result.mean));
+            for (Sensitivity s : result.ranking) {
+                System.out.println(String.format(Locale.ROOT, "  %-14s swing %8.1f  (%.1f -> %.1f)",
+                        s.parameter, s.swing, s.lowMean, s.highMean));
+            }
+        }
+    }
+}
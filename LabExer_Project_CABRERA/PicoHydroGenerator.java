@@ -8,7 +8,23 @@ public class PicoHydroGenerator extends HydroGenerator {
         this.headHeight = headHeight;
     }
 
+    public double getStreamWidth() {
+        return streamWidth;
+    }
+
+    public double getHeadHeight() {
+        return headHeight;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() * headHeight;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] *= headHeight;
+        }
+    }
 }
@@ -0,0 +1,191 @@
+import java.util.stream.IntStream;
+
+/**
+ * Hourly dispatch of HydroPumpStorageUnits with a tracked reservoir level.
+ * Every hour the unit compares supply (e.g. solar and wind output from generateSeries)
+ * with demand: surplus runs the pumps, limited by pumpingCapacity (kW) and the free
+ * space in the storageTankVolume (m3); a deficit is covered by the turbine, limited by
+ * capacityKwh per hour and the water in the reservoir. waterFlowRateLps is natural
+ * inflow into the reservoir.
+ *
+ * Serving deficits as soon as they occur and pumping whenever there is surplus is
+ * optimal for minimising unmet demand when there is no price signal (water kept back
+ * can never serve more energy later), so the dispatch is a single greedy pass:
+ * O(hours) per unit, which lets a year of many units run in parallel.
+ */
+public class PumpedStorageDispatcher {
+
+    private static final double WATER_DENSITY = 1000.0; // kg/m3
+    private static final double GRAVITY = 9.81;          // m/s2
+    private static final double JOULES_PER_KWH = 3.6e6;
+
+    private double headMeters = 50.0;
+    private double pumpEfficiency = 0.87;
+    private double turbineEfficiency = 0.90;
+    private double initialFill = 0.5;
+
+    public void setHeadMeters(double headMeters) {
+        this.headMeters = headMeters;
+    }
+
+    public void setPumpEfficiency(double pumpEfficiency) {
+        this.pumpEfficiency = pumpEfficiency;
+    }
+
+    public void setTurbineEfficiency(double turbineEfficiency) {
+        this.turbineEfficiency = turbineEfficiency;
+    }
+
+    /**
+     * Reservoir level at the first hour, as a fraction of storageTankVolume.
+     */
+    public void setInitialFill(double initialFill) {
+        this.initialFill = initialFill;
+    }
+
+    /**
+     * Hourly trace of one unit. The arrays can be reused for another dispatch of the same length.
+     */
+    public static class Result {
+        public final double[] levelM3;
+        public final double[] pumpedKwh;
+        public final double[] generatedKwh;
+        public final double[] unmetKwh;
+        public final double[] curtailedKwh;
+        public double totalPumpedKwh;
+        public double totalGeneratedKwh;
+        public double totalUnmetKwh;
+        public double totalCurtailedKwh;
+
+        public Result(int hours) {
+            levelM3 = new double[hours];
+            pumpedKwh = new double[hours];
+            generatedKwh = new double[hours];
+            unmetKwh = new double[hours];
+            curtailedKwh = new double[hours];
+        }
+    }
+
+    /**
+     * Potential energy of one m3 of water at the configured head (kWh).
+     */
+    public double kwhPerCubicMeter() {
+        return WATER_DENSITY * GRAVITY * headMeters / JOULES_PER_KWH;
+    }
+
+    public Result dispatch(HydroPumpStorageUnit unit, double[] supplyKwh, double[] demandKwh) {
+        Result result = new Result(supplyKwh.length);
+        dispatch(unit, supplyKwh, demandKwh, result);
+        return result;
+    }
+
+    /**
+     * Dispatch into an existing result (levelM3[h] is the level at the end of hour h).
+     */
+    public void dispatch(HydroPumpStorageUnit unit, double[] supplyKwh, double[] demandKwh, Result result) {
+        int hours = supplyKwh.length;
+        if (demandKwh.length != hours || result.levelM3.length != hours) {
+            throw new IllegalArgumentException("Supply, demand and result must cover the same hours");
+        }
+
+        double volume = unit.getStorageTankVolume();
+        double pumpLimit = unit.getPumpingCapacity();
+        double turbineLimit = unit.capacityKwh;
+        double inflowPerHour = unit.waterFlowRateLps * 3.6; // L/s to m3/h
+        double kwhPerM3 = kwhPerCubicMeter();
+
+        double level = volume * initialFill;
+        double pumped = 0;
+        double generated = 0;
+        double unmet = 0;
+        double curtailed = 0;
+
+        for (int h = 0; h < hours; h++) {
+            level = Math.min(volume, level + inflowPerHour);
+            double net = supplyKwh[h] - demandKwh[h];
+            double pumpKwh = 0;
+            double turbineKwh = 0;
+
+            if (net > 0) {
+                double room = (volume - level) * kwhPerM3 / pumpEfficiency;
+                pumpKwh = Math.min(net, Math.min(pumpLimit, room));
+                level += pumpKwh * pumpEfficiency / kwhPerM3;
+                result.curtailedKwh[h] = net - pumpKwh;
+                result.unmetKwh[h] = 0;
+            } else if (net < 0) {
+                double stored = level * kwhPerM3 * turbineEfficiency;
+                turbineKwh = Math.min(-net, Math.min(turbineLimit, stored));
+                level -= turbineKwh / turbineEfficiency / kwhPerM3;
+                result.unmetKwh[h] = -net - turbineKwh;
+                result.curtailedKwh[h] = 0;
+            } else {
+                result.unmetKwh[h] = 0;
+                result.curtailedKwh[h] = 0;
+            }
+
+            result.pumpedKwh[h] = pumpKwh;
+            result.generatedKwh[h] = turbineKwh;
+            result.levelM3[h] = level;
+            pumped += pumpKwh;
+            generated += turbineKwh;
+            unmet += result.unmetKwh[h];
+            curtailed += result.curtailedKwh[h];
+        }
+
+        result.totalPumpedKwh = pumped;
+        result.totalGeneratedKwh = generated;
+        result.totalUnmetKwh = unmet;
+        result.totalCurtailedKwh = curtailed;
+    }
+
+    /**
+     * Dispatch many units in parallel, unit i against supplyKwh[i] and demandKwh[i].
+     */
+    public Result[] dispatchAll(HydroPumpStorageUnit[] units, double[][] supplyKwh, double[][] demandKwh) {
+        Result[] results = new Result[units.length];
+        IntStream.range(0, units.length).parallel()
+                .forEach(i -> results[i] = dispatch(units[i], supplyKwh[i], demandKwh[i]));
+        return results;
+    }
+
+    /**
+     * Example: one synthetic year of solar and wind against a flat demand with an evening peak.
+     */
+    public static void main(String[] args) {
+        int unitCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int hours = WeatherSeries.HOURS_PER_YEAR;
+
+        HydroPumpStorageUnit[] units = new HydroPumpStorageUnit[unitCount];
+        double[][] supply = new double[unitCount][];
+        double[][] demand = new double[unitCount][];
+        for (int i = 0; i < unitCount; i++) {
+            WeatherSeries weather = WeatherSeries.synthetic(hours, 1000, 25, 30, i);
+            double[] solar = new SolarPanel("Solar", 400, "Site", 0.8).generateSeries(weather);
+            double[] wind = new WindTurbine("Wind", 300, "Site", 25).generateSeries(weather);
+            supply[i] = new double[hours];
+            demand[i] = new double[hours];
+            for (int h = 0; h < hours; h++) {
+                int hourOfDay = h % 24;
+                supply[i][h] = solar[h] + wind[h];
+                demand[i][h] = hourOfDay >= 17 && hourOfDay < 22 ? 250 : 120;
+            }
+            units[i] = new HydroPumpStorageUnit("Reservoir " + i, 150, "Site", 5, 120, 5000);
+        }
+
+        PumpedStorageDispatcher dispatcher = new PumpedStorageDispatcher();
+        long start = System.nanoTime();
+        Result[] results = dispatcher.dispatchAll(units, supply, demand);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        double pumped = 0;
+        double generated = 0;
+        double unmet = 0;
+        for (Result result : results) {
+            pumped += result.totalPumpedKwh;
+            generated += result.totalGeneratedKwh;
+            unmet += result.totalUnmetKwh;
+        }
+        System.out.println(unitCount + " units x " + hours + " hours dispatched in " + elapsedMs + " ms");
+        System.out.printf("Pumped: %.0f kWh, generated: %.0f kWh, unmet demand: %.0f kWh%n", pumped, generated, unmet);
+    }
+}
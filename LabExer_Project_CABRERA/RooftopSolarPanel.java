@@ -8,7 +8,23 @@ public class RooftopSolarPanel extends SolarPanel {
         this.shadingFactor = shadingFactor;
     }
 
+    public double getRoofTiltAngle() {
+        return roofTiltAngle;
+    }
+
+    public double getShadingFactor() {
+        return shadingFactor;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() * (1 - shadingFactor);
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] *= (1 - shadingFactor);
+        }
+    }
 }
@@ -8,6 +8,14 @@ public class RunOfRiverMicroHydro extends HydroGenerator {
         this.environmentalImpact = environmentalImpact;
     }
 
+    public double getChannelLength() {
+        return channelLength;
+    }
+
+    public String getEnvironmentalImpact() {
+        return environmentalImpact;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy();
     }
@@ -8,6 +8,14 @@ public class SmallCommunityWindMill extends WindTurbine {
         this.localMaterialsUsed = localMaterialsUsed;
     }
 
+    public boolean isManualMaintenance() {
+        return manualMaintenance;
+    }
+
+    public boolean isLocalMaterialsUsed() {
+        return localMaterialsUsed;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy();
     }
@@ -8,7 +8,23 @@ public class SolarCanopy extends SolarPanel {
         this.connectedDevices = connectedDevices;
     }
 
+    public double getCoverageArea() {
+        return coverageArea;
+    }
+
+    public int getConnectedDevices() {
+        return connectedDevices;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() + coverageArea * 0.1;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        double[] irradiance = weather.getIrradiance();
+        for (int h = 0; h < irradiance.length; h++) {
+            out[offset + h] += coverageArea * 0.1 * (irradiance[h] / WeatherSeries.STANDARD_IRRADIANCE);
+        }
+    }
 }
@@ -0,0 +1,270 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sun position and plane-of-array (POA) irradiance for tilted panels.
+ *
+ * Sun vectors come from the NOAA solar position equations and are cached per site in
+ * a table of day-of-year x hour, shared by every panel at that site. A PlaneOfArray
+ * splits a site's hourly global irradiance into direct and diffuse parts once (Erbs
+ * model); after that a panel orientation costs one dot product per hour, and panels
+ * with the same tilt and azimuth share one cached POA series. The POA series is fed
+ * to the panel's own generateSeries(), so every SolarPanel subtype keeps its formula.
+ */
+public class SolarGeometry {
+
+    private static final int DAYS = 366;
+    private static final double SOLAR_CONSTANT = 1367.0;
+    private static final double MIN_COS_ZENITH = 0.065; // below ~86 degrees treat all light as diffuse
+    private static final double DEFAULT_ALBEDO = 0.2;
+    private static final int MAX_CACHED_SITES = 64;      // a table is about 210 KB
+
+    // Sun unit vector (east, north, up) per site, [(day * 24 + hour) * 3], least recently used dropped first
+    private static final Map<Site, double[]> SUN_TABLES = Collections.synchronizedMap(
+            new LinkedHashMap<Site, double[]>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Site, double[]> eldest) {
+                    return size() > MAX_CACHED_SITES;
+                }
+            });
+
+    /**
+     * A location on earth. utcOffsetHours is the time zone of the weather timestamps.
+     */
+    public static final class Site {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final double utcOffsetHours;
+
+        public Site(String name, double latitude, double longitude, double utcOffsetHours) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.utcOffsetHours = utcOffsetHours;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Site)) {
+                return false;
+            }
+            Site other = (Site) o;
+            return latitude == other.latitude && longitude == other.longitude
+                    && utcOffsetHours == other.utcOffsetHours;
+        }
+
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(latitude) * 31 + Double.doubleToLongBits(longitude);
+            bits = bits * 31 + Double.doubleToLongBits(utcOffsetHours);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+
+    /**
+     * Cached sun table of a site: unit vector towards the sun at the middle of each
+     * local hour, for day-of-year 1..366.
+     */
+    static double[] sunTable(Site site) {
+        return SUN_TABLES.computeIfAbsent(site, SolarGeometry::computeSunTable);
+    }
+
+    private static double[] computeSunTable(Site site) {
+        double[] table = new double[DAYS * 24 * 3];
+        double lat = Math.toRadians(site.latitude);
+        double sinLat = Math.sin(lat);
+        double cosLat = Math.cos(lat);
+        for (int day = 0; day < DAYS; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                double localHour = hour + 0.5;
+                double g = 2 * Math.PI / 365 * (day + (localHour - site.utcOffsetHours - 12) / 24);
+                double eqTime = 229.18 * (0.000075 + 0.001868 * Math.cos(g) - 0.032077 * Math.sin(g)
+                        - 0.014615 * Math.cos(2 * g) - 0.040849 * Math.sin(2 * g));
+                double decl = 0.006918 - 0.399912 * Math.cos(g) + 0.070257 * Math.sin(g)
+                        - 0.006758 * Math.cos(2 * g) + 0.000907 * Math.sin(2 * g)
+                        - 0.002697 * Math.cos(3 * g) + 0.00148 * Math.sin(3 * g);
+                double trueSolarMinutes = localHour * 60 + eqTime + 4 * site.longitude - 60 * site.utcOffsetHours;
+                double hourAngle = Math.toRadians(trueSolarMinutes / 4 - 180);
+
+                double sinDecl = Math.sin(decl);
+                double cosDecl = Math.cos(decl);
+                int i = (day * 24 + hour) * 3;
+                table[i] = -cosDecl * Math.sin(hourAngle);
+                table[i + 1] = cosLat * sinDecl - sinLat * cosDecl * Math.cos(hourAngle);
+                table[i + 2] = sinLat * sinDecl + cosLat * cosDecl * Math.cos(hourAngle);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Cosine of the solar zenith angle (negative at night).
+     */
+    public static double cosZenith(Site site, int dayOfYear, int hour) {
+        return sunTable(site)[((dayOfYear - 1) * 24 + hour) * 3 + 2];
+    }
+
+    /**
+     * Tilt used for a panel: the roof angle of a RooftopSolarPanel, near-flat for
+     * canopies and floating farms, and latitude tilt for a plain SolarPanel.
+     */
+    public static double defaultTilt(SolarPanel panel, Site site) {
+        if (panel instanceof RooftopSolarPanel) {
+            return ((RooftopSolarPanel) panel).getRoofTiltAngle();
+        }
+        if (panel instanceof SolarCanopy) {
+            return 5;
+        }
+        if (panel instanceof FloatingSolarFarm) {
+            return 10;
+        }
+        return Math.abs(site.latitude);
+    }
+
+    /**
+     * Azimuth facing the equator (degrees clockwise from north).
+     */
+    public static double defaultAzimuth(Site site) {
+        return site.latitude >= 0 ? 180 : 0;
+    }
+
+    /**
+     * Direct/diffuse split of a site's weather, ready for POA evaluation.
+     * firstDay is the date of the first hour of the series, which starts at local midnight;
+     * series that run past New Year continue with the next year's days.
+     */
+    public static PlaneOfArray prepare(Site site, WeatherSeries weather, LocalDate firstDay) {
+        return new PlaneOfArray(site, weather, firstDay);
+    }
+
+    /**
+     * Same as prepare(site, weather, firstDay) for a series starting on day startDayOfYear
+     * (1..365) of a non-leap year.
+     */
+    public static PlaneOfArray prepare(Site site, WeatherSeries weather, int startDayOfYear) {
+        return new PlaneOfArray(site, weather, LocalDate.ofYearDay(2001, Math.min(365, startDayOfYear)));
+    }
+
+    public static final class PlaneOfArray {
+        private final Site site;
+        private final WeatherSeries weather;
+        private final int hours;
+        private final double[] sunEast;
+        private final double[] sunNorth;
+        private final double[] sunUp;
+        private final double[] direct;
+        private final double[] diffuse;
+        private final double[] global;
+        private final Map<Long, WeatherSeries> byOrientation = new ConcurrentHashMap<>();
+        private double albedo = DEFAULT_ALBEDO;
+
+        private PlaneOfArray(Site site, WeatherSeries weather, LocalDate firstDay) {
+            this.site = site;
+            this.weather = weather;
+            this.hours = weather.getHours();
+            double[] table = sunTable(site);
+            double[] ghi = weather.getIrradiance();
+            sunEast = new double[hours];
+            sunNorth = new double[hours];
+            sunUp = new double[hours];
+            direct = new double[hours];
+            diffuse = new double[hours];
+            global = ghi;
+
+            LocalDate date = firstDay;
+            int day = firstDay.getDayOfYear() - 1;
+            for (int h = 0; h < hours; h++) {
+                if (h > 0 && h % 24 == 0) {
+                    date = date.plusDays(1);
+                    day = date.getDayOfYear() - 1;
+                }
+                int i = (day * 24 + h % 24) * 3;
+                sunEast[h] = table[i];
+                sunNorth[h] = table[i + 1];
+                sunUp[h] = table[i + 2];
+
+                double cosZ = sunUp[h];
+                if (ghi[h] <= 0) {
+                    continue;
+                }
+                if (cosZ < MIN_COS_ZENITH) {
+                    diffuse[h] = ghi[h];
+                    continue;
+                }
+                double extraterrestrial = SOLAR_CONSTANT * (1 + 0.033 * Math.cos(2 * Math.PI * (day + 1) / 365.0));
+                double kt = Math.min(1, ghi[h] / (extraterrestrial * cosZ));
+                double diffuseFraction;
+                if (kt <= 0.22) {
+                    diffuseFraction = 1 - 0.09 * kt;
+                } else if (kt <= 0.8) {
+                    diffuseFraction = 0.9511 - 0.1604 * kt + 4.388 * kt * kt
+                            - 16.638 * kt * kt * kt + 12.336 * kt * kt * kt * kt;
+                } else {
+                    diffuseFraction = 0.165;
+                }
+                diffuse[h] = ghi[h] * diffuseFraction;
+                direct[h] = (ghi[h] - diffuse[h]) / cosZ;
+            }
+        }
+
+        public void setAlbedo(double albedo) {
+            this.albedo = albedo;
+            byOrientation.clear();
+        }
+
+        public Site getSite() {
+            return site;
+        }
+
+        /**
+         * The site's weather with irradiance replaced by POA irradiance for a panel
+         * orientation (degrees; azimuth clockwise from north). Cached per orientation.
+         */
+        public WeatherSeries forOrientation(double tiltDegrees, double azimuthDegrees) {
+            long key = Math.round(tiltDegrees * 100) * 100000L + Math.round(azimuthDegrees * 100);
+            return byOrientation.computeIfAbsent(key, k -> new WeatherSeries(
+                    irradiance(tiltDegrees, azimuthDegrees), weather.getWindSpeedKmh(), weather.getRiverFlowLps()));
+        }
+
+        private double[] irradiance(double tiltDegrees, double azimuthDegrees) {
+            double tilt = Math.toRadians(tiltDegrees);
+            double azimuth = Math.toRadians(azimuthDegrees);
+            double normalEast = Math.sin(tilt) * Math.sin(azimuth);
+            double normalNorth = Math.sin(tilt) * Math.cos(azimuth);
+            double normalUp = Math.cos(tilt);
+            double skyView = (1 + normalUp) / 2;
+            double groundView = albedo * (1 - normalUp) / 2;
+
+            double[] poa = new double[hours];
+            for (int h = 0; h < hours; h++) {
+                double cosIncidence = normalEast * sunEast[h] + normalNorth * sunNorth[h] + normalUp * sunUp[h];
+                poa[h] = direct[h] * Math.max(0, cosIncidence) + diffuse[h] * skyView + global[h] * groundView;
+            }
+            return poa;
+        }
+
+        /**
+         * Hourly output of a panel at its default orientation for this site.
+         */
+        public void generateSeries(SolarPanel panel, double[] out, int offset) {
+            generateSeries(panel, defaultTilt(panel, site), defaultAzimuth(site), out, offset);
+        }
+
+        public void generateSeries(SolarPanel panel, double tiltDegrees, double azimuthDegrees, double[] out, int offset) {
+            panel.generateSeries(forOrientation(tiltDegrees, azimuthDegrees), out, offset);
+        }
+    }
+}
@@ -9,4 +9,12 @@ public class SolarPanel extends EnergySource {
     public double generateEnergy() {
         return capacityKwh * efficiency;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        double[] irradiance = weather.getIrradiance();
+        double output = capacityKwh * efficiency;
+        for (int h = 0; h < irradiance.length; h++) {
+            out[offset + h] = output * (irradiance[h] / WeatherSeries.STANDARD_IRRADIANCE);
+        }
+    }
 }
@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+/**
+ * Per-unit rolling aggregates of meter readings over 1-minute, 15-minute and daily windows.
+ * All state is in primitive arrays sized for the fleet up front, so adding a reading never
+ * allocates. Windows are tumbling buckets aligned to the clock (daily buckets to local
+ * midnight given the UTC offset); when a reading falls past the end of a unit's bucket the
+ * bucket is closed, its mean kept as the last completed value, and the WindowListener told.
+ *
+ * Not thread-safe: add() and the getters belong to the ingest consumer thread (read them
+ * from a WindowListener, or from another thread once TelemetryIngestor.stop() has returned).
+ */
+public class TelemetryAggregator implements TelemetryRingBuffer.ReadingHandler {
+
+    public static final int ONE_MINUTE = 0;
+    public static final int FIFTEEN_MINUTES = 1;
+    public static final int DAILY = 2;
+
+    private static final long[] WINDOW_MILLIS = {60000L, 900000L, 86400000L};
+
+    /**
+     * Called on the ingest thread whenever a unit's window bucket is completed.
+     */
+    public interface WindowListener {
+        void onWindowClosed(int window, int unitId, long bucketStartMillis, double meanKw, int samples);
+    }
+
+    private final int units;
+    private final long offsetMillis;
+    private final long[][] bucketStart;
+    private final double[][] sum;
+    private final int[][] count;
+    private final double[][] lastMean;
+    private final long[][] lastBucketStart;
+    private final double[] lastKw;
+    private final long[] lastTimestamp;
+
+    private WindowListener listener;
+    private long accepted;
+    private long rejected;
+
+    public TelemetryAggregator(int units, int utcOffsetMinutes) {
+        this.units = units;
+        this.offsetMillis = utcOffsetMinutes * 60000L;
+        int windows = WINDOW_MILLIS.length;
+        bucketStart = new long[windows][units];
+        sum = new double[windows][units];
+        count = new int[windows][units];
+        lastMean = new double[windows][units];
+        lastBucketStart = new long[windows][units];
+        for (int w = 0; w < windows; w++) {
+            Arrays.fill(bucketStart[w], Long.MIN_VALUE);
+            Arrays.fill(lastMean[w], Double.NaN);
+        }
+        lastKw = new double[units];
+        lastTimestamp = new long[units];
+    }
+
+    public void setListener(WindowListener listener) {
+        this.listener = listener;
+    }
+
+    public int getUnitCount() {
+        return units;
+    }
+
+    public void onReading(int unitId, long timestampMillis, double kw) {
+        add(unitId, timestampMillis, kw);
+    }
+
+    public void add(int unitId, long timestampMillis, double kw) {
+        if (unitId < 0 || unitId >= units) {
+            rejected++;
+            return;
+        }
+        accepted++;
+        lastKw[unitId] = kw;
+        lastTimestamp[unitId] = timestampMillis;
+
+        long local = timestampMillis + offsetMillis;
+        for (int w = 0; w < WINDOW_MILLIS.length; w++) {
+            long length = WINDOW_MILLIS[w];
+            long start = bucketStart[w][unitId];
+            if (local >= start + length || start == Long.MIN_VALUE) {
+                if (count[w][unitId] > 0) {
+                    close(w, unitId);
+                }
+                bucketStart[w][unitId] = Math.floorDiv(local, length) * length;
+            } else if (local < start) {
+                // Late reading for an already closed bucket; keep it out of the current one
+                continue;
+            }
+            sum[w][unitId] += kw;
+            count[w][unitId]++;
+        }
+    }
+
+    private void close(int window, int unitId) {
+        int samples = count[window][unitId];
+        double mean = sum[window][unitId] / samples;
+        long start = bucketStart[window][unitId] - offsetMillis;
+        lastMean[window][unitId] = mean;
+        lastBucketStart[window][unitId] = start;
+        sum[window][unitId] = 0;
+        count[window][unitId] = 0;
+        if (listener != null) {
+            listener.onWindowClosed(window, unitId, start, mean, samples);
+        }
+    }
+
+    /**
+     * Mean kW of the unit's last completed bucket of a window (NaN if none yet).
+     */
+    public double getLastMeanKw(int window, int unitId) {
+        return lastMean[window][unitId];
+    }
+
+    public long getLastBucketStart(int window, int unitId) {
+        return lastBucketStart[window][unitId];
+    }
+
+    /**
+     * Mean kW of the bucket still being filled (NaN if it has no readings yet).
+     */
+    public double getCurrentMeanKw(int window, int unitId) {
+        int n = count[window][unitId];
+        return n == 0 ? Double.NaN : sum[window][unitId] / n;
+    }
+
+    /**
+     * Energy of the unit's last completed bucket (kWh), from its mean power.
+     */
+    public double getLastEnergyKwh(int window, int unitId) {
+        return lastMean[window][unitId] * WINDOW_MILLIS[window] / 3600000.0;
+    }
+
+    public double getLastKw(int unitId) {
+        return lastKw[unitId];
+    }
+
+    public long getLastTimestamp(int unitId) {
+        return lastTimestamp[unitId];
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,337 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes in site meter readings and feeds them to a TelemetryAggregator.
+ * Readings arrive as text lines "unitId,timestampMillis,kW" (unit IDs are FleetEngine
+ * IDs) from a local TCP socket or a tailed file. Every source thread is the single
+ * producer of its own TelemetryRingBuffer and one consumer thread drains all rings
+ * into the aggregator. Lines are parsed straight from the read buffer into primitives,
+ * so nothing is allocated per reading on the way from the socket to the aggregates.
+ */
+public class TelemetryIngestor {
+
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final int DRAIN_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = 100000L;
+    private static final long TAIL_POLL_MILLIS = 200L;
+
+    private final TelemetryAggregator aggregator;
+    private final int ringCapacity;
+    private volatile TelemetryRingBuffer[] rings = new TelemetryRingBuffer[0];
+    private volatile boolean running;
+    private Thread consumer;
+    private ServerSocket server;
+
+    private final AtomicLong malformedLines = new AtomicLong();
+
+    public TelemetryIngestor(TelemetryAggregator aggregator, int ringCapacity) {
+        this.aggregator = aggregator;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Start the consumer thread that drains every ring into the aggregator.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = new Thread(this::consume, "telemetry-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Stop accepting data and wait until everything already queued has been aggregated.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (this) {
+            if (server != null) {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        if (consumer != null) {
+            consumer.join();
+        }
+    }
+
+    /**
+     * A new ring for an in-process producer (one thread only).
+     */
+    public synchronized TelemetryRingBuffer newProducer() {
+        TelemetryRingBuffer ring = new TelemetryRingBuffer(ringCapacity);
+        TelemetryRingBuffer[] grown = Arrays.copyOf(rings, rings.length + 1);
+        grown[rings.length] = ring;
+        rings = grown;
+        return ring;
+    }
+
+    /**
+     * Producer side helper: wait (spinning, then yielding) until the ring has room.
+     * Returns false, dropping the reading, once the ingestor is stopped; a reading for
+     * which this returns true is always aggregated before stop() returns.
+     */
+    public boolean put(TelemetryRingBuffer ring, int unitId, long timestampMillis, double kw) {
+        // Mark the ring busy before reading running: the consumer does its final drain only
+        // after seeing running false and no ring busy, so an accepted reading cannot miss it
+        ring.putting = true;
+        try {
+            int spins = 0;
+            while (running) {
+                if (ring.offer(unitId, timestampMillis, kw)) {
+                    return true;
+                }
+                if (++spins > 100) {
+                    Thread.yield();
+                }
+            }
+            return false;
+        } finally {
+            ring.putting = false;
+        }
+    }
+
+    private void consume() {
+        while (true) {
+            boolean stopping = !running;
+            TelemetryRingBuffer[] current = rings;
+            boolean quiet = stopping;
+            for (TelemetryRingBuffer ring : current) {
+                quiet &= !ring.putting;
+            }
+            int drained = 0;
+            for (TelemetryRingBuffer ring : current) {
+                drained += ring.drain(aggregator, DRAIN_BATCH);
+            }
+            if (drained == 0) {
+                if (quiet) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Accept meter connections on a loopback port; each connection gets its own ring and thread.
+     */
+    public synchronized void listen(int port) throws IOException {
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        ServerSocket socket = server;
+        Thread acceptor = new Thread(() -> {
+            while (running && !socket.isClosed()) {
+                try {
+                    Socket connection = socket.accept();
+                    TelemetryRingBuffer ring = newProducer();
+                    Thread reader = new Thread(() -> readConnection(connection, ring), "telemetry-socket");
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (running) {
+                        System.err.println("Telemetry accept failed: " + e.getMessage());
+                    }
+                }
+            }
+        }, "telemetry-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private void readConnection(Socket connection, TelemetryRingBuffer ring) {
+        LineParser parser = new LineParser(ring);
+        byte[] buffer = new byte[READ_BUFFER];
+        try (Socket socket = connection; InputStream in = socket.getInputStream()) {
+            int read;
+            while (running && (read = in.read(buffer)) > 0) {
+                parser.parse(buffer, read);
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Telemetry connection closed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Follow a file that meters append lines to, starting at its current end (or the start if fromBeginning).
+     */
+    public void tail(Path file, boolean fromBeginning) {
+        TelemetryRingBuffer ring = newProducer();
+        Thread tailer = new Thread(() -> {
+            LineParser parser = new LineParser(ring);
+            byte[] buffer = new byte[READ_BUFFER];
+            try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                long position = fromBeginning ? 0 : in.length();
+                while (running) {
+                    if (in.length() < position) {
+                        position = 0; // file was truncated or rotated
+                    }
+                    in.seek(position);
+                    int read = in.read(buffer);
+                    if (read > 0) {
+                        position += read;
+                        parser.parse(buffer, read);
+                    } else {
+                        Thread.sleep(TAIL_POLL_MILLIS);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Telemetry tail of " + file + " failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "telemetry-tail");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    public long getMalformedLines() {
+        return malformedLines.get();
+    }
+
+    /**
+     * Incremental parser of "unitId,timestampMillis,kW" lines; keeps its state across
+     * reads so lines split between buffers are handled. Decimal kW values only (no exponent).
+     */
+    private final class LineParser {
+        private final TelemetryRingBuffer ring;
+        private int field;
+        private long integer;
+        private long fraction;
+        private long fractionScale;
+        private boolean negative;
+        private boolean inFraction;
+        private boolean hasDigits;
+        private boolean invalid;
+        private int unitId;
+        private long timestamp;
+
+        LineParser(TelemetryRingBuffer ring) {
+            this.ring = ring;
+            reset();
+        }
+
+        void parse(byte[] buffer, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    endLine();
+                } else if (invalid || b == '\r' || b == ' ') {
+                    continue;
+                } else if (b >= '0' && b <= '9') {
+                    hasDigits = true;
+                    if (inFraction) {
+                        if (fractionScale < 1000000000L) {
+                            fraction = fraction * 10 + (b - '0');
+                            fractionScale *= 10;
+                        }
+                    } else {
+                        integer = integer * 10 + (b - '0');
+                    }
+                } else if (b == ',') {
+                    endField();
+                } else if (b == '.' && field == 2 && !inFraction) {
+                    inFraction = true;
+                } else if (b == '-' && !hasDigits && !negative) {
+                    negative = true;
+                } else {
+                    invalid = true; // header row or garbage: skip to end of line
+                }
+            }
+        }
+
+        private void endField() {
+            if (!hasDigits || field >= 2) {
+                invalid = true;
+                return;
+            }
+            long value = negative ? -integer : integer;
+            if (field == 0) {
+                unitId = (int) value;
+            } else {
+                timestamp = value;
+            }
+            field++;
+            integer = 0;
+            negative = false;
+            hasDigits = false;
+        }
+
+        private void endLine() {
+            if (!invalid && field == 2 && hasDigits) {
+                double kw = integer + (double) fraction / fractionScale;
+                put(ring, unitId, timestamp, negative ? -kw : kw);
+            } else if (field > 0 || hasDigits || invalid) {
+                malformedLines.incrementAndGet();
+            }
+            reset();
+        }
+
+        private void reset() {
+            field = 0;
+            integer = 0;
+            fraction = 0;
+            fractionScale = 1;
+            negative = false;
+            inFraction = false;
+            hasDigits = false;
+            invalid = false;
+        }
+    }
+
+    /**
+     * Throughput check: java TelemetryIngestor [units] [readingsPerProducer] [producers]
+     */
+    public static void main(String[] args) throws Exception {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int readings = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        int producers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        TelemetryAggregator aggregator = new TelemetryAggregator(units, 8 * 60);
+        TelemetryIngestor ingestor = new TelemetryIngestor(aggregator, 1 << 16);
+        ingestor.start();
+
+        long startMillis = 1700000000000L;
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            TelemetryRingBuffer ring = ingestor.newProducer();
+            int offset = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < readings; i++) {
+                    // Every unit reports once per 5-second round
+                    long sequence = (long) i * producers + offset;
+                    int unitId = (int) (sequence % units);
+                    long timestamp = startMillis + sequence / units * 5000L;
+                    ingestor.put(ring, unitId, timestamp, 100 + (i % 50));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ingestor.stop();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = (long) readings * producers;
+        System.out.printf("%d readings for %d units in %.2f s (%.0f readings/s)%n",
+                total, units, seconds, total / seconds);
+        System.out.println("Aggregated: " + aggregator.getAccepted() + ", rejected: " + aggregator.getRejected()
+                + ", unit 0 last 1-minute mean: " + aggregator.getLastMeanKw(TelemetryAggregator.ONE_MINUTE, 0) + " kW");
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of meter readings
+ * (unit ID, timestamp in epoch millis, output in kW), stored in primitive arrays.
+ * The producer publishes with a lazySet of the tail and the consumer frees slots
+ * with a lazySet of the head, so neither side locks or allocates.
+ * Exactly one thread may call offer() and exactly one may call drain().
+ */
+public class TelemetryRingBuffer {
+
+    /**
+     * Receives drained readings.
+     */
+    public interface ReadingHandler {
+        void onReading(int unitId, long timestampMillis, double kw);
+    }
+
+    private final int mask;
+    private final int[] unitIds;
+    private final long[] timestamps;
+    private final double[] values;
+
+    private final AtomicLong head = new AtomicLong(); // next slot to read
+    private final AtomicLong tail = new AtomicLong(); // next slot to write
+    // Each side keeps a cached copy of the other's counter to avoid reading it every call
+    private long cachedHead;
+    private long cachedTail;
+
+    // Set by the producer while it is inside TelemetryIngestor.put(), so a stopping consumer can wait for it
+    volatile boolean putting;
+
+    /**
+     * capacity is rounded up to a power of two.
+     */
+    public TelemetryRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        unitIds = new int[size];
+        timestamps = new long[size];
+        values = new double[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Producer side: add a reading, or return false if the ring is full.
+     */
+    public boolean offer(int unitId, long timestampMillis, double kw) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                return false;
+            }
+        }
+        int slot = (int) t & mask;
+        unitIds[slot] = unitId;
+        timestamps[slot] = timestampMillis;
+        values[slot] = kw;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: pass up to max readings to handler. Returns how many were drained.
+     */
+    public int drain(ReadingHandler handler, int max) {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return 0;
+            }
+        }
+        int count = (int) Math.min(max, cachedTail - h);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (h + i) & mask;
+            handler.onReading(unitIds[slot], timestamps[slot], values[slot]);
+        }
+        head.lazySet(h + count);
+        return count;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
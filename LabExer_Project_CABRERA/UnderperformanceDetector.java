@@ -0,0 +1,286 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Flags units whose metered output stays below what their EnergySource formula expects,
+ * and opens MAINTENANCE tickets for them in batches.
+ *
+ * Each closed 15-minute telemetry bucket is stored as the unit's latest observation.
+ * When the unit's location has a WeatherSeries, the expected output is that unit's
+ * generateSeries() value for the bucket's hour, so a solar unit is not compared against
+ * its nameplate at night or under cloud (hours expected to produce nothing are skipped).
+ * evaluate() then walks the units round-robin within a time budget, turning the
+ * observation into a standardised residual (actual / expected - 1, scaled by the unit's
+ * learned noise) and a lower one-sided CUSUM. A unit alarms when the CUSUM passes the
+ * threshold, i.e. after a sustained shortfall rather than one bad interval. Units not
+ * reached in one call are picked up first in the next, so CPU use per interval is fixed
+ * however large the fleet is.
+ */
+public class UnderperformanceDetector implements TelemetryAggregator.WindowListener {
+
+    private static final int BUDGET_CHECK_EVERY = 256;
+
+    private final FleetEngine engine;
+    private final double[] expectedKw;
+    private final double[] observedKw;
+    private final long[] observedStartMillis;
+    private final boolean[] pending;
+    private final double[] residualMean;
+    private final double[] residualVariance;
+    private final double[] cusum;
+    private final boolean[] ticketOpen;
+
+    private double slack = 0.5;          // CUSUM allowance k, in standard deviations
+    private double threshold = 5.0;      // CUSUM decision limit h
+    private double minSigma = 0.05;      // floor on the learned noise of actual / expected
+    private double learningRate = 0.02;  // EWMA weight of a new residual
+    private double minExpectedKw = 0.01; // skip units that are not expected to produce
+
+    // Hourly weather per location id, and the epoch millis of each series' hour 0
+    private WeatherSeries[] weatherByLocation = new WeatherSeries[0];
+    private long[] weatherStartMillis = new long[0];
+    private final double[] expectedScratch = new double[1];
+
+    private int cursor;
+    private int[] alarms = new int[64];
+    private double[] alarmRatio = new double[64];
+    private int alarmCount;
+
+    public UnderperformanceDetector(FleetEngine engine) {
+        this.engine = engine;
+        int units = engine.size();
+        expectedKw = new double[units];
+        engine.generateAll(expectedKw);
+        observedKw = new double[units];
+        observedStartMillis = new long[units];
+        pending = new boolean[units];
+        residualMean = new double[units];
+        residualVariance = new double[units];
+        Arrays.fill(residualVariance, minSigma * minSigma);
+        cusum = new double[units];
+        ticketOpen = new boolean[units];
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public void setSlack(double slack) {
+        this.slack = slack;
+    }
+
+    /**
+     * Expected output of a unit under the current conditions, for units whose location has no weather.
+     * Defaults to generateEnergy() of the unit.
+     */
+    public void setExpectedKw(int unitId, double kw) {
+        expectedKw[unitId] = kw;
+    }
+
+    /**
+     * Hourly weather of a location, hour 0 starting at startMillis. Units there are then
+     * expected to produce their generateSeries() output for the hour of each observation;
+     * observations outside the series are not evaluated.
+     */
+    public void setWeather(int locationId, long startMillis, WeatherSeries weather) {
+        if (locationId >= weatherByLocation.length) {
+            weatherByLocation = Arrays.copyOf(weatherByLocation, locationId + 1);
+            weatherStartMillis = Arrays.copyOf(weatherStartMillis, locationId + 1);
+        }
+        weatherByLocation[locationId] = weather;
+        weatherStartMillis[locationId] = startMillis;
+    }
+
+    public void onWindowClosed(int window, int unitId, long bucketStartMillis, double meanKw, int samples) {
+        if (window == TelemetryAggregator.FIFTEEN_MINUTES && unitId < observedKw.length) {
+            observedKw[unitId] = meanKw;
+            observedStartMillis[unitId] = bucketStartMillis;
+            pending[unitId] = true;
+        }
+    }
+
+    /**
+     * Process pending observations until budgetNanos is used up. Returns the number of units evaluated.
+     */
+    public int evaluate(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int units = observedKw.length;
+        int evaluated = 0;
+        for (int scanned = 0; scanned < units; scanned++) {
+            int unitId = cursor;
+            cursor = cursor + 1 == units ? 0 : cursor + 1;
+            if (pending[unitId]) {
+                pending[unitId] = false;
+                update(unitId);
+                evaluated++;
+            }
+            if ((scanned & (BUDGET_CHECK_EVERY - 1)) == BUDGET_CHECK_EVERY - 1 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        return evaluated;
+    }
+
+    private void update(int unitId) {
+        int locationId = engine.getLocationId(unitId);
+        WeatherSeries weather = locationId < weatherByLocation.length ? weatherByLocation[locationId] : null;
+        if (weather != null) {
+            long hour = Math.floorDiv(observedStartMillis[unitId] - weatherStartMillis[locationId], 3600000L);
+            if (hour < 0 || hour >= weather.getHours()) {
+                return;
+            }
+            engine.generateSeries(unitId, weather, (int) hour, 1, expectedScratch);
+            expectedKw[unitId] = expectedScratch[0];
+        }
+        double expected = expectedKw[unitId];
+        if (expected < minExpectedKw) {
+            return;
+        }
+        double residual = observedKw[unitId] / expected - 1;
+        double sigma = Math.max(minSigma, Math.sqrt(residualVariance[unitId]));
+        double z = (residual - residualMean[unitId]) / sigma;
+
+        cusum[unitId] = Math.max(0, cusum[unitId] - z - slack);
+        if (cusum[unitId] == 0) {
+            // Learn the unit's normal behaviour only while it is not drifting down
+            double delta = residual - residualMean[unitId];
+            residualMean[unitId] += learningRate * delta;
+            residualVariance[unitId] = (1 - learningRate) * (residualVariance[unitId] + learningRate * delta * delta);
+            ticketOpen[unitId] = false;
+        } else if (cusum[unitId] > threshold && !ticketOpen[unitId]) {
+            ticketOpen[unitId] = true;
+            addAlarm(unitId, observedKw[unitId] / expected);
+        }
+    }
+
+    private void addAlarm(int unitId, double ratio) {
+        if (alarmCount == alarms.length) {
+            alarms = Arrays.copyOf(alarms, alarmCount * 2);
+            alarmRatio = Arrays.copyOf(alarmRatio, alarmCount * 2);
+        }
+        alarms[alarmCount] = unitId;
+        alarmRatio[alarmCount] = ratio;
+        alarmCount++;
+    }
+
+    public int getPendingTicketCount() {
+        return alarmCount;
+    }
+
+    public double getCusum(int unitId) {
+        return cusum[unitId];
+    }
+
+    /**
+     * Current z-score of the unit's latest observation against its learned behaviour.
+     */
+    public double getZScore(int unitId) {
+        double expected = expectedKw[unitId];
+        if (expected < minExpectedKw) {
+            return 0;
+        }
+        double sigma = Math.max(minSigma, Math.sqrt(residualVariance[unitId]));
+        return (observedKw[unitId] / expected - 1 - residualMean[unitId]) / sigma;
+    }
+
+    /**
+     * Open one "Pending" MAINTENANCE ticket per alarmed unit, in a single batched transaction.
+     * The tickets are then picked up by the dashboard and the technician dispatcher.
+     * Returns the number of tickets opened.
+     */
+    public int flushTickets(Connection conn) throws SQLException {
+        if (alarmCount == 0) {
+            return 0;
+        }
+        String today = LocalDate.now().toString();
+        long suffix = System.currentTimeMillis() % 100000;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO maintenance (ticket_id, customer_name, contact_no, site_address, equipment, " +
+                "service_type, schedule_date, technician, status, notes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < alarmCount; i++) {
+                int unitId = alarms[i];
+                double ratio = alarmRatio[i];
+                String notes = String.format(Locale.ROOT,
+                        "Underperformance detected: output at %.0f%% of expected %.1f kW over several intervals%s",
+                        ratio * 100, expectedKw[unitId], ratio < 0.05 ? " (possible outage)" : "");
+                pstmt.setString(1, "MT-AUTO-" + unitId + "-" + suffix);
+                pstmt.setString(2, "Fleet Monitoring");
+                pstmt.setString(3, "");
+                pstmt.setString(4, engine.locationName(engine.getLocationId(unitId)));
+                pstmt.setString(5, engine.getType(unitId).name() + " #" + unitId);
+                pstmt.setString(6, "Repair");
+                pstmt.setString(7, today);
+                pstmt.setString(8, "");
+                pstmt.setString(9, "Pending");
+                pstmt.setString(10, notes);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        int opened = alarmCount;
+        alarmCount = 0;
+        return opened;
+    }
+
+    /**
+     * Simulation: a solar fleet reporting through the telemetry aggregator over a day and a night
+     * of synthetic weather (meter output follows the sun and clouds), with a few units failing.
+     */
+    public static void main(String[] args) {
+        int units = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        FleetEngine fleet = new FleetEngine();
+        int site = fleet.locationId("Davao City");
+        for (int i = 0; i < units; i++) {
+            fleet.add(EnergySourceType.SOLAR_PANEL, site, 10, 0.8, 0);
+        }
+        // Hour 0 of the weather is midnight at the epoch: daylight from 6:00 to 18:00
+        WeatherSeries weather = WeatherSeries.synthetic(48, 1000, 15, 50, 5);
+        UnderperformanceDetector detector = new UnderperformanceDetector(fleet);
+        detector.setWeather(site, 0L, weather);
+        // A higher decision limit keeps false alarms rare across 200000 healthy units
+        detector.setThreshold(8);
+        TelemetryAggregator aggregator = new TelemetryAggregator(units, 0);
+        aggregator.setListener(detector);
+
+        java.util.SplittableRandom random = new java.util.SplittableRandom(3);
+        long budget = 2000000L; // 2 ms per interval, less than a full pass over the fleet
+        long evaluated = 0;
+        long elapsed = 0;
+        int calls = 0;
+        double[] hourly = new double[1];
+        for (int interval = 0; interval < 96; interval++) {
+            long timestamp = interval * 900000L;
+            fleet.generateSeries(0, weather, interval / 4, 1, hourly);
+            for (int unitId = 0; unitId < units; unitId++) {
+                double kw = hourly[0] * (1 + 0.05 * (random.nextDouble() * 2 - 1));
+                // Units divisible by 50000 lose 40% of their output from 10:00 on
+                if (unitId % 50000 == 0 && interval >= 40) {
+                    kw *= 0.6;
+                }
+                aggregator.add(unitId, timestamp, kw);
+            }
+            // Several budgeted calls per interval, as a scheduler would make between other work
+            for (int slice = 0; slice < 4; slice++) {
+                long start = System.nanoTime();
+                evaluated += detector.evaluate(budget);
+                elapsed += System.nanoTime() - start;
+                calls++;
+            }
+        }
+        System.out.printf("%d units: %d observations evaluated in %d calls, mean %.0f us per call (budget %d us)%n",
+                units, evaluated, calls, elapsed / 1000.0 / calls, budget / 1000);
+        System.out.println("Tickets pending: " + detector.getPendingTicketCount() + " (4 units failing)");
+    }
+}
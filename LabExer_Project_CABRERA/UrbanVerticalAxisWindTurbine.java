@@ -8,7 +8,23 @@ public class UrbanVerticalAxisWindTurbine extends WindTurbine {
         this.birdSafetyRating = birdSafetyRating;
     }
 
+    public double getNoiseLevel() {
+        return noiseLevel;
+    }
+
+    public int getBirdSafetyRating() {
+        return birdSafetyRating;
+    }
+
     public double generateEnergy() {
         return super.generateEnergy() * 0.9;
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        super.generateSeries(weather, out, offset);
+        int hours = weather.getHours();
+        for (int h = 0; h < hours; h++) {
+            out[offset + h] *= 0.9;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+import java.util.Random;
+
+/**
+ * Hourly weather inputs for generateSeries(): solar irradiance (W/m2),
+ * wind speed (km/h) and river flow (L/s), one value per hour.
+ * The arrays are used as given (not copied) so large series are not duplicated.
+ */
+public class WeatherSeries {
+    public static final int HOURS_PER_YEAR = 8760;
+
+    /** Irradiance at which a solar source produces its generateEnergy() output */
+    public static final double STANDARD_IRRADIANCE = 1000.0;
+
+    private final double[] irradiance;
+    private final double[] windSpeedKmh;
+    private final double[] riverFlowLps;
+
+    public WeatherSeries(double[] irradiance, double[] windSpeedKmh, double[] riverFlowLps) {
+        if (irradiance.length != windSpeedKmh.length || irradiance.length != riverFlowLps.length) {
+            throw new IllegalArgumentException("Weather series must all have the same number of hours");
+        }
+        this.irradiance = irradiance;
+        this.windSpeedKmh = windSpeedKmh;
+        this.riverFlowLps = riverFlowLps;
+    }
+
+    /**
+     * Same conditions every hour.
+     */
+    public static WeatherSeries constant(int hours, double irradiance, double windSpeedKmh, double riverFlowLps) {
+        double[] irr = new double[hours];
+        double[] wind = new double[hours];
+        double[] flow = new double[hours];
+        for (int h = 0; h < hours; h++) {
+            irr[h] = irradiance;
+            wind[h] = windSpeedKmh;
+            flow[h] = riverFlowLps;
+        }
+        return new WeatherSeries(irr, wind, flow);
+    }
+
+    /**
+     * Simple synthetic year for testing: daylight irradiance curve from 6:00 to 18:00,
+     * noisy wind around its mean, and river flow with a wet and a dry season.
+     */
+    public static WeatherSeries synthetic(int hours, double peakIrradiance, double meanWindKmh,
+                                          double meanFlowLps, long seed) {
+        Random random = new Random(seed);
+        double[] irr = new double[hours];
+        double[] wind = new double[hours];
+        double[] flow = new double[hours];
+        for (int h = 0; h < hours; h++) {
+            int hourOfDay = h % 24;
+            double daylight = Math.sin(Math.PI * (hourOfDay - 6) / 12.0);
+            double clouds = 0.6 + 0.4 * random.nextDouble();
+            irr[h] = daylight > 0 ? peakIrradiance * daylight * clouds : 0;
+            wind[h] = Math.max(0, meanWindKmh * (1 + 0.35 * random.nextGaussian()));
+            double season = Math.sin(2 * Math.PI * h / HOURS_PER_YEAR);
+            flow[h] = Math.max(0, meanFlowLps * (1 + 0.4 * season));
+        }
+        return new WeatherSeries(irr, wind, flow);
+    }
+
+    public int getHours() {
+        return irradiance.length;
+    }
+
+    public double[] getIrradiance() {
+        return irradiance;
+    }
+
+    public double[] getWindSpeedKmh() {
+        return windSpeedKmh;
+    }
+
+    public double[] getRiverFlowLps() {
+        return riverFlowLps;
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary columnar store of hourly weather per location, read through memory-mapped files.
+ *
+ * File layout (big-endian):
+ *   header   - magic, version, hours, location count, start hour (epoch hours, UTC),
+ *              offset of the columns, padding to 32 bytes, then the location names
+ *              (writeUTF), padded to a multiple of 8 bytes
+ *   columns  - per location ID, three blocks of hours doubles:
+ *              irradiance (W/m2), wind speed (km/h), river flow (L/s)
+ *
+ * Each location's block is mapped read-only once, so any number of simulation threads
+ * can read it concurrently and share the OS page cache without copying the file.
+ */
+public class WeatherStore implements Closeable {
+
+    public static final int IRRADIANCE = 0;
+    public static final int WIND_SPEED_KMH = 1;
+    public static final int RIVER_FLOW_LPS = 2;
+    private static final int VARIABLES = 3;
+
+    private static final int MAGIC = 0x57585331; // "WXS1"
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 32;
+
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd[ ]['T']HH:mm[:ss]");
+
+    private final FileChannel channel;
+    private final int hours;
+    private final long startEpochHour;
+    private final String[] locationNames;
+    private final DoubleBuffer[] locations;
+
+    private WeatherStore(FileChannel channel, int hours, long startEpochHour, String[] locationNames,
+                         DoubleBuffer[] locations) {
+        this.channel = channel;
+        this.hours = hours;
+        this.startEpochHour = startEpochHour;
+        this.locationNames = locationNames;
+        this.locations = locations;
+    }
+
+    /**
+     * Open a store file and map every location's columns.
+     */
+    public static WeatherStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+            readFully(channel, fixed, 0);
+            fixed.flip();
+            if (fixed.getInt() != MAGIC || fixed.getInt() != VERSION) {
+                throw new IOException("Not a weather store file: " + file);
+            }
+            int hours = fixed.getInt();
+            int locationCount = fixed.getInt();
+            long startEpochHour = fixed.getLong();
+            int dataStart = fixed.getInt();
+
+            ByteBuffer nameBytes = ByteBuffer.allocate(dataStart - FIXED_HEADER_BYTES);
+            readFully(channel, nameBytes, FIXED_HEADER_BYTES);
+            DataInputStream names = new DataInputStream(new ByteArrayInputStream(nameBytes.array()));
+            String[] locationNames = new String[locationCount];
+            for (int i = 0; i < locationCount; i++) {
+                locationNames[i] = names.readUTF();
+            }
+
+            long blockBytes = (long) VARIABLES * hours * Double.BYTES;
+            if (blockBytes > Integer.MAX_VALUE) {
+                throw new IOException("Location block too large to map: " + blockBytes + " bytes");
+            }
+            DoubleBuffer[] locations = new DoubleBuffer[locationCount];
+            for (int i = 0; i < locationCount; i++) {
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY,
+                        dataStart + i * blockBytes, blockBytes);
+                locations[i] = block.order(ByteOrder.BIG_ENDIAN).asDoubleBuffer();
+            }
+            return new WeatherStore(channel, hours, startEpochHour, locationNames, locations);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    /**
+     * First hour of the data set as hours since 1970-01-01T00:00 UTC.
+     */
+    public long getStartEpochHour() {
+        return startEpochHour;
+    }
+
+    public int getLocationCount() {
+        return locationNames.length;
+    }
+
+    public String getLocationName(int locationId) {
+        return locationNames[locationId];
+    }
+
+    /**
+     * One value (variable is IRRADIANCE, WIND_SPEED_KMH or RIVER_FLOW_LPS).
+     */
+    public double get(int locationId, int variable, int hour) {
+        return locations[locationId].get(variable * hours + hour);
+    }
+
+    /**
+     * Copy count hours of one variable, starting at fromHour, into out[offset ..).
+     */
+    public void read(int locationId, int variable, int fromHour, double[] out, int offset, int count) {
+        DoubleBuffer view = locations[locationId].duplicate();
+        view.position(variable * hours + fromHour);
+        view.get(out, offset, count);
+    }
+
+    /**
+     * The full series of one location as a WeatherSeries (copied out of the mapping).
+     */
+    public WeatherSeries series(int locationId) {
+        return series(locationId, 0, hours);
+    }
+
+    public WeatherSeries series(int locationId, int fromHour, int count) {
+        double[] irradiance = new double[count];
+        double[] wind = new double[count];
+        double[] flow = new double[count];
+        read(locationId, IRRADIANCE, fromHour, irradiance, 0, count);
+        read(locationId, WIND_SPEED_KMH, fromHour, wind, 0, count);
+        read(locationId, RIVER_FLOW_LPS, fromHour, flow, 0, count);
+        return new WeatherSeries(irradiance, wind, flow);
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Convert a CSV file into a store file. Expected columns (with a header row):
+     *   location,timestamp,irradiance,wind_speed_kmh,river_flow_lps
+     * Timestamps are "yyyy-MM-dd HH:mm" (UTC). Hours missing from the CSV take the
+     * previous hour's value of the same location (0 before the first reading).
+     * Returns the number of rows imported.
+     */
+    public static int importCsv(Path csv, Path storeFile) throws IOException {
+        // First pass: locations and time range
+        Map<String, Integer> locationIds = new LinkedHashMap<>();
+        long minHour = Long.MAX_VALUE;
+        long maxHour = Long.MIN_VALUE;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line = reader.readLine(); // header
+            int lineNo = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = splitCsv(line, lineNo);
+                String location = fields[0].trim();
+                if (!locationIds.containsKey(location)) {
+                    locationIds.put(location, locationIds.size());
+                }
+                long hour = epochHour(fields[1], lineNo);
+                minHour = Math.min(minHour, hour);
+                maxHour = Math.max(maxHour, hour);
+            }
+        }
+        if (locationIds.isEmpty()) {
+            throw new IOException("No weather rows in " + csv);
+        }
+        long span = maxHour - minHour + 1;
+        if (span * VARIABLES * Double.BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Time range too long for one store file: " + span + " hours");
+        }
+        int hours = (int) span;
+
+        byte[] header = header(hours, minHour, locationIds.keySet());
+        long blockBytes = (long) VARIABLES * hours * Double.BYTES;
+        int rows = 0;
+
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(header), 0);
+
+            DoubleBuffer[] blocks = new DoubleBuffer[locationIds.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_WRITE,
+                        header.length + i * blockBytes, blockBytes);
+                blocks[i] = block.order(ByteOrder.BIG_ENDIAN).asDoubleBuffer();
+                for (int j = 0; j < VARIABLES * hours; j++) {
+                    blocks[i].put(j, Double.NaN);
+                }
+            }
+
+            // Second pass: write each value straight into its column
+            try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                int lineNo = 1;
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    String[] fields = splitCsv(line, lineNo);
+                    DoubleBuffer block = blocks[locationIds.get(fields[0].trim())];
+                    int hour = (int) (epochHour(fields[1], lineNo) - minHour);
+                    for (int v = 0; v < VARIABLES; v++) {
+                        block.put(v * hours + hour, parseValue(fields[2 + v], lineNo));
+                    }
+                    rows++;
+                }
+            }
+
+            for (DoubleBuffer block : blocks) {
+                for (int v = 0; v < VARIABLES; v++) {
+                    double last = 0;
+                    for (int h = 0; h < hours; h++) {
+                        int index = v * hours + h;
+                        double value = block.get(index);
+                        if (Double.isNaN(value)) {
+                            block.put(index, last);
+                        } else {
+                            last = value;
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] header(int hours, long startEpochHour, Iterable<String> names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<String> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(name);
+        }
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(hours);
+        out.writeInt(list.size());
+        out.writeLong(startEpochHour);
+        out.writeInt(0); // column offset, filled in below
+        out.writeInt(0);
+        for (String name : list) {
+            out.writeUTF(name);
+        }
+        out.flush();
+        byte[] header = bytes.toByteArray();
+        header = Arrays.copyOf(header, (int) align8(header.length));
+        ByteBuffer.wrap(header).putInt(24, header.length);
+        return header;
+    }
+
+    /**
+     * Split one CSV line. Fields may be quoted ("Quezon City, Metro Manila"), with "" for a quote inside.
+     */
+    private static String[] splitCsv(String line, int lineNo) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Line " + lineNo + ": unterminated quoted field");
+        }
+        fields.add(field.toString());
+        if (fields.size() < 2 + VARIABLES) {
+            throw new IOException("Line " + lineNo + ": expected location,timestamp,irradiance,wind_speed_kmh,river_flow_lps");
+        }
+        return fields.toArray(new String[0]);
+    }
+
+    private static long epochHour(String timestamp, int lineNo) throws IOException {
+        try {
+            LocalDateTime time = LocalDateTime.parse(timestamp.trim(), CSV_TIME);
+            return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+        } catch (RuntimeException e) {
+            throw new IOException("Line " + lineNo + ": invalid timestamp " + timestamp);
+        }
+    }
+
+    private static double parseValue(String value, int lineNo) throws IOException {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(trimmed);
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + lineNo + ": invalid number " + value);
+        }
+    }
+
+    private static long align8(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of weather store file");
+            }
+        }
+    }
+}
@@ -9,4 +9,11 @@ public class WindTurbine extends EnergySource {
     public double generateEnergy() {
         return capacityKwh * (avgWindSpeedKmh / 100);
     }
+
+    public void generateSeries(WeatherSeries weather, double[] out, int offset) {
+        double[] windSpeed = weather.getWindSpeedKmh();
+        for (int h = 0; h < windSpeed.length; h++) {
+            out[offset + h] = capacityKwh * (windSpeed[h] / 100);
+        }
+    }
 }
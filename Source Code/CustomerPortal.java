@@ -60,9 +60,16 @@ public class CustomerPortal extends JFrame {
     /**
      * Notify customer of maintenance status update (called from TechnicianFrame)
      */
-    public void notifyMaintenanceStatusUpdate(String ticketId, String newStatus) {
+    public void notifyMaintenanceStatusUpdate(String ticketId, String newStatus, String notes) {
         if (maintenanceRequestModel != null) {
-            // Reload maintenance requests from database
+            // Update only the changed row; reload if the ticket is not shown yet
+            for (int i = 0; i < maintenanceRequestModel.getRowCount(); i++) {
+                if (String.valueOf(maintenanceRequestModel.getValueAt(i, 0)).equals(ticketId)) {
+                    maintenanceRequestModel.setValueAt(newStatus, i, 5);
+                    maintenanceRequestModel.setValueAt(notes, i, 6);
+                    return;
+                }
+            }
             refreshMaintenanceRequests();
         }
     }
@@ -12,6 +12,13 @@ import util.MaintenanceDAO;
 import util.StockRequestDAO;
 import util.TechnicianJobDAO;
 import util.TechnicianDAO;
+import util.TechnicianDispatcher;
+import util.JobCompletionService;
+import util.JobChecklistDAO;
+import util.PartsFulfilmentService;
+import util.QuoteEngine;
+import util.CarbonLedger;
+import util.SpatialIndex;
 
 public class DashboardFrame extends JFrame {
 
@@ -43,6 +50,7 @@ public class DashboardFrame extends JFrame {
     private JLabel maintTotalTicketsLabel;
     private JLabel maintScheduledLabel;
     private JLabel maintCompletedLabel;
+    private JLabel maintChecklistLabel;
     private DefaultTableModel maintenanceTableModel;
 
     // Stock Requests summary labels + model
@@ -545,6 +553,11 @@ public class DashboardFrame extends JFrame {
         deleteButton.setForeground(new Color(180, 50, 50));
         deleteButton.setFocusPainted(false);
 
+        JButton quoteButton = new JButton("Quote System");
+        quoteButton.setBackground(Color.WHITE);
+        quoteButton.setForeground(new Color(0, 130, 70));
+        quoteButton.setFocusPainted(false);
+
         JButton exportButton = new JButton("Export");
         JButton importButton = new JButton("Import");
         
@@ -559,6 +572,7 @@ public class DashboardFrame extends JFrame {
         buttonBar.add(addButton);
         buttonBar.add(editButton);
         buttonBar.add(deleteButton);
+        buttonBar.add(quoteButton);
         buttonBar.add(Box.createHorizontalStrut(20));
         buttonBar.add(exportButton);
         buttonBar.add(importButton);
@@ -566,6 +580,7 @@ public class DashboardFrame extends JFrame {
         // CSV Export/Import actions
         exportButton.addActionListener(e -> CSVUtil.exportToCSV(salesTableModel, "sales_orders.csv", this));
         importButton.addActionListener(e -> importSalesOrdersFromCSV());
+        quoteButton.addActionListener(e -> openSystemQuoteDialog());
 
         // Actions
         addButton.addActionListener(e -> {
@@ -1637,9 +1652,14 @@ public class DashboardFrame extends JFrame {
         maintCompletedLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
         maintCompletedLabel.setForeground(new Color(0, 130, 70));
 
+        maintChecklistLabel = new JLabel("Checklist Progress: 0%");
+        maintChecklistLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        maintChecklistLabel.setForeground(new Color(0, 120, 200));
+
         summaryPanel.add(maintTotalTicketsLabel);
         summaryPanel.add(maintScheduledLabel);
         summaryPanel.add(maintCompletedLabel);
+        summaryPanel.add(maintChecklistLabel);
 
         top.add(Box.createVerticalStrut(6));
         top.add(summaryPanel);
@@ -1713,6 +1733,7 @@ public class DashboardFrame extends JFrame {
         JButton addButton = new JButton("Add Ticket");
         JButton editButton = new JButton("Edit Ticket");
         JButton deleteButton = new JButton("Delete Ticket");
+        JButton autoAssignButton = new JButton("Auto-Assign");
 
         addButton.setBackground(primaryOrange);
         addButton.setForeground(Color.BLACK);
@@ -1726,6 +1747,10 @@ public class DashboardFrame extends JFrame {
         deleteButton.setForeground(new Color(180, 50, 50));
         deleteButton.setFocusPainted(false);
 
+        autoAssignButton.setBackground(Color.WHITE);
+        autoAssignButton.setForeground(new Color(0, 130, 70));
+        autoAssignButton.setFocusPainted(false);
+
         JButton exportButton = new JButton("Export");
         JButton importButton = new JButton("Import");
         
@@ -1740,6 +1765,7 @@ public class DashboardFrame extends JFrame {
         buttonBar.add(addButton);
         buttonBar.add(editButton);
         buttonBar.add(deleteButton);
+        buttonBar.add(autoAssignButton);
         buttonBar.add(Box.createHorizontalStrut(20));
         buttonBar.add(exportButton);
         buttonBar.add(importButton);
@@ -1748,6 +1774,9 @@ public class DashboardFrame extends JFrame {
         exportButton.addActionListener(e -> CSVUtil.exportToCSV(maintenanceTableModel, "maintenance.csv", this));
         importButton.addActionListener(e -> importMaintenanceFromCSV());
 
+        // Assign all pending tickets to the least loaded technicians
+        autoAssignButton.addActionListener(e -> autoAssignPendingTickets());
+
         // Actions
         addButton.addActionListener(e -> {
             JTextField ticketIdField = new JTextField();
@@ -1852,6 +1881,27 @@ public class DashboardFrame extends JFrame {
             
             JTextField notesField = new JTextField(maintenanceTableModel.getValueAt(row, 9).toString());
 
+            // Technician field with a button that fills in the nearest technician with capacity on the date
+            JButton suggestButton = new JButton("Suggest");
+            suggestButton.setFocusPainted(false);
+            suggestButton.addActionListener(ev -> {
+                TechnicianDispatcher dispatcher = new TechnicianDispatcher();
+                SpatialIndex index = new SpatialIndex();
+                index.load();
+                String suggested = dispatcher.load()
+                        ? dispatcher.suggestTechnician(scheduleField.getText().trim(), addressField.getText().trim(), index)
+                        : null;
+                if (suggested != null) {
+                    techField.setText(suggested);
+                } else {
+                    JOptionPane.showMessageDialog(this, "No technician has capacity left on that date.",
+                            "No Technicians", JOptionPane.WARNING_MESSAGE);
+                }
+            });
+            JPanel techPanel = new JPanel(new BorderLayout(4, 0));
+            techPanel.add(techField, BorderLayout.CENTER);
+            techPanel.add(suggestButton, BorderLayout.EAST);
+
             JPanel form = new JPanel(new GridLayout(0, 2, 6, 4));
             form.add(new JLabel("Ticket ID:"));
             form.add(ticketIdField);
@@ -1868,7 +1918,7 @@ public class DashboardFrame extends JFrame {
             form.add(new JLabel("Schedule Date:"));
             form.add(scheduleField);
             form.add(new JLabel("Technician:"));
-            form.add(techField);
+            form.add(techPanel);
             form.add(new JLabel("Status:"));
             form.add(statusCombo);
             form.add(new JLabel("Notes:"));
@@ -1979,6 +2029,10 @@ public class DashboardFrame extends JFrame {
                 if (maintCompletedLabel != null) {
                     maintCompletedLabel.setText("Completed: " + completed);
                 }
+                if (maintChecklistLabel != null) {
+                    maintChecklistLabel.setText(String.format("Checklist Progress: %.0f%%",
+                            JobChecklistDAO.getOpenJobsCompletionPercent()));
+                }
             } else {
                 // Fallback to table-based calculation
                 int rows = maintenanceTableModel.getRowCount();
@@ -2060,6 +2114,191 @@ public class DashboardFrame extends JFrame {
         updateMaintenanceSummary();
     }
     
+    /**
+     * Size a solar system for a customer site and offer ranked bundles priced from
+     * inventory and the Solar Philippines catalog. The chosen bundle can be saved as a sales order.
+     */
+    private void openSystemQuoteDialog() {
+        JTextField customerField = new JTextField();
+        JTextField siteField = new JTextField();
+        JTextField loadField = new JTextField("10");
+        JTextField backupField = new JTextField("4");
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 6, 4));
+        form.add(new JLabel("Customer Name:"));
+        form.add(customerField);
+        form.add(new JLabel("Site Address:"));
+        form.add(siteField);
+        form.add(new JLabel("Daily Load (kWh):"));
+        form.add(loadField);
+        form.add(new JLabel("Battery Backup (hours):"));
+        form.add(backupField);
+
+        int result = JOptionPane.showConfirmDialog(this, form, "Quote System",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        double dailyLoad;
+        double backupHours;
+        try {
+            dailyLoad = Double.parseDouble(loadField.getText().trim());
+            backupHours = Double.parseDouble(backupField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Please enter valid numeric values for Daily Load and Battery Backup.",
+                    "Invalid Input", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        QuoteEngine engine = QuoteEngine.getInstance();
+        java.util.List<QuoteEngine.Product> catalog = new java.util.ArrayList<>();
+        for (SolarProduct product : getSolarPhilippinesProducts()) {
+            catalog.add(new QuoteEngine.Product(product.name, product.category, product.price));
+        }
+        engine.setCatalog(catalog);
+
+        String site = siteField.getText().trim();
+        java.util.List<QuoteEngine.Bundle> bundles = engine.quote(site, dailyLoad, backupHours);
+        if (bundles.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No bundle could be built for this load.", "Quote System",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        DefaultTableModel bundleModel = new DefaultTableModel(
+                new Object[]{"Rank", "Package", "Daily Yield (kWh)", "Total (₱)", "In Stock"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (int i = 0; i < bundles.size(); i++) {
+            QuoteEngine.Bundle bundle = bundles.get(i);
+            bundleModel.addRow(new Object[]{
+                    i + 1,
+                    bundle.getPackageName(),
+                    String.format("%.1f", bundle.dailyYieldKwh),
+                    String.format("%,.2f", bundle.totalPrice),
+                    bundle.allInStock ? "Yes" : "No"
+            });
+        }
+        JTable bundleTable = new JTable(bundleModel);
+        bundleTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        bundleTable.setRowHeight(24);
+        bundleTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        bundleTable.setRowSelectionInterval(0, 0);
+
+        JTextArea detailsArea = new JTextArea(8, 60);
+        detailsArea.setEditable(false);
+        detailsArea.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        Runnable showDetails = () -> {
+            int row = Math.max(0, bundleTable.getSelectedRow());
+            StringBuilder sb = new StringBuilder();
+            for (QuoteEngine.Line line : bundles.get(row).lines) {
+                sb.append(String.format("%d x %s [%s] @ ₱%,.2f = ₱%,.2f%n",
+                        line.quantity, line.itemName, line.source, line.unitPrice, line.getTotal()));
+            }
+            detailsArea.setText(sb.toString());
+            detailsArea.setCaretPosition(0);
+        };
+        bundleTable.getSelectionModel().addListSelectionListener(e -> showDetails.run());
+        showDetails.run();
+
+        JScrollPane bundleScroll = new JScrollPane(bundleTable);
+        bundleScroll.setPreferredSize(new Dimension(640, 150));
+        JPanel resultPanel = new JPanel(new BorderLayout(0, 8));
+        resultPanel.add(new JLabel(String.format("Peak sun hours at site (worst month): %.2f",
+                engine.peakSunHours(site))), BorderLayout.NORTH);
+        resultPanel.add(bundleScroll, BorderLayout.CENTER);
+        resultPanel.add(new JScrollPane(detailsArea), BorderLayout.SOUTH);
+
+        Object[] options = {"Create Order", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, resultPanel, "Quote System",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[1]);
+        if (choice != 0) {
+            return;
+        }
+
+        QuoteEngine.Bundle selected = bundles.get(Math.max(0, bundleTable.getSelectedRow()));
+        String orderId = "SO-QT-" + (System.currentTimeMillis() % 100000);
+        if (SalesOrderDAO.addOrder(orderId, customerField.getText().trim(), LocalDate.now().toString(),
+                selected.getPackageName(), 1, selected.totalPrice, selected.totalPrice, "Pending", "")) {
+            SalesOrderDAO.loadToTableModel(salesTableModel);
+            updateSalesSummary();
+            JOptionPane.showMessageDialog(this, "Order " + orderId + " created from the quote.", "Success",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to add order to database.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Auto-assign all pending maintenance tickets using the dispatch engine.
+     * Tickets are ordered by priority and schedule date, technicians by open job count.
+     */
+    private void autoAssignPendingTickets() {
+        if (!DatabaseConnection.testConnection()) {
+            JOptionPane.showMessageDialog(this, "Database is not available.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        TechnicianDispatcher dispatcher = new TechnicianDispatcher();
+        if (!dispatcher.load()) {
+            JOptionPane.showMessageDialog(this, "Failed to load pending tickets.", "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (dispatcher.getTechnicianCount() == 0) {
+            JOptionPane.showMessageDialog(this, "There are no approved technicians to assign.", "No Technicians",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        java.util.List<TechnicianDispatcher.Assignment> assignments = dispatcher.assignAll();
+
+        // Notify technicians that are currently logged in (one message per technician)
+        java.util.Map<String, Integer> jobsPerTechnician = new java.util.HashMap<>();
+        for (TechnicianDispatcher.Assignment a : assignments) {
+            jobsPerTechnician.merge(a.technicianEmail, 1, Integer::sum);
+        }
+        for (java.util.Map.Entry<String, Integer> entry : jobsPerTechnician.entrySet()) {
+            TechnicianFrame techFrame = TechnicianFrame.getInstanceByEmail(entry.getKey());
+            if (techFrame != null) {
+                techFrame.notifyNewJobs(entry.getValue());
+            }
+        }
+
+        MaintenanceDAO.loadToTableModel(maintenanceTableModel);
+        updateMaintenanceSummary();
+
+        JOptionPane.showMessageDialog(this,
+                "Assigned tickets: " + assignments.size() + "\n" +
+                "Still pending (no technician capacity): " + dispatcher.getPendingCount(),
+                "Auto-Assign",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Called from TechnicianFrame when a job is completed: update only the changed ticket row.
+     */
+    public void notifyMaintenanceRowUpdated(String ticketId, String status, String notes) {
+        if (maintenanceTableModel == null || ticketId == null) {
+            return;
+        }
+        for (int i = 0; i < maintenanceTableModel.getRowCount(); i++) {
+            if (ticketId.equals(String.valueOf(maintenanceTableModel.getValueAt(i, 0)))) {
+                maintenanceTableModel.setValueAt(status, i, 8);
+                maintenanceTableModel.setValueAt(notes, i, 9);
+                break;
+            }
+        }
+        updateMaintenanceSummary();
+    }
+
     /**
      * Called when admin approves maintenance and assigns technician
      * Creates technician job and notifies technician
@@ -2084,9 +2323,12 @@ public class DashboardFrame extends JFrame {
         
         // Create technician job first
         boolean jobCreated = TechnicianJobDAO.addJob(jobId, technicianEmail.trim(), customerName, address, equipment,
-                serviceType, scheduleDate, scheduleTime, "Pending", "Normal");
+                serviceType, scheduleDate, scheduleTime, "Pending",
+                TechnicianDispatcher.priorityFor(serviceType, null));
         
         if (jobCreated) {
+            JobCompletionService.linkTicket(jobId, ticketId);
+
             // Update maintenance status to "Scheduled" with technician assigned
             MaintenanceDAO.updateMaintenance(ticketId, customerName, "", address, equipment,
                     serviceType, scheduleDate, technicianEmail, "Scheduled", "");
@@ -2246,6 +2488,7 @@ public class DashboardFrame extends JFrame {
         JButton requestStockButton = new JButton("Request Stock from Solar Philippines");
         JButton editButton = new JButton("Edit Status");
         JButton deleteButton = new JButton("Delete Request");
+        JButton fulfilPartsButton = new JButton("Fulfil Parts Requests");
         
         requestStockButton.setBackground(new Color(0, 120, 200));
         requestStockButton.setForeground(Color.BLACK);
@@ -2270,9 +2513,14 @@ public class DashboardFrame extends JFrame {
         importButton.setForeground(Color.BLACK);
         importButton.setFocusPainted(false);
         
+        fulfilPartsButton.setBackground(Color.WHITE);
+        fulfilPartsButton.setForeground(new Color(0, 130, 70));
+        fulfilPartsButton.setFocusPainted(false);
+
         buttonBar.add(requestStockButton);
         buttonBar.add(editButton);
         buttonBar.add(deleteButton);
+        buttonBar.add(fulfilPartsButton);
         buttonBar.add(Box.createHorizontalStrut(20));
         buttonBar.add(exportButton);
         buttonBar.add(importButton);
@@ -2284,6 +2532,9 @@ public class DashboardFrame extends JFrame {
         // Actions
         requestStockButton.addActionListener(e -> openRequestStockFromSolarPhilippinesDialog());
 
+        // Reserve inventory for queued technician parts requests; shortfalls become stock requests
+        fulfilPartsButton.addActionListener(e -> fulfilPartsBacklog(fulfilPartsButton));
+
         editButton.addActionListener(e -> {
             int row = table.getSelectedRow();
             if (row == -1) {
@@ -2397,6 +2648,51 @@ public class DashboardFrame extends JFrame {
         return panel;
     }
 
+    /**
+     * Run the parts fulfilment backlog off the event thread; the button is disabled meanwhile.
+     */
+    private void fulfilPartsBacklog(JButton fulfilPartsButton) {
+        fulfilPartsButton.setEnabled(false);
+        new SwingWorker<PartsFulfilmentService.Result, Void>() {
+            @Override
+            protected PartsFulfilmentService.Result doInBackground() {
+                if (!DatabaseConnection.testConnection()) {
+                    return null;
+                }
+                return PartsFulfilmentService.processBacklog();
+            }
+
+            @Override
+            protected void done() {
+                fulfilPartsButton.setEnabled(true);
+                PartsFulfilmentService.Result result;
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(DashboardFrame.this, "Failed to process parts requests.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (result == null) {
+                    return;
+                }
+                StockRequestDAO.loadToTableModel(stockRequestsTableModel);
+                updateStockRequestsSummary();
+                if (inventoryTableModel != null) {
+                    InventoryDAO.loadToTableModel(inventoryTableModel);
+                    updateInventorySummary();
+                }
+                JOptionPane.showMessageDialog(DashboardFrame.this,
+                        "Reserved: " + result.reserved + "\n" +
+                        "Backordered: " + result.backordered + "\n" +
+                        "Unknown parts: " + result.unknownParts + "\n" +
+                        "Stock requests created: " + result.stockRequestsCreated,
+                        "Parts Fulfilment",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        }.execute();
+    }
+
     private void updateStockRequestsSummary() {
         if (stockRequestsTableModel == null) {
             return;
@@ -2478,12 +2774,12 @@ public class DashboardFrame extends JFrame {
         // Top section: title + controls
         JPanel top = createSectionHeader(
                 "Reports",
-                "Generate simple summary reports for sales, inventory levels, and suppliers."
+                "Generate simple summary reports for sales, inventory levels, suppliers, and carbon offsets."
         );
 
         JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         JLabel typeLabel = new JLabel("Report Type:");
-        String[] reportTypes = {"Sales Report", "Inventory Report", "Supplier Report"};
+        String[] reportTypes = {"Sales Report", "Inventory Report", "Supplier Report", "Carbon Offset Report"};
         JComboBox<String> reportTypeCombo = new JComboBox<>(reportTypes);
         JButton generateButton = new JButton("Generate Report");
         generateButton.setBackground(primaryOrange);
@@ -2534,6 +2830,9 @@ public class DashboardFrame extends JFrame {
                 case "Supplier Report":
                     buildSupplierReportTable(reportModel);
                     break;
+                case "Carbon Offset Report":
+                    buildCarbonReportTable(reportModel);
+                    break;
                 default:
                     break;
             }
@@ -2895,6 +3194,64 @@ public class DashboardFrame extends JFrame {
         }
     }
 
+    private void buildCarbonReportTable(DefaultTableModel model) {
+        model.setRowCount(0);
+        model.setColumnCount(0);
+        model.setColumnIdentifiers(new Object[]{
+                "Level", "Name", "Region", "Month", "kWh Produced", "CO2 Avoided (kg)"
+        });
+
+        CarbonLedger ledger = CarbonLedger.getInstance();
+        if (DatabaseConnection.testConnection()) {
+            ledger.loadInstalledSystems();
+        }
+
+        java.util.List<java.time.YearMonth> months = ledger.getMonths();
+        if (months.isEmpty()) {
+            if (repTitleLabel != null) repTitleLabel.setText("Carbon Offset Report (No Data)");
+            if (repSummaryLabel != null) repSummaryLabel.setText("No recorded production yet.");
+            return;
+        }
+
+        // Regions per month (latest first), then customer totals over all months
+        double totalKwh = 0.0;
+        double totalCo2Kg = 0.0;
+        for (int i = months.size() - 1; i >= 0; i--) {
+            for (CarbonLedger.Row row : ledger.rollup(CarbonLedger.Level.REGION, months.get(i))) {
+                model.addRow(new Object[]{
+                        "Region",
+                        row.name,
+                        row.region,
+                        row.month.toString(),
+                        String.format("%.1f", row.kwh),
+                        String.format("%.1f", row.co2Kg)
+                });
+                totalKwh += row.kwh;
+                totalCo2Kg += row.co2Kg;
+            }
+        }
+        for (CarbonLedger.Row row : ledger.rollup(CarbonLedger.Level.CUSTOMER, null)) {
+            model.addRow(new Object[]{
+                    "Customer",
+                    row.name,
+                    row.region,
+                    "All",
+                    String.format("%.1f", row.kwh),
+                    String.format("%.1f", row.co2Kg)
+            });
+        }
+
+        if (repTitleLabel != null) {
+            repTitleLabel.setText("Carbon Offset Report - Production and CO2 Avoided");
+        }
+        if (repSummaryLabel != null) {
+            repSummaryLabel.setText(String.format(
+                    "Systems: %d   |   Total Produced: %.1f kWh   |   CO2 Avoided: %.2f t",
+                    ledger.getUnitCount(), totalKwh, totalCo2Kg / 1000
+            ));
+        }
+    }
+
     private void buildSupplierReportTable(DefaultTableModel model) {
         if (suppliersTableModel == null) {
             model.setRowCount(0);
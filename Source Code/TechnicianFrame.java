@@ -7,8 +7,11 @@ import util.TechnicianJobDAO;
 import util.PartsRequestDAO;
 import util.TechnicianIssueDAO;
 import util.CustomerIssueDAO;
-import util.MaintenanceDAO;
 import util.TechnicianDAO;
+import util.RouteOptimizer;
+import util.JobCompletionService;
+import util.JobChecklistDAO;
+import util.PartsFulfilmentService;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import javax.swing.SwingUtilities;
@@ -102,6 +105,26 @@ public class TechnicianFrame extends JFrame {
         }
     }
 
+    /**
+     * Notify technician of several new jobs at once (called from DashboardFrame auto-assign)
+     */
+    public void notifyNewJobs(int jobCount) {
+        if (jobsTableModel != null && jobCount > 0) {
+            try {
+                if (DatabaseConnection.testConnection()) {
+                    TechnicianJobDAO.loadToTableModel(jobsTableModel, technicianEmail);
+
+                    JOptionPane.showMessageDialog(this,
+                        jobCount + " new job(s) assigned to you.",
+                        "New Job Assignment",
+                        JOptionPane.INFORMATION_MESSAGE);
+                }
+            } catch (Exception e) {
+                System.err.println("Error refreshing technician jobs: " + e.getMessage());
+            }
+        }
+    }
+
     private void initComponents() {
         Color primaryOrange = new Color(255, 140, 0);
         Color softOrange = new Color(255, 220, 170);
@@ -322,6 +345,7 @@ public class TechnicianFrame extends JFrame {
         JButton viewButton = new JButton("View / Checklist");
         JButton completeButton = new JButton("Mark Complete");
         JButton issueButton = new JButton("Report Issue");
+        JButton routeButton = new JButton("Optimize Route");
 
         viewButton.setBackground(primaryOrange);
         viewButton.setForeground(Color.BLACK);
@@ -335,6 +359,10 @@ public class TechnicianFrame extends JFrame {
         issueButton.setForeground(new Color(0, 120, 200));
         issueButton.setFocusPainted(false);
 
+        routeButton.setBackground(Color.WHITE);
+        routeButton.setForeground(new Color(0, 130, 70));
+        routeButton.setFocusPainted(false);
+
         JButton exportButton = new JButton("Export");
         JButton importButton = new JButton("Import");
         
@@ -349,6 +377,7 @@ public class TechnicianFrame extends JFrame {
         buttonBar.add(viewButton);
         buttonBar.add(completeButton);
         buttonBar.add(issueButton);
+        buttonBar.add(routeButton);
         buttonBar.add(Box.createHorizontalStrut(20));
         buttonBar.add(exportButton);
         buttonBar.add(importButton);
@@ -360,6 +389,7 @@ public class TechnicianFrame extends JFrame {
         viewButton.addActionListener(e -> openChecklistDialog(panel, table));
         completeButton.addActionListener(e -> markJobComplete(table));
         issueButton.addActionListener(e -> openIssueDialogFromJob(panel, table));
+        routeButton.addActionListener(e -> optimizeRoute(routeButton));
 
         panel.add(top, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
@@ -379,16 +409,26 @@ public class TechnicianFrame extends JFrame {
         String jobId = jobsTable.getValueAt(row, 0).toString();
         String customer = jobsTable.getValueAt(row, 1).toString();
 
-        JCheckBox preCheck = new JCheckBox("Pre-check completed (tools, PPE, site readiness)");
-        JCheckBox safety = new JCheckBox("Safety checks done (isolation, lock-out, signage)");
-        JCheckBox install = new JCheckBox("Installation / maintenance steps completed");
-        JCheckBox testing = new JCheckBox("Testing & verification completed (readings recorded)");
-        JCheckBox handover = new JCheckBox("Customer handover & explanation done");
+        JCheckBox preCheck = new JCheckBox(JobChecklistDAO.STEPS[0]);
+        JCheckBox safety = new JCheckBox(JobChecklistDAO.STEPS[1]);
+        JCheckBox install = new JCheckBox(JobChecklistDAO.STEPS[2]);
+        JCheckBox testing = new JCheckBox(JobChecklistDAO.STEPS[3]);
+        JCheckBox handover = new JCheckBox(JobChecklistDAO.STEPS[4]);
+        JCheckBox[] stepBoxes = {preCheck, safety, install, testing, handover};
 
         JTextArea notesArea = new JTextArea(4, 25);
         notesArea.setLineWrap(true);
         notesArea.setWrapStyleWord(true);
 
+        // Pre-fill with the last saved checklist
+        if (DatabaseConnection.testConnection()) {
+            JobChecklistDAO.Checklist saved = JobChecklistDAO.getLatest(jobId);
+            for (int i = 0; i < stepBoxes.length; i++) {
+                stepBoxes[i].setSelected(saved.completed[i]);
+            }
+            notesArea.setText(saved.notes);
+        }
+
         JPanel form = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(4, 4, 4, 4);
@@ -425,11 +465,16 @@ public class TechnicianFrame extends JFrame {
         );
 
         if (result == JOptionPane.OK_OPTION) {
-            boolean allCompleted = preCheck.isSelected() && safety.isSelected() && install.isSelected()
-                    && testing.isSelected() && handover.isSelected();
+            boolean[] completed = new boolean[stepBoxes.length];
+            boolean allCompleted = true;
+            for (int i = 0; i < stepBoxes.length; i++) {
+                completed[i] = stepBoxes[i].isSelected();
+                allCompleted = allCompleted && completed[i];
+            }
             
-            // Update checklist in database
+            // Record each step (with notes) and keep the job's completed flag in sync
             if (DatabaseConnection.testConnection()) {
+                JobChecklistDAO.saveChecklist(jobId, technicianEmail, completed, notesArea.getText().trim());
                 TechnicianJobDAO.updateChecklistCompleted(jobId, allCompleted);
             }
             
@@ -452,6 +497,118 @@ public class TechnicianFrame extends JFrame {
         }
     }
 
+    /**
+     * Reorder this technician's open jobs per day to reduce travel between sites.
+     * The proposed order and times are shown first and only written once confirmed.
+     */
+    private void optimizeRoute(JButton routeButton) {
+        // Database and geocoding work runs off the event thread; the button is disabled meanwhile
+        routeButton.setEnabled(false);
+        new SwingWorker<RouteOptimizer.Plan, Void>() {
+            private boolean connected;
+
+            @Override
+            protected RouteOptimizer.Plan doInBackground() {
+                connected = DatabaseConnection.testConnection();
+                return connected ? RouteOptimizer.plan(technicianEmail) : null;
+            }
+
+            @Override
+            protected void done() {
+                if (!connected) {
+                    routeButton.setEnabled(true);
+                    return;
+                }
+                RouteOptimizer.Plan plan;
+                try {
+                    plan = get();
+                } catch (Exception ex) {
+                    plan = null;
+                }
+                if (plan == null) {
+                    routeButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(TechnicianFrame.this, "Failed to optimize route.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (plan.getChanges().isEmpty()) {
+                    routeButton.setEnabled(true);
+                    JOptionPane.showMessageDialog(TechnicianFrame.this, "No open jobs to optimize.",
+                            "Optimize Route", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                if (confirmRoutePlan(plan)) {
+                    saveRoutePlan(plan, routeButton);
+                } else {
+                    routeButton.setEnabled(true);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Show the proposed visiting order and time slots; returns true if the technician applies them.
+     */
+    private boolean confirmRoutePlan(RouteOptimizer.Plan plan) {
+        DefaultTableModel model = new DefaultTableModel(
+                new String[]{"Date", "Stop", "Job ID", "Current Time", "New Time"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (RouteOptimizer.Change change : plan.getChanges()) {
+            model.addRow(new Object[]{
+                    change.scheduleDate,
+                    change.routeOrder,
+                    change.jobId,
+                    change.currentTime != null ? change.currentTime.toString() : "-",
+                    change.proposedTime != null ? change.proposedTime.toString()
+                            + (change.isTimeChanged() ? " (changed)" : "") : "-"
+            });
+        }
+        JTable table = new JTable(model);
+        table.getTableHeader().setReorderingAllowed(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(560, 260));
+
+        JPanel content = new JPanel(new BorderLayout(0, 10));
+        content.add(new JLabel(plan.getTimeChangeCount() + " job time(s) will change. Apply this route?"),
+                BorderLayout.NORTH);
+        content.add(scrollPane, BorderLayout.CENTER);
+
+        return JOptionPane.showConfirmDialog(this, content, "Optimize Route",
+                JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    private void saveRoutePlan(RouteOptimizer.Plan plan, JButton routeButton) {
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return plan.save();
+            }
+
+            @Override
+            protected void done() {
+                routeButton.setEnabled(true);
+                Integer updated;
+                try {
+                    updated = get();
+                } catch (Exception ex) {
+                    updated = -1;
+                }
+                if (updated >= 0) {
+                    TechnicianJobDAO.loadToTableModel(jobsTableModel, technicianEmail);
+                    JOptionPane.showMessageDialog(TechnicianFrame.this, "Route optimized for " + updated + " open job(s).",
+                            "Optimize Route", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(TechnicianFrame.this, "Failed to optimize route.", "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
     private void markJobComplete(JTable jobsTable) {
         int row = jobsTable.getSelectedRow();
         if (row == -1) {
@@ -469,31 +626,32 @@ public class TechnicianFrame extends JFrame {
 
         if (option == JOptionPane.YES_OPTION) {
             String jobId = (String) jobsTableModel.getValueAt(row, 0);
-            String customerName = (String) jobsTableModel.getValueAt(row, 1);
             
             if (DatabaseConnection.testConnection()) {
-                if (TechnicianJobDAO.updateJobStatus(jobId, "Completed")) {
-                    TechnicianJobDAO.loadToTableModel(jobsTableModel, technicianEmail);
+                // Job and maintenance ticket are updated in one transaction
+                JobCompletionService.Completion done = JobCompletionService.complete(jobId, technicianEmail);
+                if (done != null) {
+                    // Update only the changed row (column 6 = Status)
+                    jobsTableModel.setValueAt(JobCompletionService.COMPLETED, row, 6);
                     
-                    // Find maintenance ticket by job ID (jobId format: JOB-MT-xxxxx)
-                    // Extract ticket ID from job ID
-                    String ticketId = jobId.replace("JOB-", "MT-");
-                    
-                    // Update maintenance status to "Completed"
-                    if (MaintenanceDAO.updateMaintenance(ticketId, customerName, "", "", "",
-                            "", "", technicianEmail, "Completed", "Job completed by technician")) {
+                    if (done.ticketId != null) {
+                        // Notify customer in real-time (portal is keyed by email)
+                        CustomerPortal portal = done.customerEmail != null
+                                ? CustomerPortal.getInstanceByEmail(done.customerEmail) : null;
+                        if (portal != null) {
+                            portal.notifyMaintenanceStatusUpdate(done.ticketId, JobCompletionService.COMPLETED, done.notes);
+                        }
                         
-                        // Notify customer in real-time
-                        // Find customer portal by customer name
-                        for (CustomerPortal portal : CustomerPortal.customerInstances.values()) {
-                            if (portal.getCustomerName() != null && portal.getCustomerName().equals(customerName)) {
-                                portal.notifyMaintenanceStatusUpdate(ticketId, "Completed");
-                                break;
-                            }
+                        DashboardFrame dashboard = DashboardFrame.getCurrentInstance();
+                        if (dashboard != null) {
+                            dashboard.notifyMaintenanceRowUpdated(done.ticketId, JobCompletionService.COMPLETED, done.notes);
                         }
                     }
                     
-                    JOptionPane.showMessageDialog(this, "Job marked as completed.", "Job Completed",
+                    String message = done.ticketId != null ? "Job marked as completed."
+                            : "Job marked as completed.\nNo single maintenance ticket matched this job; "
+                              + "please update its ticket from the admin dashboard.";
+                    JOptionPane.showMessageDialog(this, message, "Job Completed",
                             JOptionPane.INFORMATION_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(this, "Failed to update job status.", "Error",
@@ -683,6 +841,9 @@ public class TechnicianFrame extends JFrame {
                 // Save to database
                 if (DatabaseConnection.testConnection()) {
                     if (PartsRequestDAO.addRequest(requestId, technicianEmail, part, qty, requestDate, status, notes)) {
+                        // Try to reserve the part from inventory straight away
+                        PartsFulfilmentService.Result fulfilment = PartsFulfilmentService.submit(requestId);
+                        
                         // Reload from database
                         PartsRequestDAO.loadToTableModel(partsTableModel, technicianEmail);
                         
@@ -691,6 +852,13 @@ public class TechnicianFrame extends JFrame {
                         message += "Part: " + part + "\n";
                         message += "Quantity: " + qty + "\n";
                         message += "Urgency: " + urgency + "\n";
+                        if (fulfilment.reserved > 0) {
+                            message += "Stock: Reserved from inventory\n";
+                        } else if (fulfilment.backordered > 0) {
+                            message += "Stock: Backordered (restock requested)\n";
+                        } else if (fulfilment.unknownParts > 0) {
+                            message += "Stock: Part not found in inventory\n";
+                        }
                         if (!reason.isEmpty()) {
                             message += "Reason: " + reason + "\n";
                         }
@@ -0,0 +1,326 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Production and CO2-avoided ledger for installed systems.
+ *
+ * Units are registered once with their site and customer; the site's grid region (Luzon,
+ * Visayas or Mindanao, from SiteGeocoder coordinates) fixes the unit's emission factor.
+ * Each recorded kWh, measured or simulated, is added straight into the unit, site,
+ * customer and region totals of its month. The totals are DoubleAdders, so many threads
+ * can record at once without contending on a lock, and reports read the rollups without
+ * re-running any generation model.
+ */
+public final class CarbonLedger {
+
+    /** Rollup level of a ledger row */
+    public enum Level { UNIT, SITE, CUSTOMER, REGION }
+
+    public static final String LUZON = "Luzon";
+    public static final String VISAYAS = "Visayas";
+    public static final String MINDANAO = "Mindanao";
+    public static final String UNKNOWN_REGION = "Unknown";
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Manila");
+
+    // Centre of each grid, a site belongs to the nearest one
+    private static final String[] REGIONS = {LUZON, VISAYAS, MINDANAO};
+    private static final double[][] REGION_CENTRES = {{15.5, 121.0}, {10.8, 123.5}, {7.5, 125.0}};
+
+    private static final Pattern KILOWATTS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*kW(?!h)", Pattern.CASE_INSENSITIVE);
+
+    private static CarbonLedger instance;
+
+    /**
+     * kWh and kg CO2 of one name (unit, site, customer or region) in one month.
+     */
+    private static class Totals {
+        final String name;
+        final String region;
+        final YearMonth month;
+        final DoubleAdder kwh = new DoubleAdder();
+        final DoubleAdder co2Kg = new DoubleAdder();
+
+        Totals(String name, String region, YearMonth month) {
+            this.name = name;
+            this.region = region;
+            this.month = month;
+        }
+    }
+
+    /**
+     * The four totals a unit adds to in one month, and that month's bounds.
+     */
+    private static class MonthCells {
+        final long startMillis;
+        final long endMillis;
+        final Totals[] totals;
+
+        MonthCells(YearMonth month, Totals[] totals) {
+            this.startMillis = month.atDay(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+            this.endMillis = month.plusMonths(1).atDay(1).atStartOfDay(ZONE).toInstant().toEpochMilli();
+            this.totals = totals;
+        }
+    }
+
+    private static class Unit {
+        final String id;
+        final String site;
+        final String customer;
+        final String region;
+        volatile MonthCells cells;
+        YearMonth simulatedThrough;
+
+        Unit(String id, String site, String customer, String region) {
+            this.id = id;
+            this.site = site;
+            this.customer = customer;
+            this.region = region;
+        }
+    }
+
+    /**
+     * One row of a ledger report. month is null for totals over all months.
+     */
+    public static class Row {
+        public final String name;
+        public final String region;
+        public final YearMonth month;
+        public final double kwh;
+        public final double co2Kg;
+
+        Row(String name, String region, YearMonth month, double kwh, double co2Kg) {
+            this.name = name;
+            this.region = region;
+            this.month = month;
+            this.kwh = kwh;
+            this.co2Kg = co2Kg;
+        }
+    }
+
+    private final Map<String, Double> factorsByRegion = new ConcurrentHashMap<>();
+    private final Map<String, Unit> units = new ConcurrentHashMap<>();
+    private final Map<Level, Map<String, Totals>> rollups = new HashMap<>();
+
+    private CarbonLedger() {
+        // Grid emission factors in kg CO2 per kWh (approximate operating margins)
+        factorsByRegion.put(LUZON, 0.71);
+        factorsByRegion.put(VISAYAS, 0.71);
+        factorsByRegion.put(MINDANAO, 0.65);
+        factorsByRegion.put(UNKNOWN_REGION, 0.70);
+        for (Level level : Level.values()) {
+            rollups.put(level, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static synchronized CarbonLedger getInstance() {
+        if (instance == null) {
+            instance = new CarbonLedger();
+        }
+        return instance;
+    }
+
+    /**
+     * Set the grid emission factor (kg CO2 per kWh) of a region. Applies to kWh recorded afterwards.
+     */
+    public void setEmissionFactor(String region, double kgPerKwh) {
+        factorsByRegion.put(region, kgPerKwh);
+    }
+
+    public double getEmissionFactor(String region) {
+        Double factor = factorsByRegion.get(region);
+        return factor != null ? factor : factorsByRegion.get(UNKNOWN_REGION);
+    }
+
+    /**
+     * Grid region of an address, or UNKNOWN_REGION if the address cannot be located.
+     */
+    public static String regionOf(String address) {
+        double[] location = SiteGeocoder.getInstance().locate(address);
+        if (location == null) {
+            return UNKNOWN_REGION;
+        }
+        String nearest = UNKNOWN_REGION;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < REGIONS.length; i++) {
+            double distance = SiteGeocoder.distanceKm(location[0], location[1],
+                    REGION_CENTRES[i][0], REGION_CENTRES[i][1]);
+            if (distance < best) {
+                best = distance;
+                nearest = REGIONS[i];
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Register a unit (an EnergySource or an installed system) before recording its output.
+     * Registering an existing unit again keeps its history.
+     */
+    public void registerUnit(String unitId, String siteAddress, String customer) {
+        String site = siteAddress == null || siteAddress.trim().isEmpty() ? "(no address)" : siteAddress.trim();
+        String owner = customer == null || customer.trim().isEmpty() ? "(no customer)" : customer.trim();
+        units.computeIfAbsent(unitId, id -> new Unit(id, site, owner, regionOf(site)));
+    }
+
+    /**
+     * Record kWh produced by a unit at a time (epoch millis). Safe to call from many threads.
+     * Returns false if the unit is not registered.
+     */
+    public boolean record(String unitId, long timestampMillis, double kwh) {
+        Unit unit = units.get(unitId);
+        if (unit == null) {
+            return false;
+        }
+        MonthCells cells = unit.cells;
+        if (cells == null || timestampMillis < cells.startMillis || timestampMillis >= cells.endMillis) {
+            YearMonth month = YearMonth.from(Instant.ofEpochMilli(timestampMillis).atZone(ZONE));
+            cells = new MonthCells(month, cellsFor(unit, month));
+            unit.cells = cells;
+        }
+        double co2Kg = kwh * getEmissionFactor(unit.region);
+        for (Totals totals : cells.totals) {
+            totals.kwh.add(kwh);
+            totals.co2Kg.add(co2Kg);
+        }
+        return true;
+    }
+
+    /**
+     * Record a whole month of a unit's output at once (e.g. a simulated monthly total).
+     */
+    public boolean record(String unitId, YearMonth month, double kwh) {
+        return record(unitId, month.atDay(1).atStartOfDay(ZONE).toInstant().toEpochMilli(), kwh);
+    }
+
+    private Totals[] cellsFor(Unit unit, YearMonth month) {
+        return new Totals[]{
+                totals(Level.UNIT, unit.id, unit.region, month),
+                totals(Level.SITE, unit.site, unit.region, month),
+                totals(Level.CUSTOMER, unit.customer, unit.region, month),
+                totals(Level.REGION, unit.region, unit.region, month)
+        };
+    }
+
+    private Totals totals(Level level, String name, String region, YearMonth month) {
+        // A customer with sites in several regions gets one row per region
+        String key = level == Level.CUSTOMER ? name + "|" + region + "|" + month : name + "|" + month;
+        return rollups.get(level).computeIfAbsent(key, k -> new Totals(name, region, month));
+    }
+
+    /**
+     * Simulate the output of installed systems from SALES_ORDERS: every paid, completed or
+     * delivered order whose package names a kW rating (e.g. "5.0 kW Solar + 10.0 kWh Battery")
+     * is a unit at the customer's address. Each complete month since the order date is recorded
+     * once, from the QuoteEngine yield model. Returns the number of months recorded, or -1 on error.
+     * Orders are matched to accounts by name, which is not unique: a name shared by several
+     * accounts gives no address (and so the unknown region) rather than a guessed one.
+     */
+    public synchronized int loadInstalledSystems() {
+        String sql = "SELECT s.order_id, s.customer_name, s.order_date, s.item_package, s.quantity, c.address " +
+                "FROM sales_orders s LEFT JOIN (SELECT full_name, MIN(address) AS address FROM customer_accounts " +
+                "GROUP BY full_name HAVING COUNT(*) = 1) c ON c.full_name = s.customer_name " +
+                "WHERE LOWER(s.status) IN ('paid', 'completed', 'delivered')";
+
+        Map<String, Object[]> systems = new LinkedHashMap<>();
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    Matcher m = KILOWATTS.matcher(rs.getString("item_package"));
+                    if (!m.find() || rs.getDate("order_date") == null) {
+                        continue;
+                    }
+                    double pvWatts = Double.parseDouble(m.group(1)) * 1000 * Math.max(1, rs.getInt("quantity"));
+                    systems.putIfAbsent(rs.getString("order_id"), new Object[]{
+                            rs.getString("customer_name"), rs.getString("address"),
+                            rs.getDate("order_date").toLocalDate(), pvWatts});
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading installed systems for carbon ledger: " + e.getMessage());
+            return -1;
+        }
+
+        QuoteEngine yieldModel = QuoteEngine.getInstance();
+        YearMonth lastComplete = YearMonth.now(ZONE).minusMonths(1);
+        int recorded = 0;
+        for (Map.Entry<String, Object[]> system : systems.entrySet()) {
+            String unitId = system.getKey();
+            String customer = (String) system.getValue()[0];
+            String address = (String) system.getValue()[1];
+            LocalDate orderDate = (LocalDate) system.getValue()[2];
+            double pvWatts = (Double) system.getValue()[3];
+
+            registerUnit(unitId, address, customer);
+            Unit unit = units.get(unitId);
+            // Production starts the month after the order; months already recorded are skipped
+            YearMonth month = unit.simulatedThrough != null
+                    ? unit.simulatedThrough.plusMonths(1) : YearMonth.from(orderDate).plusMonths(1);
+            for (; !month.isAfter(lastComplete); month = month.plusMonths(1)) {
+                record(unitId, month, yieldModel.monthlyYieldKwh(unit.site, pvWatts, month));
+                unit.simulatedThrough = month;
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * Ledger rows of one level, largest production first.
+     *
+     * @param month a single month, or null to total every month per name
+     */
+    public List<Row> rollup(Level level, YearMonth month) {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (Totals totals : rollups.get(level).values()) {
+            if (month != null && !month.equals(totals.month)) {
+                continue;
+            }
+            String key = month != null ? totals.name + "|" + totals.region + "|" + month : totals.name + "|" + totals.region;
+            Row previous = rows.get(key);
+            double kwh = totals.kwh.sum() + (previous != null ? previous.kwh : 0);
+            double co2Kg = totals.co2Kg.sum() + (previous != null ? previous.co2Kg : 0);
+            rows.put(key, new Row(totals.name, totals.region, month, kwh, co2Kg));
+        }
+        List<Row> result = new ArrayList<>(rows.values());
+        result.sort((a, b) -> Double.compare(b.kwh, a.kwh));
+        return result;
+    }
+
+    /**
+     * Months that have any recorded production, oldest first.
+     */
+    public List<YearMonth> getMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (Totals totals : rollups.get(Level.REGION).values()) {
+            if (!months.contains(totals.month)) {
+                months.add(totals.month);
+            }
+        }
+        months.sort(null);
+        return months;
+    }
+
+    public int getUnitCount() {
+        return units.size();
+    }
+}
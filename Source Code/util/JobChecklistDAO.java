@@ -0,0 +1,195 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Data access for technician job checklists.
+ * Every save appends one row per step to JOB_CHECKLIST_STEPS (the history), and
+ * JOB_CHECKLIST_CURRENT keeps the latest completed count per job so the dashboard
+ * can poll overall progress without scanning the history.
+ */
+public final class JobChecklistDAO {
+
+    /** Checklist steps in display order (step number = index + 1) */
+    public static final String[] STEPS = {
+            "Pre-check completed (tools, PPE, site readiness)",
+            "Safety checks done (isolation, lock-out, signage)",
+            "Installation / maintenance steps completed",
+            "Testing & verification completed (readings recorded)",
+            "Customer handover & explanation done"
+    };
+
+    private static boolean tablesReady = false;
+
+    private JobChecklistDAO() {
+    }
+
+    /**
+     * Latest saved checklist of one job.
+     */
+    public static class Checklist {
+        public final boolean[] completed = new boolean[STEPS.length];
+        public String notes = "";
+        public Timestamp savedAt;
+    }
+
+    private static synchronized void ensureTables(Connection conn) throws SQLException {
+        if (tablesReady) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS job_checklist_steps (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "job_id VARCHAR(50) NOT NULL, " +
+                    "step_no INT NOT NULL, " +
+                    "step_name VARCHAR(255), " +
+                    "completed BOOLEAN NOT NULL, " +
+                    "notes VARCHAR(2000), " +
+                    "technician_email VARCHAR(255), " +
+                    "recorded_at TIMESTAMP NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_checklist_steps_job ON job_checklist_steps (job_id, recorded_at)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS job_checklist_current (" +
+                    "job_id VARCHAR(50) PRIMARY KEY, " +
+                    "steps_done INT NOT NULL, " +
+                    "steps_total INT NOT NULL, " +
+                    "updated_at TIMESTAMP NOT NULL)");
+        }
+        tablesReady = true;
+    }
+
+    /**
+     * Save all checklist steps of a job with one batched insert, plus the current summary row.
+     * completed must have one entry per step in STEPS.
+     */
+    public static boolean saveChecklist(String jobId, String technicianEmail, boolean[] completed, String notes) {
+        if (completed == null || completed.length != STEPS.length) {
+            return false;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int done = 0;
+        for (boolean step : completed) {
+            if (step) {
+                done++;
+            }
+        }
+
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = DatabaseConnection.getConnection();
+            ensureTables(conn);
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO job_checklist_steps (job_id, step_no, step_name, completed, notes, technician_email, recorded_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < STEPS.length; i++) {
+                    pstmt.setString(1, jobId);
+                    pstmt.setInt(2, i + 1);
+                    pstmt.setString(3, STEPS[i]);
+                    pstmt.setBoolean(4, completed[i]);
+                    pstmt.setString(5, notes);
+                    pstmt.setString(6, technicianEmail);
+                    pstmt.setTimestamp(7, now);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "MERGE INTO job_checklist_current (job_id, steps_done, steps_total, updated_at) KEY (job_id) " +
+                    "VALUES (?, ?, ?, ?)")) {
+                pstmt.setString(1, jobId);
+                pstmt.setInt(2, done);
+                pstmt.setInt(3, STEPS.length);
+                pstmt.setTimestamp(4, now);
+                pstmt.executeUpdate();
+            }
+
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error saving checklist: " + e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                }
+            }
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the most recent save of a job's checklist (all steps unticked if never saved).
+     */
+    public static Checklist getLatest(String jobId) {
+        Checklist checklist = new Checklist();
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            ensureTables(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT step_no, completed, notes, recorded_at FROM job_checklist_steps " +
+                    "WHERE job_id = ? AND recorded_at = (SELECT MAX(recorded_at) FROM job_checklist_steps WHERE job_id = ?)")) {
+                pstmt.setString(1, jobId);
+                pstmt.setString(2, jobId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int step = rs.getInt("step_no");
+                        if (step >= 1 && step <= STEPS.length) {
+                            checklist.completed[step - 1] = rs.getBoolean("completed");
+                        }
+                        String notes = rs.getString("notes");
+                        checklist.notes = notes == null ? "" : notes;
+                        checklist.savedAt = rs.getTimestamp("recorded_at");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading checklist: " + e.getMessage());
+        }
+        return checklist;
+    }
+
+    /**
+     * Percentage of checklist steps completed across all open jobs (0-100).
+     * Reads only the per-job summary rows, so it is cheap enough to poll.
+     * Open jobs without a saved checklist count as zero steps done.
+     */
+    public static double getOpenJobsCompletionPercent() {
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            ensureTables(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT COUNT(*) AS open_jobs, COALESCE(SUM(c.steps_done), 0) AS steps_done " +
+                    "FROM technician_jobs j LEFT JOIN job_checklist_current c ON c.job_id = j.job_id " +
+                    "WHERE j.status <> 'Completed' AND j.status <> 'Cancelled'");
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    int openJobs = rs.getInt("open_jobs");
+                    if (openJobs == 0) {
+                        return 0.0;
+                    }
+                    return 100.0 * rs.getInt("steps_done") / (openJobs * (double) STEPS.length);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading checklist progress: " + e.getMessage());
+        }
+        return 0.0;
+    }
+}
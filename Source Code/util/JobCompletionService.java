@@ -0,0 +1,211 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Completes a technician job and its maintenance ticket in a single transaction.
+ * Jobs are linked to their ticket through technician_jobs.ticket_id instead of
+ * deriving the ticket ID from the job ID, and the customer's email is returned so
+ * the caller can find the open CustomerPortal by email.
+ */
+public final class JobCompletionService {
+
+    public static final String COMPLETED = "Completed";
+
+    private static boolean schemaReady = false;
+
+    private JobCompletionService() {
+    }
+
+    /**
+     * Outcome of a completed job (only the changed fields, for updating open views in place).
+     */
+    public static class Completion {
+        public final String jobId;
+        public final String ticketId;
+        public final String customerName;
+        public final String customerEmail;
+        public final String notes;
+
+        Completion(String jobId, String ticketId, String customerName, String customerEmail, String notes) {
+            this.jobId = jobId;
+            this.ticketId = ticketId;
+            this.customerName = customerName;
+            this.customerEmail = customerEmail;
+            this.notes = notes;
+        }
+    }
+
+    /**
+     * Add the ticket_id link column to technician_jobs if it is missing.
+     */
+    public static synchronized void ensureSchema(Connection conn) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE technician_jobs ADD COLUMN IF NOT EXISTS ticket_id VARCHAR(50)");
+        }
+        schemaReady = true;
+    }
+
+    /**
+     * Record which maintenance ticket a job was created for.
+     */
+    public static boolean linkTicket(String jobId, String ticketId) {
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            ensureSchema(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE technician_jobs SET ticket_id = ? WHERE job_id = ?")) {
+                pstmt.setString(1, ticketId);
+                pstmt.setString(2, jobId);
+                return pstmt.executeUpdate() > 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error linking job to ticket: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Mark a job and its maintenance ticket as completed in one commit.
+     * Returns null if the job does not exist, is already completed, or the update fails.
+     */
+    public static Completion complete(String jobId, String technicianEmail) {
+        String notes = "Job completed by technician";
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = DatabaseConnection.getConnection();
+            ensureSchema(conn);
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            String ticketId = null;
+            String customerName = null;
+            String address = null;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT ticket_id, customer, address FROM technician_jobs " +
+                    "WHERE job_id = ? AND technician_email = ? AND status <> ? FOR UPDATE")) {
+                pstmt.setString(1, jobId);
+                pstmt.setString(2, technicianEmail);
+                pstmt.setString(3, COMPLETED);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return null;
+                    }
+                    ticketId = rs.getString("ticket_id");
+                    customerName = rs.getString("customer");
+                    address = rs.getString("address");
+                }
+            }
+
+            // Jobs created before the ticket link existed: use the open ticket of this technician and
+            // customer only if there is exactly one, otherwise the job completes without a ticket
+            if (ticketId == null) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT ticket_id FROM maintenance WHERE technician = ? AND customer_name = ? " +
+                        "AND status IN ('Scheduled', 'Approved', 'In Progress')")) {
+                    pstmt.setString(1, technicianEmail);
+                    pstmt.setString(2, customerName);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) {
+                            ticketId = rs.getString("ticket_id");
+                            if (rs.next()) {
+                                System.err.println("Job " + jobId + " matches several open tickets; link it to one first");
+                                ticketId = null;
+                            }
+                        }
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE technician_jobs SET status = ?, ticket_id = ? WHERE job_id = ?")) {
+                pstmt.setString(1, COMPLETED);
+                pstmt.setString(2, ticketId);
+                pstmt.setString(3, jobId);
+                pstmt.executeUpdate();
+            }
+
+            if (ticketId != null) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE maintenance SET status = ?, notes = ? WHERE ticket_id = ?")) {
+                    pstmt.setString(1, COMPLETED);
+                    pstmt.setString(2, notes);
+                    pstmt.setString(3, ticketId);
+                    pstmt.executeUpdate();
+                }
+            }
+
+            String customerEmail = findCustomerEmail(conn, customerName, address);
+
+            conn.commit();
+            return new Completion(jobId, ticketId, customerName, customerEmail, notes);
+        } catch (SQLException e) {
+            System.err.println("Error completing job " + jobId + ": " + e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                }
+            }
+            return null;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Email of the customer account a job belongs to, or null if it cannot be told apart.
+     * Tickets store the customer's email in place of the name when the account has no name.
+     * full_name is not unique, so namesakes are narrowed down by the site address.
+     */
+    private static String findCustomerEmail(Connection conn, String customerName, String address) throws SQLException {
+        if (customerName == null) {
+            return null;
+        }
+        List<String[]> accounts = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT email, address FROM customer_accounts WHERE email = ? OR full_name = ?")) {
+            pstmt.setString(1, customerName);
+            pstmt.setString(2, customerName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String email = rs.getString("email");
+                    if (customerName.equalsIgnoreCase(email)) {
+                        return email;
+                    }
+                    accounts.add(new String[]{email, rs.getString("address")});
+                }
+            }
+        }
+        if (accounts.size() == 1) {
+            return accounts.get(0)[0];
+        }
+
+        String match = null;
+        for (String[] account : accounts) {
+            if (address != null && account[1] != null && address.trim().equalsIgnoreCase(account[1].trim())) {
+                if (match != null) {
+                    return null;
+                }
+                match = account[0];
+            }
+        }
+        return match;
+    }
+}
@@ -0,0 +1,320 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fulfils technician PARTS_REQUESTS from INVENTORY.
+ * Requests are processed one at a time on the shared database connection. Stock is
+ * reserved with a compare-and-set update on inventory.quantity, so a run started from
+ * another client at the same time cannot allocate more than is on hand.
+ * Requests that cannot be reserved are kept as "Backordered" (the queue for the next
+ * run) and the shortfall per item is turned into STOCK_REQUESTS. Requests naming a part
+ * that is not in inventory are set to "Unknown part" and leave the queue.
+ */
+public final class PartsFulfilmentService {
+
+    public static final String STATUS_PENDING = "Pending";
+    public static final String STATUS_PROCESSING = "Processing";
+    public static final String STATUS_RESERVED = "Reserved";
+    public static final String STATUS_BACKORDERED = "Backordered";
+    public static final String STATUS_UNKNOWN_PART = "Unknown part";
+
+    private static final int MAX_CAS_ATTEMPTS = 5;
+    private static final int RESERVED = -1;
+    private static final int CONTENDED = -2;
+
+    // Keeps auto-generated stock request IDs unique within one millisecond
+    private static final AtomicInteger STOCK_REQUEST_SEQUENCE = new AtomicInteger();
+
+    private static boolean schemaReady = false;
+
+    private PartsFulfilmentService() {
+    }
+
+    /**
+     * Summary of one fulfilment run.
+     */
+    public static class Result {
+        public int reserved;
+        public int backordered;
+        public int unknownParts;
+        public int stockRequestsCreated;
+    }
+
+    /**
+     * Inventory item a part name resolves to.
+     */
+    private static class Item {
+        final String itemId;
+        final String itemName;
+        final String category;
+        final int reorderLevel;
+
+        Item(String itemId, String itemName, String category, int reorderLevel) {
+            this.itemId = itemId;
+            this.itemName = itemName;
+            this.category = category;
+            this.reorderLevel = reorderLevel;
+        }
+    }
+
+    /**
+     * Queued parts request.
+     */
+    private static class PartRequest {
+        final String requestId;
+        final String partName;
+        final int quantity;
+        final String status;
+
+        PartRequest(String requestId, String partName, int quantity, String status) {
+            this.requestId = requestId;
+            this.partName = partName;
+            this.quantity = quantity;
+            this.status = status;
+        }
+    }
+
+    private static synchronized void ensureSchema(Connection conn) throws SQLException {
+        if (schemaReady) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE parts_requests ADD COLUMN IF NOT EXISTS item_id VARCHAR(50)");
+        }
+        schemaReady = true;
+    }
+
+    /**
+     * Try to fulfil a single request right away (e.g. just after a technician submits it).
+     */
+    public static Result submit(String requestId) {
+        return process(" AND request_id = ?", requestId);
+    }
+
+    /**
+     * Process every pending or backordered request, oldest first.
+     */
+    public static Result processBacklog() {
+        return process("", null);
+    }
+
+    private static Result process(String filter, String requestId) {
+        Result result = new Result();
+        Map<String, Item> itemsByName = new HashMap<>();
+        List<PartRequest> queue = new ArrayList<>();
+
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            ensureSchema(conn);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT item_id, item_name, category, reorder_level FROM inventory");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Item item = new Item(rs.getString("item_id"), rs.getString("item_name"),
+                            rs.getString("category"), rs.getInt("reorder_level"));
+                    itemsByName.put(item.itemName.trim().toLowerCase(), item);
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT request_id, part_name, quantity, status FROM parts_requests " +
+                    "WHERE status IN (?, ?)" + filter + " ORDER BY request_date, request_id")) {
+                pstmt.setString(1, STATUS_PENDING);
+                pstmt.setString(2, STATUS_BACKORDERED);
+                if (requestId != null) {
+                    pstmt.setString(3, requestId);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        queue.add(new PartRequest(rs.getString("request_id"), rs.getString("part_name"),
+                                rs.getInt("quantity"), rs.getString("status")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading parts request queue: " + e.getMessage());
+            return result;
+        }
+
+        // Quantity requested per inventory item by requests that newly failed this run
+        Map<String, Integer> requestedByItem = new HashMap<>();
+        for (PartRequest request : queue) {
+            fulfil(request, itemsByName, requestedByItem, result);
+        }
+
+        result.stockRequestsCreated = createStockRequests(itemsByName, requestedByItem);
+        return result;
+    }
+
+    private static void fulfil(PartRequest request, Map<String, Item> itemsByName,
+                               Map<String, Integer> requestedByItem, Result result) {
+        Connection conn = null;
+        boolean claimed = false;
+        boolean finished = false;
+        String reservedItemId = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+
+            // Claim the request so a concurrent run cannot process it twice
+            if (!updateStatus(conn, request.requestId, request.status, STATUS_PROCESSING, null)) {
+                return;
+            }
+            claimed = true;
+
+            Item item = request.partName == null ? null : itemsByName.get(request.partName.trim().toLowerCase());
+            if (item == null) {
+                // Nothing to reserve it against; take it out of the queue instead of retrying every run
+                finished = updateStatus(conn, request.requestId, STATUS_PROCESSING, STATUS_UNKNOWN_PART, null);
+                if (finished) {
+                    result.unknownParts++;
+                }
+                return;
+            }
+
+            int available = reserve(conn, item.itemId, request.quantity);
+            if (available == CONTENDED) {
+                // Leave it queued for the next run (the claim is released below)
+                return;
+            }
+            if (available == RESERVED) {
+                reservedItemId = item.itemId;
+                finished = updateStatus(conn, request.requestId, STATUS_PROCESSING, STATUS_RESERVED, item.itemId);
+                if (finished) {
+                    result.reserved++;
+                }
+            } else {
+                finished = updateStatus(conn, request.requestId, STATUS_PROCESSING, STATUS_BACKORDERED, item.itemId);
+                if (finished) {
+                    result.backordered++;
+                    if (STATUS_PENDING.equals(request.status)) {
+                        requestedByItem.merge(item.itemName.trim().toLowerCase(), request.quantity, Integer::sum);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fulfilling parts request " + request.requestId + ": " + e.getMessage());
+        } finally {
+            // Anything claimed but not finished goes back: the stock to inventory, the request to its queue
+            if (claimed && !finished) {
+                release(conn, request, reservedItemId);
+            }
+        }
+    }
+
+    private static void release(Connection conn, PartRequest request, String reservedItemId) {
+        try {
+            if (reservedItemId != null) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE inventory SET quantity = quantity + ? WHERE item_id = ?")) {
+                    pstmt.setInt(1, request.quantity);
+                    pstmt.setString(2, reservedItemId);
+                    pstmt.executeUpdate();
+                }
+            }
+            updateStatus(conn, request.requestId, STATUS_PROCESSING, request.status, null);
+        } catch (SQLException e) {
+            System.err.println("Error releasing parts request " + request.requestId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reserve quantity units of an item with compare-and-set on inventory.quantity.
+     * Returns RESERVED, CONTENDED if the update kept losing to other workers,
+     * or the quantity that was available when there is not enough stock.
+     */
+    private static int reserve(Connection conn, String itemId, int quantity) throws SQLException {
+        try (PreparedStatement read = conn.prepareStatement("SELECT quantity FROM inventory WHERE item_id = ?");
+             PreparedStatement cas = conn.prepareStatement(
+                     "UPDATE inventory SET quantity = ? WHERE item_id = ? AND quantity = ?")) {
+            for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+                read.setString(1, itemId);
+                int current;
+                try (ResultSet rs = read.executeQuery()) {
+                    current = rs.next() ? rs.getInt("quantity") : 0;
+                }
+                if (current < quantity) {
+                    return Math.max(0, current);
+                }
+                cas.setInt(1, current - quantity);
+                cas.setString(2, itemId);
+                cas.setInt(3, current);
+                if (cas.executeUpdate() == 1) {
+                    return RESERVED;
+                }
+                // Another run changed the quantity first; read again and retry
+            }
+            return CONTENDED;
+        }
+    }
+
+    private static boolean updateStatus(Connection conn, String requestId, String expected, String status,
+                                        String itemId) throws SQLException {
+        String sql = itemId == null
+                ? "UPDATE parts_requests SET status = ? WHERE request_id = ? AND status = ?"
+                : "UPDATE parts_requests SET status = ?, item_id = ? WHERE request_id = ? AND status = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            pstmt.setString(i++, status);
+            if (itemId != null) {
+                pstmt.setString(i++, itemId);
+            }
+            pstmt.setString(i++, requestId);
+            pstmt.setString(i, expected);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * One stock request per short item: the quantity the newly backordered requests asked for
+     * less the stock still on hand, but at least the item's reorder level.
+     */
+    private static int createStockRequests(Map<String, Item> itemsByName, Map<String, Integer> requestedByItem) {
+        int created = 0;
+        String requestDate = LocalDate.now().toString();
+        for (Map.Entry<String, Integer> entry : requestedByItem.entrySet()) {
+            Item item = itemsByName.get(entry.getKey());
+            int shortfall;
+            try {
+                shortfall = entry.getValue() - onHand(item.itemId);
+            } catch (SQLException e) {
+                System.err.println("Error reading stock of " + item.itemId + ": " + e.getMessage());
+                continue;
+            }
+            if (shortfall <= 0) {
+                continue;
+            }
+            int quantity = Math.max(shortfall, Math.max(1, item.reorderLevel));
+            String requestId = "REQ-AUTO-" + item.itemId + "-" + System.currentTimeMillis()
+                    + "-" + STOCK_REQUEST_SEQUENCE.incrementAndGet();
+            if (StockRequestDAO.addRequest(requestId, item.itemName, item.category, quantity, "",
+                    requestDate, STATUS_PENDING, "Auto-generated: parts requests could not be reserved")) {
+                created++;
+            } else {
+                System.err.println("Error creating stock request for " + item.itemId + " (" + quantity + " units)");
+            }
+        }
+        return created;
+    }
+
+    private static int onHand(String itemId) throws SQLException {
+        Connection conn = DatabaseConnection.getConnection();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT quantity FROM inventory WHERE item_id = ?")) {
+            pstmt.setString(1, itemId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Math.max(0, rs.getInt("quantity")) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package util;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Sizes a solar system for a customer site and prices it from INVENTORY and the
+ * Solar Philippines catalog.
+ *
+ * The site's yield comes from the same model as SolarPanel.generateEnergy() (rated output
+ * times the hours of standard sun): peak sun hours are worked out for the site's latitude
+ * (SiteGeocoder) in its worst month and cached per site. From the daily load this gives
+ * the PV watts, inverter rating and usable battery storage needed. Each component class is
+ * then a bounded covering knapsack: the cheapest mix of products (in-stock items limited to
+ * their quantity, catalog items unlimited) that reaches the required rating. Several bundle
+ * variants (hybrid or grid-tie inverter, each battery product, stock only) are solved and
+ * returned cheapest first. Results are cached per request until inventory is reloaded.
+ */
+public final class QuoteEngine {
+
+    public static final String SOURCE_INVENTORY = "Inventory";
+    public static final String SOURCE_CATALOG = "Solar Philippines";
+
+    private static final double PERFORMANCE_RATIO = 0.75;   // wiring, heat, inverter and soiling losses
+    private static final double CLEARNESS_INDEX = 0.5;      // share of extraterrestrial sun reaching the panels
+    private static final double DEFAULT_LATITUDE = 12.0;    // middle of the Philippines
+    private static final double PEAK_LOAD_FACTOR = 0.3;     // peak kW per kWh of daily load
+    private static final double INVERTER_PV_RATIO = 1.3;    // PV watts an inverter can take per rated watt
+    private static final double CONTROLLER_VOLTS = 48;      // battery bus of an MPPT charge controller
+    private static final double DEFAULT_BATTERY_VOLTS = 12.8;
+    private static final long INVENTORY_MAX_AGE_MS = 60000;
+    private static final int MAX_BUNDLES = 5;
+
+    // Knapsack units: 10 W of PV or charge controller, 100 W of inverter, 10 Wh of battery
+    private static final int PV_UNIT_W = 10;
+    private static final int INVERTER_UNIT_W = 100;
+    private static final int BATTERY_UNIT_WH = 10;
+
+    private static final Pattern KILOWATTS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*kW", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WATTS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*W(?![a-z])", Pattern.CASE_INSENSITIVE);
+    private static final Pattern KILOWATT_HOURS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*kWh", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AMP_HOURS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*Ah", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AMPS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*A(?![a-z])", Pattern.CASE_INSENSITIVE);
+    private static final Pattern VOLTS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*V(?![a-z])", Pattern.CASE_INSENSITIVE);
+
+    private static QuoteEngine instance;
+
+    enum Kind { PANEL, INVERTER, BATTERY, CONTROLLER, MOUNTING, CONNECTOR, CABLE, OTHER }
+
+    /**
+     * A product offered for sale (catalog entry or inventory item).
+     */
+    public static class Product {
+        public final String name;
+        public final String category;
+        public final double price;
+
+        public Product(String name, String category, double price) {
+            this.name = name;
+            this.category = category;
+            this.price = price;
+        }
+    }
+
+    /**
+     * A product with its parsed rating and where it comes from.
+     */
+    private static class Offer {
+        final Product product;
+        final Kind kind;
+        final String source;
+        final int available;       // Integer.MAX_VALUE for catalog items
+        final double ratingW;      // panel W, inverter W, battery usable Wh, controller PV W
+        final boolean hybrid;
+
+        Offer(Product product, Kind kind, String source, int available, double ratingW, boolean hybrid) {
+            this.product = product;
+            this.kind = kind;
+            this.source = source;
+            this.available = available;
+            this.ratingW = ratingW;
+            this.hybrid = hybrid;
+        }
+    }
+
+    /**
+     * One line of a quoted bundle.
+     */
+    public static class Line {
+        public final String itemName;
+        public final String category;
+        public final String source;
+        public final int quantity;
+        public final double unitPrice;
+
+        Line(String itemName, String category, String source, int quantity, double unitPrice) {
+            this.itemName = itemName;
+            this.category = category;
+            this.source = source;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+        }
+
+        public double getTotal() {
+            return quantity * unitPrice;
+        }
+    }
+
+    /**
+     * A complete system for the site.
+     */
+    public static class Bundle {
+        public final String label;
+        public final List<Line> lines;
+        public final double totalPrice;
+        public final double pvWatts;
+        public final double inverterWatts;
+        public final double batteryKwh;
+        public final double dailyYieldKwh;
+        public final boolean allInStock;
+
+        Bundle(String label, List<Line> lines, double pvWatts, double inverterWatts, double batteryKwh,
+               double dailyYieldKwh) {
+            this.label = label;
+            this.lines = Collections.unmodifiableList(lines);
+            double total = 0;
+            boolean inStock = true;
+            for (Line line : lines) {
+                total += line.getTotal();
+                inStock &= SOURCE_INVENTORY.equals(line.source);
+            }
+            this.totalPrice = total;
+            this.pvWatts = pvWatts;
+            this.inverterWatts = inverterWatts;
+            this.batteryKwh = batteryKwh;
+            this.dailyYieldKwh = dailyYieldKwh;
+            this.allInStock = inStock;
+        }
+
+        /**
+         * Short text for the Item / Package column of a sales order.
+         */
+        public String getPackageName() {
+            return String.format("%.1f kW Solar%s (%s)", pvWatts / 1000,
+                    batteryKwh > 0 ? String.format(" + %.1f kWh Battery", batteryKwh) : "", label);
+        }
+
+        private String signature() {
+            StringBuilder sb = new StringBuilder();
+            for (Line line : lines) {
+                sb.append(line.itemName).append('|').append(line.source).append('|').append(line.quantity).append(';');
+            }
+            return sb.toString();
+        }
+    }
+
+    private volatile List<Product> catalog = new ArrayList<>();
+    private volatile List<Offer> offers;
+    private volatile long offersLoadedAt;
+    private final Map<String, double[]> sunHoursBySite = new ConcurrentHashMap<>();
+    private final Map<String, List<Bundle>> quotes = new ConcurrentHashMap<>();
+
+    private QuoteEngine() {
+    }
+
+    public static synchronized QuoteEngine getInstance() {
+        if (instance == null) {
+            instance = new QuoteEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Products that can be ordered from the supplier (the dashboard's Solar Philippines list).
+     * Cached quotes are kept if the list is unchanged.
+     */
+    public synchronized void setCatalog(List<Product> products) {
+        if (sameProducts(catalog, products)) {
+            return;
+        }
+        catalog = new ArrayList<>(products);
+        invalidate();
+    }
+
+    private static boolean sameProducts(List<Product> a, List<Product> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            Product x = a.get(i);
+            Product y = b.get(i);
+            if (!x.name.equals(y.name) || !x.category.equals(y.category) || x.price != y.price) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop cached quotes and reload inventory on the next request (e.g. after stock changes).
+     */
+    public synchronized void invalidate() {
+        offers = null;
+        quotes.clear();
+    }
+
+    /**
+     * Ranked bundles for a site, cheapest first.
+     *
+     * @param siteAddress  customer address, resolved with SiteGeocoder for the sun model
+     * @param dailyLoadKwh energy the site uses per day
+     * @param backupHours  hours of average load the batteries must carry (0 for grid-tie only)
+     */
+    public List<Bundle> quote(String siteAddress, double dailyLoadKwh, double backupHours) {
+        if (dailyLoadKwh <= 0) {
+            return Collections.emptyList();
+        }
+        List<Offer> current = currentOffers();
+        String key = siteKey(siteAddress) + "|" + Math.round(dailyLoadKwh * 10) + "|" + Math.round(backupHours * 10);
+        List<Bundle> cached = quotes.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        double sunHours = peakSunHours(siteAddress);
+        double pvWatts = dailyLoadKwh * 1000 / (sunHours * PERFORMANCE_RATIO);
+        double inverterWatts = Math.max(dailyLoadKwh * PEAK_LOAD_FACTOR * 1000, pvWatts / INVERTER_PV_RATIO);
+        double batteryWh = dailyLoadKwh * 1000 * backupHours / 24;
+
+        // A battery bank is one product only (chemistries and capacities are not mixed),
+        // taken from stock and/or the catalog
+        Map<String, List<Offer>> batteryTypes = new LinkedHashMap<>();
+        for (Offer offer : current) {
+            if (offer.kind == Kind.BATTERY) {
+                batteryTypes.computeIfAbsent(offer.product.name.trim().toLowerCase(), k -> new ArrayList<>()).add(offer);
+            }
+        }
+        List<List<Offer>> batteryChoices = new ArrayList<>(batteryTypes.values());
+        if (batteryWh <= 0) {
+            batteryChoices = Collections.singletonList(Collections.<Offer>emptyList());
+        }
+
+        // Variants: any source or stock only, hybrid or grid-tie inverter, each battery type
+        Map<String, Bundle> unique = new LinkedHashMap<>();
+        for (boolean stockOnly : new boolean[]{false, true}) {
+            for (boolean hybrid : new boolean[]{true, false}) {
+                for (List<Offer> batteryChoice : batteryChoices) {
+                    Bundle bundle = solve(current, batteryChoice, stockOnly, hybrid, pvWatts, inverterWatts,
+                            batteryWh, sunHours);
+                    if (bundle != null) {
+                        unique.putIfAbsent(bundle.signature(), bundle);
+                    }
+                }
+            }
+        }
+
+        List<Bundle> ranked = new ArrayList<>(unique.values());
+        ranked.sort((a, b) -> Double.compare(a.totalPrice, b.totalPrice));
+        if (ranked.size() > MAX_BUNDLES) {
+            ranked = new ArrayList<>(ranked.subList(0, MAX_BUNDLES));
+        }
+        ranked = Collections.unmodifiableList(ranked);
+        quotes.put(key, ranked);
+        return ranked;
+    }
+
+    /**
+     * Peak sun hours (kWh/m2/day) of the site's worst month, from its latitude.
+     * This is the sizing bound used for quotes.
+     */
+    public double peakSunHours(String siteAddress) {
+        double worst = Double.MAX_VALUE;
+        for (double hours : monthlySunHours(siteAddress)) {
+            worst = Math.min(worst, hours);
+        }
+        return worst;
+    }
+
+    /**
+     * Peak sun hours (kWh/m2/day) of the site in one month (1 = January).
+     */
+    public double peakSunHours(String siteAddress, int month) {
+        return monthlySunHours(siteAddress)[month - 1];
+    }
+
+    // Average daily sun hours for each month, cached per site
+    private double[] monthlySunHours(String siteAddress) {
+        return sunHoursBySite.computeIfAbsent(siteKey(siteAddress), key -> {
+            double[] location = siteAddress == null ? null : SiteGeocoder.getInstance().locate(siteAddress);
+            double latitude = Math.toRadians(location != null ? location[0] : DEFAULT_LATITUDE);
+            double[] hours = new double[12];
+            for (int month = 0; month < 12; month++) {
+                int day = 15 + 30 * month + month / 2;
+                double declination = Math.toRadians(23.45) * Math.sin(2 * Math.PI * (284 + day) / 365.0);
+                double sunset = Math.acos(Math.max(-1, Math.min(1, -Math.tan(latitude) * Math.tan(declination))));
+                double distance = 1 + 0.033 * Math.cos(2 * Math.PI * day / 365.0);
+                // Daily extraterrestrial irradiation on a horizontal surface, kWh/m2
+                double extraterrestrial = 24 / Math.PI * 1.367 * distance
+                        * (Math.cos(latitude) * Math.cos(declination) * Math.sin(sunset)
+                        + sunset * Math.sin(latitude) * Math.sin(declination));
+                hours[month] = extraterrestrial * CLEARNESS_INDEX;
+            }
+            return hours;
+        });
+    }
+
+    /**
+     * Expected AC output (kWh) of pvWatts of panels at the site over a whole calendar month.
+     */
+    public double monthlyYieldKwh(String siteAddress, double pvWatts, YearMonth month) {
+        return pvWatts / 1000 * peakSunHours(siteAddress, month.getMonthValue()) * PERFORMANCE_RATIO
+                * month.lengthOfMonth();
+    }
+
+    private static String siteKey(String siteAddress) {
+        return siteAddress == null ? "" : siteAddress.trim().toLowerCase();
+    }
+
+    private Bundle solve(List<Offer> all, List<Offer> batteryChoice, boolean stockOnly, boolean hybrid,
+                         double pvWatts, double inverterWatts, double batteryWh, double sunHours) {
+        List<Line> lines = new ArrayList<>();
+
+        List<Offer> panels = select(all, Kind.PANEL, stockOnly, null);
+        int[] panelCounts = cover(panels, pvWatts, PV_UNIT_W);
+        if (panelCounts == null) {
+            return null;
+        }
+        double installedPv = addLines(lines, panels, panelCounts);
+        int panelTotal = sum(panelCounts);
+
+        List<Offer> inverters = select(all, Kind.INVERTER, stockOnly, hybrid);
+        int[] inverterCounts = cover(inverters, inverterWatts, INVERTER_UNIT_W);
+        if (inverterCounts == null) {
+            return null;
+        }
+        double installedInverter = addLines(lines, inverters, inverterCounts);
+
+        double installedBatteryWh = 0;
+        if (batteryWh > 0) {
+            List<Offer> batteries = new ArrayList<>();
+            for (Offer battery : batteryChoice) {
+                if (!stockOnly || SOURCE_INVENTORY.equals(battery.source)) {
+                    batteries.add(battery);
+                }
+            }
+            int[] batteryCounts = cover(batteries, batteryWh, BATTERY_UNIT_WH);
+            if (batteryCounts == null) {
+                return null;
+            }
+            installedBatteryWh = addLines(lines, batteries, batteryCounts);
+            if (!hybrid) {
+                // A grid-tie inverter cannot charge batteries; MPPT controllers take the PV instead
+                List<Offer> controllers = select(all, Kind.CONTROLLER, stockOnly, null);
+                int[] controllerCounts = cover(controllers, installedPv, PV_UNIT_W);
+                if (controllerCounts == null) {
+                    return null;
+                }
+                addLines(lines, controllers, controllerCounts);
+            }
+        }
+
+        // Balance of system, priced by the cheapest offer of each kind
+        addFixed(lines, all, Kind.MOUNTING, stockOnly, (panelTotal * 2 + 2) / 3);
+        addFixed(lines, all, Kind.CONNECTOR, stockOnly, (panelTotal + 3) / 4);
+        addFixed(lines, all, Kind.CABLE, stockOnly, 1);
+
+        String label = (stockOnly ? "In stock, " : "") + (hybrid ? "hybrid" : "grid-tie")
+                + (batteryWh > 0 ? ", " + batteryChoice.get(0).product.name : "");
+        return new Bundle(label, lines, installedPv, installedInverter, installedBatteryWh / 1000,
+                installedPv / 1000 * sunHours * PERFORMANCE_RATIO);
+    }
+
+    private static List<Offer> select(List<Offer> all, Kind kind, boolean stockOnly, Boolean hybrid) {
+        List<Offer> selected = new ArrayList<>();
+        for (Offer offer : all) {
+            if (offer.kind == kind && (!stockOnly || SOURCE_INVENTORY.equals(offer.source))
+                    && (hybrid == null || offer.hybrid == hybrid)) {
+                selected.add(offer);
+            }
+        }
+        return selected;
+    }
+
+    private static void addFixed(List<Line> lines, List<Offer> all, Kind kind, boolean stockOnly, int quantity) {
+        Offer cheapest = null;
+        for (Offer offer : select(all, kind, stockOnly, null)) {
+            if (offer.available >= quantity && (cheapest == null || offer.product.price < cheapest.product.price)) {
+                cheapest = offer;
+            }
+        }
+        if (cheapest != null && quantity > 0) {
+            lines.add(new Line(cheapest.product.name, cheapest.product.category, cheapest.source, quantity,
+                    cheapest.product.price));
+        }
+    }
+
+    private static double addLines(List<Line> lines, List<Offer> offers, int[] counts) {
+        double rating = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                Offer offer = offers.get(i);
+                lines.add(new Line(offer.product.name, offer.product.category, offer.source, counts[i],
+                        offer.product.price));
+                rating += counts[i] * offer.ratingW;
+            }
+        }
+        return rating;
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Bounded covering knapsack: how many of each offer to take so that the ratings add up to at
+     * least required at the lowest price. Returns null if the offers cannot reach it.
+     */
+    private static int[] cover(List<Offer> offers, double required, int unit) {
+        int target = (int) Math.ceil(required / unit);
+        int n = offers.size();
+        if (target <= 0) {
+            return new int[n];
+        }
+        // best[r]: lowest price reaching r units (r == target means target or more)
+        double[] best = new double[target + 1];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[0] = 0;
+        double[] next = new double[target + 1];
+        int[][] count = new int[n][target + 1];
+        int[][] from = new int[n][target + 1];
+
+        for (int i = 0; i < n; i++) {
+            Offer offer = offers.get(i);
+            int size = Math.max(1, (int) Math.floor(offer.ratingW / unit));
+            // Never worth taking more than it takes to cover the target alone
+            int limit = Math.min(offer.available, (target + size - 1) / size);
+            for (int r = 0; r <= target; r++) {
+                next[r] = best[r];
+                from[i][r] = r;
+            }
+            for (int start = 0; start < target; start++) {
+                if (best[start] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int k = 1; k <= limit; k++) {
+                    int reached = Math.min(target, start + k * size);
+                    double price = best[start] + k * offer.product.price;
+                    if (price < next[reached]) {
+                        next[reached] = price;
+                        count[i][reached] = k;
+                        from[i][reached] = start;
+                    }
+                    if (reached == target) {
+                        break;
+                    }
+                }
+            }
+            System.arraycopy(next, 0, best, 0, target + 1);
+        }
+        if (best[target] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+
+        int[] counts = new int[n];
+        int reached = target;
+        for (int i = n - 1; i >= 0; i--) {
+            counts[i] = count[i][reached];
+            reached = from[i][reached];
+        }
+        return counts;
+    }
+
+    private List<Offer> currentOffers() {
+        List<Offer> current = offers;
+        if (current != null && System.currentTimeMillis() - offersLoadedAt < INVENTORY_MAX_AGE_MS) {
+            return current;
+        }
+        synchronized (this) {
+            if (offers != null && System.currentTimeMillis() - offersLoadedAt < INVENTORY_MAX_AGE_MS) {
+                return offers;
+            }
+            List<Offer> loaded = new ArrayList<>();
+            loadInventory(loaded);
+            for (Product product : catalog) {
+                Offer offer = toOffer(product, SOURCE_CATALOG, Integer.MAX_VALUE);
+                if (offer != null) {
+                    loaded.add(offer);
+                }
+            }
+            quotes.clear();
+            offers = loaded;
+            offersLoadedAt = System.currentTimeMillis();
+            return loaded;
+        }
+    }
+
+    /**
+     * In-stock items from INVENTORY, listed before catalog items so stock wins price ties.
+     */
+    private static void loadInventory(List<Offer> out) {
+        String[] columns = {"Item ID", "Item Name", "Category", "Brand/Model",
+                "Quantity", "Unit Price", "Reorder Level", "Location", "Status"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0);
+        try {
+            if (!DatabaseConnection.testConnection()) {
+                return;
+            }
+            InventoryDAO.loadToTableModel(model);
+        } catch (Exception e) {
+            System.err.println("Error loading inventory for quotes: " + e.getMessage());
+            return;
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            try {
+                String name = String.valueOf(model.getValueAt(row, 1));
+                String category = String.valueOf(model.getValueAt(row, 2));
+                int quantity = (int) parseNumber(model.getValueAt(row, 4));
+                double price = parseNumber(model.getValueAt(row, 5));
+                if (quantity <= 0 || price <= 0) {
+                    continue;
+                }
+                Offer offer = toOffer(new Product(name, category, price), SOURCE_INVENTORY, quantity);
+                if (offer != null) {
+                    out.add(offer);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
+    private static double parseNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        String text = value == null ? "" : value.toString().replaceAll("[^0-9.\\-]", "");
+        return Double.parseDouble(text);
+    }
+
+    /**
+     * Classify a product by its category and name and read its rating from the name
+     * ("Solar Panel 450W", "Inverter 5kW Hybrid", "Battery 200Ah Lithium", "Charge Controller 60A MPPT").
+     */
+    private static Offer toOffer(Product product, String source, int available) {
+        String text = (product.category + " " + product.name).toLowerCase();
+        Kind kind;
+        if (text.contains("inverter")) {
+            kind = Kind.INVERTER;
+        } else if (text.contains("battery") || text.contains("batteries")) {
+            kind = Kind.BATTERY;
+        } else if (text.contains("controller")) {
+            kind = Kind.CONTROLLER;
+        } else if (text.contains("panel") || text.contains(" pv")) {
+            kind = Kind.PANEL;
+        } else if (text.contains("rail") || text.contains("mount")) {
+            kind = Kind.MOUNTING;
+        } else if (text.contains("connector") || text.contains("mc4")) {
+            kind = Kind.CONNECTOR;
+        } else if (text.contains("cable") || text.contains("wire")) {
+            kind = Kind.CABLE;
+        } else {
+            kind = Kind.OTHER;
+        }
+
+        double rating = 0;
+        switch (kind) {
+            case PANEL:
+                rating = find(WATTS, product.name) > 0 ? find(WATTS, product.name) : find(KILOWATTS, product.name) * 1000;
+                break;
+            case INVERTER:
+                rating = find(KILOWATTS, product.name) > 0 ? find(KILOWATTS, product.name) * 1000 : find(WATTS, product.name);
+                break;
+            case BATTERY:
+                double volts = find(VOLTS, product.name) > 0 ? find(VOLTS, product.name) : DEFAULT_BATTERY_VOLTS;
+                // Usable energy: lithium can be cycled deeply, lead-acid only to about half
+                double depth = text.contains("lead") || text.contains("agm") || text.contains("gel") ? 0.5 : 0.9;
+                rating = find(AMP_HOURS, product.name) * volts * depth;
+                if (rating == 0) {
+                    rating = find(KILOWATT_HOURS, product.name) * 1000 * depth;
+                }
+                break;
+            case CONTROLLER:
+                rating = find(AMPS, product.name) * CONTROLLER_VOLTS;
+                break;
+            default:
+                return new Offer(product, kind, source, available, 0, false);
+        }
+        if (rating <= 0) {
+            return null;
+        }
+        return new Offer(product, kind, source, available, rating, text.contains("hybrid"));
+    }
+
+    private static double find(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? Double.parseDouble(m.group(1)) : 0;
+    }
+}
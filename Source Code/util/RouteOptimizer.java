@@ -0,0 +1,342 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Orders each technician's daily jobs to reduce travel between sites.
+ * Site addresses are resolved with SiteGeocoder, each day's route is built with
+ * nearest-neighbour and improved with 2-opt, and routes of different technicians
+ * are optimized in parallel on a fork/join pool. The result is a Plan: the new order
+ * (route_order) with the day's existing time slots reassigned in that order. Nothing is
+ * written to TECHNICIAN_JOBS until the plan is saved, so the caller can show the proposed
+ * times and ask for confirmation first.
+ */
+public final class RouteOptimizer {
+
+    // Routes per fork/join leaf task
+    private static final int ROUTES_PER_TASK = 8;
+
+    private RouteOptimizer() {
+    }
+
+    /**
+     * One open job with its resolved site coordinates (NaN if the address is unknown).
+     * scheduleTime is null for jobs without a time slot.
+     */
+    static class Stop {
+        final String jobId;
+        final Time scheduleTime;
+        final double lat;
+        final double lon;
+
+        Stop(String jobId, Time scheduleTime, double[] coordinates) {
+            this.jobId = jobId;
+            this.scheduleTime = scheduleTime;
+            this.lat = coordinates == null ? Double.NaN : coordinates[0];
+            this.lon = coordinates == null ? Double.NaN : coordinates[1];
+        }
+
+        boolean isLocated() {
+            return !Double.isNaN(lat);
+        }
+    }
+
+    /**
+     * All jobs of one technician on one date, in visiting order once optimized.
+     */
+    static class DayRoute {
+        final String scheduleDate;
+        final List<Stop> stops = new ArrayList<>();
+        List<Stop> ordered;
+
+        DayRoute(String scheduleDate) {
+            this.scheduleDate = scheduleDate;
+        }
+    }
+
+    /**
+     * Proposed position and time slot of one job. Times are null for jobs without a slot.
+     */
+    public static class Change {
+        public final String jobId;
+        public final String scheduleDate;
+        public final int routeOrder;
+        public final Time currentTime;
+        public final Time proposedTime;
+
+        Change(String jobId, String scheduleDate, int routeOrder, Time currentTime, Time proposedTime) {
+            this.jobId = jobId;
+            this.scheduleDate = scheduleDate;
+            this.routeOrder = routeOrder;
+            this.currentTime = currentTime;
+            this.proposedTime = proposedTime;
+        }
+
+        public boolean isTimeChanged() {
+            return currentTime == null ? proposedTime != null : !currentTime.equals(proposedTime);
+        }
+    }
+
+    /**
+     * Optimized routes that have not been written yet.
+     */
+    public static class Plan {
+        private final List<Change> changes;
+
+        Plan(List<Change> changes) {
+            this.changes = changes;
+        }
+
+        /**
+         * Every open job in visiting order, per technician and date.
+         */
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        public int getTimeChangeCount() {
+            int count = 0;
+            for (Change change : changes) {
+                if (change.isTimeChanged()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Write the route order and time slots. Returns the number of jobs written, or -1 on database error.
+         */
+        public int save() {
+            try {
+                return saveChanges(changes);
+            } catch (SQLException e) {
+                System.err.println("Error saving optimized routes: " + e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Optimize every technician's open jobs (pass null to optimize all technicians).
+     * Returns the plan to review and save, or null on database error.
+     */
+    public static Plan plan(String technicianEmail) {
+        List<DayRoute> routes;
+        try {
+            routes = loadRoutes(technicianEmail);
+        } catch (SQLException e) {
+            System.err.println("Error loading jobs for route optimization: " + e.getMessage());
+            return null;
+        }
+
+        ForkJoinPool.commonPool().invoke(new OptimizeTask(routes, 0, routes.size()));
+
+        List<Change> changes = new ArrayList<>();
+        for (DayRoute route : routes) {
+            // Keep the day's time slots, hand them out in the new visiting order
+            // (jobs without a time keep none and go last)
+            List<Time> slots = new ArrayList<>();
+            for (Stop stop : route.stops) {
+                slots.add(stop.scheduleTime);
+            }
+            slots.sort(Comparator.nullsLast(Comparator.<Time>naturalOrder()));
+
+            for (int i = 0; i < route.ordered.size(); i++) {
+                Stop stop = route.ordered.get(i);
+                changes.add(new Change(stop.jobId, route.scheduleDate, i + 1, stop.scheduleTime, slots.get(i)));
+            }
+        }
+        return new Plan(changes);
+    }
+
+    private static List<DayRoute> loadRoutes(String technicianEmail) throws SQLException {
+        String sql = "SELECT job_id, technician_email, address, schedule_date, schedule_time FROM technician_jobs " +
+                "WHERE status <> 'Completed' AND status <> 'Cancelled'" +
+                (technicianEmail != null ? " AND technician_email = ?" : "") +
+                " ORDER BY technician_email, schedule_date, schedule_time";
+
+        SiteGeocoder geocoder = SiteGeocoder.getInstance();
+        Map<String, DayRoute> routesByKey = new LinkedHashMap<>();
+
+        Connection conn = DatabaseConnection.getConnection();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (technicianEmail != null) {
+                pstmt.setString(1, technicianEmail);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String key = rs.getString("technician_email") + "|" + rs.getString("schedule_date");
+                    DayRoute route = routesByKey.get(key);
+                    if (route == null) {
+                        route = new DayRoute(rs.getString("schedule_date"));
+                        routesByKey.put(key, route);
+                    }
+                    route.stops.add(new Stop(rs.getString("job_id"), rs.getTime("schedule_time"),
+                            geocoder.locate(rs.getString("address"))));
+                }
+            }
+        }
+        return new ArrayList<>(routesByKey.values());
+    }
+
+    private static int saveChanges(List<Change> changes) throws SQLException {
+        Connection conn = DatabaseConnection.getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE technician_jobs ADD COLUMN IF NOT EXISTS route_order INT");
+        }
+
+        String sql = "UPDATE technician_jobs SET route_order = ?, schedule_time = ? WHERE job_id = ?";
+        boolean autoCommit = conn.getAutoCommit();
+        int updated = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (Change change : changes) {
+                pstmt.setInt(1, change.routeOrder);
+                if (change.proposedTime != null) {
+                    pstmt.setTime(2, change.proposedTime);
+                } else {
+                    pstmt.setNull(2, Types.TIME);
+                }
+                pstmt.setString(3, change.jobId);
+                pstmt.addBatch();
+                updated++;
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return updated;
+    }
+
+    /**
+     * Fork/join task that splits the route list until each leaf has a few routes.
+     */
+    private static class OptimizeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<DayRoute> routes;
+        private final int from;
+        private final int to;
+
+        OptimizeTask(List<DayRoute> routes, int from, int to) {
+            this.routes = routes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROUTES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    DayRoute route = routes.get(i);
+                    route.ordered = orderStops(route.stops);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new OptimizeTask(routes, from, mid), new OptimizeTask(routes, mid, to));
+        }
+    }
+
+    /**
+     * Order stops starting from the currently first job: nearest-neighbour, then 2-opt.
+     * Jobs whose address could not be resolved keep their relative order at the end.
+     */
+    static List<Stop> orderStops(List<Stop> stops) {
+        List<Stop> located = new ArrayList<>();
+        List<Stop> unlocated = new ArrayList<>();
+        for (Stop stop : stops) {
+            if (stop.isLocated()) {
+                located.add(stop);
+            } else {
+                unlocated.add(stop);
+            }
+        }
+
+        int n = located.size();
+        List<Stop> result = new ArrayList<>(stops.size());
+        if (n > 2) {
+            double[][] dist = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    Stop a = located.get(i);
+                    Stop b = located.get(j);
+                    dist[i][j] = dist[j][i] = SiteGeocoder.distanceKm(a.lat, a.lon, b.lat, b.lon);
+                }
+            }
+            int[] tour = nearestNeighbour(dist);
+            twoOpt(tour, dist);
+            for (int index : tour) {
+                result.add(located.get(index));
+            }
+        } else {
+            result.addAll(located);
+        }
+        result.addAll(unlocated);
+        return result;
+    }
+
+    private static int[] nearestNeighbour(double[][] dist) {
+        int n = dist.length;
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int i = 1; i < n; i++) {
+            int last = tour[i - 1];
+            int best = -1;
+            for (int j = 0; j < n; j++) {
+                if (!visited[j] && (best == -1 || dist[last][j] < dist[last][best])) {
+                    best = j;
+                }
+            }
+            tour[i] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    /**
+     * 2-opt on an open path with a fixed start: reverse segments while that shortens the route.
+     */
+    private static void twoOpt(int[] tour, double[][] dist) {
+        int n = tour.length;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                for (int k = i + 1; k < n; k++) {
+                    double before = dist[tour[i - 1]][tour[i]]
+                            + (k + 1 < n ? dist[tour[k]][tour[k + 1]] : 0);
+                    double after = dist[tour[i - 1]][tour[k]]
+                            + (k + 1 < n ? dist[tour[i]][tour[k + 1]] : 0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = k; a < b; a++, b--) {
+                            int tmp = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = tmp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves free-text site addresses to coordinates using a local lookup table.
+ * The table is a text file with one "place:latitude,longitude" entry per line
+ * (same colon style as the accounts files). An address matches the longest
+ * place name it contains, so "12 Rizal St, Quezon City" resolves to Quezon City.
+ */
+public final class SiteGeocoder {
+
+    public static final String LOCATIONS_FILE = "site_locations.txt";
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private static SiteGeocoder instance;
+
+    // Place names sorted longest first so the most specific match wins
+    private final List<String> places = new ArrayList<>();
+    private final Map<String, double[]> coordinatesByPlace = new HashMap<>();
+    private final Map<String, double[]> cache = new HashMap<>();
+
+    private SiteGeocoder(String fileName) {
+        loadFromFile(fileName);
+    }
+
+    public static synchronized SiteGeocoder getInstance() {
+        if (instance == null) {
+            instance = new SiteGeocoder(LOCATIONS_FILE);
+        }
+        return instance;
+    }
+
+    private void loadFromFile(String fileName) {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            System.err.println("Site location table not found: " + fileName);
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.lastIndexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String[] latLon = line.substring(colon + 1).split(",");
+                if (latLon.length != 2) {
+                    continue;
+                }
+                try {
+                    String place = normalize(line.substring(0, colon));
+                    double lat = Double.parseDouble(latLon[0].trim());
+                    double lon = Double.parseDouble(latLon[1].trim());
+                    if (!coordinatesByPlace.containsKey(place)) {
+                        places.add(place);
+                    }
+                    coordinatesByPlace.put(place, new double[]{lat, lon});
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading site locations: " + e.getMessage());
+        }
+
+        places.sort((a, b) -> Integer.compare(b.length(), a.length()));
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase().replace('\u00f1', 'n').replaceAll("[^a-z0-9\\- ]", " ").replaceAll("\\s+", " ").trim();
+    }
+
+    /**
+     * Look up the coordinates of an address.
+     * Returns {latitude, longitude}, or null if no known place is found in the address.
+     */
+    public synchronized double[] locate(String address) {
+        if (address == null || address.trim().isEmpty()) {
+            return null;
+        }
+        String key = normalize(address);
+        if (cache.containsKey(key)) {
+            return cache.get(key);
+        }
+
+        double[] found = null;
+        String padded = " " + key + " ";
+        for (String place : places) {
+            if (padded.contains(" " + place + " ")) {
+                found = coordinatesByPlace.get(place);
+                break;
+            }
+        }
+        cache.put(key, found);
+        return found;
+    }
+
+    /**
+     * Great-circle distance between two coordinates in kilometres.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,423 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Geospatial index over everything the business has at a location: energy units, open
+ * MAINTENANCE sites, CUSTOMER_ACCOUNTS addresses and technician bases.
+ *
+ * Addresses are resolved with SiteGeocoder (the local site_locations.txt gazetteer) and
+ * kept in one R-tree per kind, bulk loaded with Sort-Tile-Recursive packing. Radius and
+ * k-nearest queries descend only the nodes whose bounding box can hold a match, so they
+ * take logarithmic time instead of a scan over every address. Entries added after a
+ * query are packed into the tree on the next query.
+ */
+public class SpatialIndex {
+
+    /** Entries per R-tree node */
+    private static final int NODE_CAPACITY = 16;
+
+    private static final double KM_PER_DEGREE_LAT = 111.195;
+
+    /**
+     * What an entry stands for. Each kind has its own tree.
+     */
+    public enum Kind { UNIT, SITE, CUSTOMER, TECHNICIAN }
+
+    /**
+     * One located thing (unit ID, ticket ID, customer or technician email).
+     */
+    public static class Entry {
+        public final Kind kind;
+        public final String id;
+        public final String address;
+        public final double lat;
+        public final double lon;
+
+        Entry(Kind kind, String id, String address, double lat, double lon) {
+            this.kind = kind;
+            this.id = id;
+            this.address = address;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    /**
+     * Query result: an entry and its great-circle distance from the query point.
+     */
+    public static class Hit {
+        public final Entry entry;
+        public final double distanceKm;
+
+        Hit(Entry entry, double distanceKm) {
+            this.entry = entry;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+    private static final Comparator<Entry> BY_LAT = (a, b) -> Double.compare(a.lat, b.lat);
+    private static final Comparator<Entry> BY_LON = (a, b) -> Double.compare(a.lon, b.lon);
+    private static final Comparator<Hit> BY_DISTANCE = (a, b) -> Double.compare(a.distanceKm, b.distanceKm);
+
+    /**
+     * One level of a packed R-tree. Node i covers children from[i] .. to[i]-1 of the level
+     * below (or of the entry array for the leaf level) and stores their bounding box.
+     */
+    private static class Level {
+        final double[] minLat;
+        final double[] maxLat;
+        final double[] minLon;
+        final double[] maxLon;
+        final int[] from;
+        final int[] to;
+
+        Level(int size) {
+            minLat = new double[size];
+            maxLat = new double[size];
+            minLon = new double[size];
+            maxLon = new double[size];
+            from = new int[size];
+            to = new int[size];
+        }
+
+        int size() {
+            return from.length;
+        }
+    }
+
+    /**
+     * Pending queue item of a k-nearest search: a node (level >= 0) or an entry (level -1).
+     */
+    private static class Candidate {
+        final double distanceKm;
+        final int level;
+        final int index;
+
+        Candidate(double distanceKm, int level, int index) {
+            this.distanceKm = distanceKm;
+            this.level = level;
+            this.index = index;
+        }
+    }
+
+    /**
+     * R-tree of one kind. levels.get(0) is the leaf level, the last level holds the root.
+     */
+    private static class Tree {
+        final List<Entry> added = new ArrayList<>();
+        Entry[] entries = new Entry[0];
+        List<Level> levels = Collections.emptyList();
+        boolean dirty;
+
+        int size() {
+            return entries.length + (dirty ? added.size() : 0);
+        }
+
+        void build() {
+            if (!dirty) {
+                return;
+            }
+            Entry[] all = Arrays.copyOf(entries, entries.length + added.size());
+            for (int i = 0; i < added.size(); i++) {
+                all[entries.length + i] = added.get(i);
+            }
+            added.clear();
+            dirty = false;
+            entries = all;
+
+            // Sort-Tile-Recursive: vertical slices by longitude, each slice sorted by latitude
+            int n = entries.length;
+            int leafCount = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_CAPACITY;
+            Arrays.sort(entries, BY_LON);
+            for (int start = 0; start < n; start += sliceSize) {
+                Arrays.sort(entries, start, Math.min(n, start + sliceSize), BY_LAT);
+            }
+
+            List<Level> built = new ArrayList<>();
+            Level leaves = new Level(leafCount);
+            for (int i = 0; i < leafCount; i++) {
+                int from = i * NODE_CAPACITY;
+                int to = Math.min(n, from + NODE_CAPACITY);
+                leaves.from[i] = from;
+                leaves.to[i] = to;
+                leaves.minLat[i] = leaves.minLon[i] = Double.POSITIVE_INFINITY;
+                leaves.maxLat[i] = leaves.maxLon[i] = Double.NEGATIVE_INFINITY;
+                for (int e = from; e < to; e++) {
+                    leaves.minLat[i] = Math.min(leaves.minLat[i], entries[e].lat);
+                    leaves.maxLat[i] = Math.max(leaves.maxLat[i], entries[e].lat);
+                    leaves.minLon[i] = Math.min(leaves.minLon[i], entries[e].lon);
+                    leaves.maxLon[i] = Math.max(leaves.maxLon[i], entries[e].lon);
+                }
+            }
+            if (leafCount > 0) {
+                built.add(leaves);
+            }
+
+            // Leaves are already in tile order, so neighbouring nodes are packed together
+            Level below = leaves;
+            while (below.size() > 1) {
+                int count = (below.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+                Level level = new Level(count);
+                for (int i = 0; i < count; i++) {
+                    int from = i * NODE_CAPACITY;
+                    int to = Math.min(below.size(), from + NODE_CAPACITY);
+                    level.from[i] = from;
+                    level.to[i] = to;
+                    level.minLat[i] = level.minLon[i] = Double.POSITIVE_INFINITY;
+                    level.maxLat[i] = level.maxLon[i] = Double.NEGATIVE_INFINITY;
+                    for (int c = from; c < to; c++) {
+                        level.minLat[i] = Math.min(level.minLat[i], below.minLat[c]);
+                        level.maxLat[i] = Math.max(level.maxLat[i], below.maxLat[c]);
+                        level.minLon[i] = Math.min(level.minLon[i], below.minLon[c]);
+                        level.maxLon[i] = Math.max(level.maxLon[i], below.maxLon[c]);
+                    }
+                }
+                built.add(level);
+                below = level;
+            }
+            levels = built;
+        }
+    }
+
+    private final Map<Kind, Tree> trees = new EnumMap<>(Kind.class);
+    private int unresolvedCount;
+
+    public SpatialIndex() {
+        for (Kind kind : Kind.values()) {
+            trees.put(kind, new Tree());
+        }
+    }
+
+    /**
+     * Load open MAINTENANCE sites, customer addresses and technician bases from the database,
+     * replacing the SITE, CUSTOMER and TECHNICIAN entries. A technician's base is the site of
+     * their latest scheduled job (technician accounts have no address of their own).
+     * Returns true on success.
+     */
+    public boolean load() {
+        String siteSql = "SELECT ticket_id, site_address FROM maintenance " +
+                "WHERE status <> 'Completed' AND status <> 'Cancelled'";
+        String customerSql = "SELECT email, address FROM customer_accounts";
+        String technicianSql = "SELECT j.technician_email, j.address FROM technician_jobs j " +
+                "JOIN technician_accounts t ON t.email = j.technician_email " +
+                "WHERE t.status = 'Approved' ORDER BY j.schedule_date, j.schedule_time";
+
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            try (Statement stmt = conn.createStatement()) {
+                List<String[]> sites = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery(siteSql)) {
+                    while (rs.next()) {
+                        sites.add(new String[]{rs.getString("ticket_id"), rs.getString("site_address")});
+                    }
+                }
+                List<String[]> customers = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery(customerSql)) {
+                    while (rs.next()) {
+                        customers.add(new String[]{rs.getString("email"), rs.getString("address")});
+                    }
+                }
+                // Later jobs overwrite earlier ones, leaving each technician's latest site
+                Map<String, String> bases = new LinkedHashMap<>();
+                try (ResultSet rs = stmt.executeQuery(technicianSql)) {
+                    while (rs.next()) {
+                        bases.put(rs.getString("technician_email"), rs.getString("address"));
+                    }
+                }
+
+                synchronized (this) {
+                    clear(Kind.SITE);
+                    clear(Kind.CUSTOMER);
+                    clear(Kind.TECHNICIAN);
+                    for (String[] site : sites) {
+                        add(Kind.SITE, site[0], site[1]);
+                    }
+                    for (String[] customer : customers) {
+                        add(Kind.CUSTOMER, customer[0], customer[1]);
+                    }
+                    for (Map.Entry<String, String> base : bases.entrySet()) {
+                        add(Kind.TECHNICIAN, base.getKey(), base.getValue());
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error loading locations for spatial index: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Add an entry at the coordinates of its address (e.g. an energy unit and its
+     * EnergySource location). Returns false if the gazetteer has no place in the address.
+     */
+    public synchronized boolean add(Kind kind, String id, String address) {
+        double[] location = SiteGeocoder.getInstance().locate(address);
+        if (location == null) {
+            unresolvedCount++;
+            return false;
+        }
+        add(kind, id, address, location[0], location[1]);
+        return true;
+    }
+
+    /**
+     * Add an entry at known coordinates.
+     */
+    public synchronized void add(Kind kind, String id, String address, double lat, double lon) {
+        Tree tree = trees.get(kind);
+        tree.added.add(new Entry(kind, id, address, lat, lon));
+        tree.dirty = true;
+    }
+
+    /**
+     * Remove all entries of one kind.
+     */
+    public synchronized void clear(Kind kind) {
+        trees.put(kind, new Tree());
+    }
+
+    public synchronized int size(Kind kind) {
+        return trees.get(kind).size();
+    }
+
+    /**
+     * Number of addresses that could not be resolved since the index was created.
+     */
+    public synchronized int getUnresolvedCount() {
+        return unresolvedCount;
+    }
+
+    /**
+     * Entries of a kind within radiusKm of a point, nearest first.
+     */
+    public synchronized List<Hit> within(Kind kind, double lat, double lon, double radiusKm) {
+        Tree tree = trees.get(kind);
+        tree.build();
+        List<Hit> hits = new ArrayList<>();
+        if (tree.levels.isEmpty()) {
+            return hits;
+        }
+
+        // Bounding box of the circle in degrees; the exact distance is checked at the leaves
+        double dLat = radiusKm / KM_PER_DEGREE_LAT;
+        double widestLat = Math.min(90, Math.abs(lat) + dLat);
+        double cosLat = Math.cos(Math.toRadians(widestLat));
+        double dLon = cosLat < 1e-6 ? 360 : radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+        double[] box = {lat - dLat, lat + dLat, lon - dLon, lon + dLon};
+
+        int top = tree.levels.size() - 1;
+        collect(tree, top, 0, box, lat, lon, radiusKm, hits);
+        hits.sort(BY_DISTANCE);
+        return hits;
+    }
+
+    private static void collect(Tree tree, int levelIndex, int node, double[] box,
+                                double lat, double lon, double radiusKm, List<Hit> hits) {
+        Level level = tree.levels.get(levelIndex);
+        if (level.maxLat[node] < box[0] || level.minLat[node] > box[1]
+                || level.maxLon[node] < box[2] || level.minLon[node] > box[3]) {
+            return;
+        }
+        if (levelIndex == 0) {
+            for (int e = level.from[node]; e < level.to[node]; e++) {
+                Entry entry = tree.entries[e];
+                double distance = SiteGeocoder.distanceKm(lat, lon, entry.lat, entry.lon);
+                if (distance <= radiusKm) {
+                    hits.add(new Hit(entry, distance));
+                }
+            }
+            return;
+        }
+        for (int child = level.from[node]; child < level.to[node]; child++) {
+            collect(tree, levelIndex - 1, child, box, lat, lon, radiusKm, hits);
+        }
+    }
+
+    /**
+     * The k entries of a kind nearest to a point, nearest first.
+     * Best-first search: nodes are expanded in order of the distance to their bounding box,
+     * so the search stops once k entries are closer than every unexpanded node.
+     */
+    public synchronized List<Hit> nearest(Kind kind, double lat, double lon, int k) {
+        Tree tree = trees.get(kind);
+        tree.build();
+        List<Hit> hits = new ArrayList<>();
+        if (tree.levels.isEmpty() || k <= 0) {
+            return hits;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(64,
+                (a, b) -> Double.compare(a.distanceKm, b.distanceKm));
+        queue.add(new Candidate(0, tree.levels.size() - 1, 0));
+        while (!queue.isEmpty() && hits.size() < k) {
+            Candidate candidate = queue.poll();
+            if (candidate.level < 0) {
+                hits.add(new Hit(tree.entries[candidate.index], candidate.distanceKm));
+                continue;
+            }
+            Level level = tree.levels.get(candidate.level);
+            int node = candidate.index;
+            for (int child = level.from[node]; child < level.to[node]; child++) {
+                if (candidate.level == 0) {
+                    Entry entry = tree.entries[child];
+                    queue.add(new Candidate(SiteGeocoder.distanceKm(lat, lon, entry.lat, entry.lon), -1, child));
+                } else {
+                    Level below = tree.levels.get(candidate.level - 1);
+                    queue.add(new Candidate(boxDistanceKm(below, child, lat, lon), candidate.level - 1, child));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Entries of a kind within radiusKm of an address (empty if the address is unknown).
+     */
+    public List<Hit> within(Kind kind, String address, double radiusKm) {
+        double[] location = SiteGeocoder.getInstance().locate(address);
+        return location == null ? new ArrayList<>() : within(kind, location[0], location[1], radiusKm);
+    }
+
+    /**
+     * The k entries of a kind nearest to an address, e.g. the closest technicians to a ticket's site
+     * (empty if the address is unknown).
+     */
+    public List<Hit> nearest(Kind kind, String address, int k) {
+        double[] location = SiteGeocoder.getInstance().locate(address);
+        return location == null ? new ArrayList<>() : nearest(kind, location[0], location[1], k);
+    }
+
+    /**
+     * Lower bound on the great-circle distance from a point to any point of a node's box
+     * (0 inside the box). Two bounds are combined: the latitude gap (no path is shorter than
+     * its change in latitude) and, when the point is east or west of the box, the distance to
+     * the great circle of the nearest edge meridian, which every path into the box crosses.
+     */
+    private static double boxDistanceKm(Level level, int node, double lat, double lon) {
+        double latGap = lat < level.minLat[node] ? level.minLat[node] - lat
+                : lat > level.maxLat[node] ? lat - level.maxLat[node] : 0;
+        double lonGap = lon < level.minLon[node] ? level.minLon[node] - lon
+                : lon > level.maxLon[node] ? lon - level.maxLon[node] : 0;
+        double boundDegrees = latGap;
+        if (lonGap > 0 && lonGap < 90) {
+            double crossTrack = Math.asin(Math.sin(Math.toRadians(lonGap)) * Math.cos(Math.toRadians(lat)));
+            boundDegrees = Math.max(boundDegrees, Math.toDegrees(crossTrack));
+        }
+        return boundDegrees * KM_PER_DEGREE_LAT;
+    }
+}
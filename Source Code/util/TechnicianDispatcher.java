@@ -0,0 +1,421 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Dispatch engine for maintenance tickets.
+ * Keeps a priority queue of pending MAINTENANCE tickets and a load index of
+ * approved technicians (open TECHNICIAN_JOBS per technician and per schedule date),
+ * then assigns tickets in batches so admins no longer type technician emails by hand.
+ */
+public class TechnicianDispatcher {
+
+    /** Default number of tickets written per database transaction */
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    /** Default maximum number of jobs one technician takes on a single day */
+    public static final int DEFAULT_MAX_JOBS_PER_DAY = 4;
+
+    private static final String DEFAULT_SCHEDULE_TIME = "09:00:00";
+
+    private final int batchSize;
+    private final int maxJobsPerDay;
+
+    private final PriorityQueue<Ticket> ticketQueue = new PriorityQueue<>(TICKET_ORDER);
+    private final PriorityQueue<TechnicianLoad> loadIndex = new PriorityQueue<>(LOAD_ORDER);
+    private final Map<String, TechnicianLoad> loadsByEmail = new HashMap<>();
+
+    public TechnicianDispatcher() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_MAX_JOBS_PER_DAY);
+    }
+
+    public TechnicianDispatcher(int batchSize, int maxJobsPerDay) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxJobsPerDay = Math.max(1, maxJobsPerDay);
+    }
+
+    /**
+     * Pending maintenance ticket waiting for a technician.
+     */
+    public static class Ticket {
+        public final String ticketId;
+        public final String customerName;
+        public final String address;
+        public final String equipment;
+        public final String serviceType;
+        public final String scheduleDate;
+        public final String priority;
+        final int rank;
+
+        Ticket(String ticketId, String customerName, String address, String equipment,
+               String serviceType, String scheduleDate, String notes) {
+            this.ticketId = ticketId;
+            this.customerName = customerName;
+            this.address = address;
+            this.equipment = equipment;
+            this.serviceType = serviceType;
+            this.scheduleDate = scheduleDate == null || scheduleDate.trim().isEmpty()
+                    ? LocalDate.now().toString() : scheduleDate.trim();
+            this.priority = priorityFor(serviceType, notes);
+            this.rank = rankOf(priority);
+        }
+    }
+
+    /**
+     * Result of one ticket assignment (used by the dashboard to notify technicians).
+     */
+    public static class Assignment {
+        public final String jobId;
+        public final String technicianEmail;
+        public final Ticket ticket;
+
+        Assignment(String jobId, String technicianEmail, Ticket ticket) {
+            this.jobId = jobId;
+            this.technicianEmail = technicianEmail;
+            this.ticket = ticket;
+        }
+    }
+
+    /**
+     * Open-job counters for one technician (total and per schedule date).
+     */
+    private static class TechnicianLoad {
+        final String email;
+        int openJobs;
+        final Map<String, Integer> jobsPerDate = new HashMap<>();
+
+        TechnicianLoad(String email) {
+            this.email = email;
+        }
+
+        int jobsOn(String date) {
+            Integer count = jobsPerDate.get(date);
+            return count == null ? 0 : count;
+        }
+
+        void add(String date, int count) {
+            openJobs += count;
+            jobsPerDate.put(date, jobsOn(date) + count);
+        }
+    }
+
+    // Highest priority first, then earliest schedule date, then ticket ID for a stable order
+    private static final Comparator<Ticket> TICKET_ORDER = (a, b) -> {
+        if (a.rank != b.rank) {
+            return Integer.compare(b.rank, a.rank);
+        }
+        int byDate = a.scheduleDate.compareTo(b.scheduleDate);
+        return byDate != 0 ? byDate : a.ticketId.compareTo(b.ticketId);
+    };
+
+    // Least loaded technician first
+    private static final Comparator<TechnicianLoad> LOAD_ORDER = (a, b) -> {
+        if (a.openJobs != b.openJobs) {
+            return Integer.compare(a.openJobs, b.openJobs);
+        }
+        return a.email.compareTo(b.email);
+    };
+
+    /**
+     * Derive a job priority from the service type and ticket notes.
+     * Replaces the hardcoded "Normal" priority used for manual assignments.
+     */
+    public static String priorityFor(String serviceType, String notes) {
+        String text = ((serviceType == null ? "" : serviceType) + " " + (notes == null ? "" : notes)).toLowerCase();
+        if (text.contains("urgent") || text.contains("emergency") || text.contains("outage")) {
+            return "Urgent";
+        }
+        if (text.contains("repair") || text.contains("fault") || text.contains("not working")) {
+            return "High";
+        }
+        if (text.contains("inspection") || text.contains("cleaning")) {
+            return "Low";
+        }
+        return "Normal";
+    }
+
+    private static int rankOf(String priority) {
+        switch (priority) {
+            case "Urgent":
+                return 3;
+            case "High":
+                return 2;
+            case "Normal":
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Load pending tickets and the technician load index from the database.
+     * Returns false if either query fails.
+     */
+    public boolean load() {
+        ticketQueue.clear();
+        loadIndex.clear();
+        loadsByEmail.clear();
+
+        String ticketSql = "SELECT ticket_id, customer_name, site_address, equipment, service_type, schedule_date, notes " +
+                "FROM maintenance WHERE status = 'Pending' " +
+                "AND (technician IS NULL OR technician = '' OR technician = 'Pending Assignment')";
+        String techSql = "SELECT email FROM technician_accounts WHERE status = 'Approved'";
+        String loadSql = "SELECT technician_email, schedule_date, COUNT(*) AS open_jobs FROM technician_jobs " +
+                "WHERE status <> 'Completed' AND status <> 'Cancelled' GROUP BY technician_email, schedule_date";
+
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+
+            try (PreparedStatement pstmt = conn.prepareStatement(ticketSql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ticketQueue.add(new Ticket(
+                            rs.getString("ticket_id"),
+                            rs.getString("customer_name"),
+                            rs.getString("site_address"),
+                            rs.getString("equipment"),
+                            rs.getString("service_type"),
+                            rs.getString("schedule_date"),
+                            rs.getString("notes")));
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(techSql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String email = rs.getString("email");
+                    loadsByEmail.put(email, new TechnicianLoad(email));
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(loadSql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TechnicianLoad load = loadsByEmail.get(rs.getString("technician_email"));
+                    if (load != null) {
+                        load.add(rs.getString("schedule_date"), rs.getInt("open_jobs"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading dispatch data: " + e.getMessage());
+            return false;
+        }
+
+        loadIndex.addAll(loadsByEmail.values());
+        return true;
+    }
+
+    /**
+     * Number of tickets still waiting in the queue.
+     */
+    public int getPendingCount() {
+        return ticketQueue.size();
+    }
+
+    /**
+     * Number of technicians available for assignment.
+     */
+    public int getTechnicianCount() {
+        return loadsByEmail.size();
+    }
+
+    /**
+     * Suggest the least loaded technician for a date without assigning anything.
+     * Returns null if no technician has capacity left on that date.
+     */
+    public String suggestTechnician(String scheduleDate) {
+        TechnicianLoad load = pollAvailable(scheduleDate);
+        if (load == null) {
+            return null;
+        }
+        loadIndex.add(load);
+        return load.email;
+    }
+
+    /**
+     * Suggest the technician nearest to a ticket's site who still has capacity on the date.
+     * Technicians are taken from the spatial index nearest first; if none of them can take
+     * the job (or the site cannot be located) the least loaded technician is suggested.
+     */
+    public String suggestTechnician(String scheduleDate, String siteAddress, SpatialIndex index) {
+        int located = index.size(SpatialIndex.Kind.TECHNICIAN);
+        for (int k = 4; located > 0; k *= 2) {
+            List<SpatialIndex.Hit> nearest = index.nearest(SpatialIndex.Kind.TECHNICIAN, siteAddress, Math.min(k, located));
+            for (SpatialIndex.Hit hit : nearest) {
+                TechnicianLoad load = loadsByEmail.get(hit.entry.id);
+                if (load != null && load.jobsOn(scheduleDate) < maxJobsPerDay) {
+                    return load.email;
+                }
+            }
+            if (nearest.size() < k) {
+                break;
+            }
+        }
+        return suggestTechnician(scheduleDate);
+    }
+
+    /**
+     * Assign every queued ticket that fits a technician's daily capacity.
+     * Tickets are written in batches, each batch in one transaction.
+     * Tickets that cannot be placed stay in the queue for the next run.
+     */
+    public List<Assignment> assignAll() {
+        List<Assignment> assigned = new ArrayList<>();
+        List<Ticket> deferred = new ArrayList<>();
+        List<Assignment> batch = new ArrayList<>(batchSize);
+        long suffixBase = System.currentTimeMillis();
+
+        while (!ticketQueue.isEmpty()) {
+            Ticket ticket = ticketQueue.poll();
+            TechnicianLoad load = pollAvailable(ticket.scheduleDate);
+            if (load == null) {
+                deferred.add(ticket);
+                continue;
+            }
+
+            String jobId = "JOB-" + ticket.ticketId.replace("MT-", "") + "-" + (suffixBase + batch.size()) % 10000;
+            load.add(ticket.scheduleDate, 1);
+            loadIndex.add(load);
+            batch.add(new Assignment(jobId, load.email, ticket));
+
+            if (batch.size() == batchSize) {
+                flush(batch, assigned, deferred);
+                suffixBase = System.currentTimeMillis();
+            }
+        }
+        flush(batch, assigned, deferred);
+
+        ticketQueue.addAll(deferred);
+        return assigned;
+    }
+
+    /**
+     * Take the least loaded technician who still has room on the given date.
+     * Technicians that are full for that date are put back after the search.
+     */
+    private TechnicianLoad pollAvailable(String scheduleDate) {
+        List<TechnicianLoad> full = new ArrayList<>();
+        TechnicianLoad found = null;
+        while (!loadIndex.isEmpty()) {
+            TechnicianLoad load = loadIndex.poll();
+            if (load.jobsOn(scheduleDate) < maxJobsPerDay) {
+                found = load;
+                break;
+            }
+            full.add(load);
+        }
+        loadIndex.addAll(full);
+        return found;
+    }
+
+    /**
+     * Write one batch of assignments: mark tickets scheduled and insert their jobs in a single commit.
+     * A ticket that is no longer Pending (scheduled or cancelled elsewhere since load) gets no job.
+     * On failure, and for such tickets, the load counters are rolled back and the tickets are deferred.
+     */
+    private void flush(List<Assignment> batch, List<Assignment> assigned, List<Ticket> deferred) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        String jobSql = "INSERT INTO technician_jobs (job_id, technician_email, customer, address, equipment, " +
+                "service_type, schedule_date, schedule_time, status, priority, ticket_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String ticketSql = "UPDATE maintenance SET technician = ?, status = 'Scheduled' " +
+                "WHERE ticket_id = ? AND status = 'Pending'";
+
+        Connection conn = null;
+        boolean autoCommit = true;
+        try {
+            conn = DatabaseConnection.getConnection();
+            JobCompletionService.ensureSchema(conn);
+            autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            List<Assignment> claimed = new ArrayList<>();
+            try (PreparedStatement ticketStmt = conn.prepareStatement(ticketSql)) {
+                for (Assignment a : batch) {
+                    ticketStmt.setString(1, a.technicianEmail);
+                    ticketStmt.setString(2, a.ticket.ticketId);
+                    ticketStmt.addBatch();
+                }
+                int[] counts = ticketStmt.executeBatch();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        claimed.add(batch.get(i));
+                    }
+                }
+            }
+
+            try (PreparedStatement jobStmt = conn.prepareStatement(jobSql)) {
+                for (Assignment a : claimed) {
+                    jobStmt.setString(1, a.jobId);
+                    jobStmt.setString(2, a.technicianEmail);
+                    jobStmt.setString(3, a.ticket.customerName);
+                    jobStmt.setString(4, a.ticket.address);
+                    jobStmt.setString(5, a.ticket.equipment);
+                    jobStmt.setString(6, a.ticket.serviceType);
+                    jobStmt.setString(7, a.ticket.scheduleDate);
+                    jobStmt.setString(8, DEFAULT_SCHEDULE_TIME);
+                    jobStmt.setString(9, "Pending");
+                    jobStmt.setString(10, a.ticket.priority);
+                    jobStmt.setString(11, a.ticket.ticketId);
+                    jobStmt.addBatch();
+                }
+                if (!claimed.isEmpty()) {
+                    jobStmt.executeBatch();
+                }
+            }
+
+            conn.commit();
+            assigned.addAll(claimed);
+            for (Assignment a : batch) {
+                if (!claimed.contains(a)) {
+                    unassign(a, deferred);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error writing dispatch batch: " + e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                }
+            }
+            for (Assignment a : batch) {
+                unassign(a, deferred);
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Undo an assignment that was not written: free the technician's slot and defer the ticket.
+     */
+    private void unassign(Assignment a, List<Ticket> deferred) {
+        TechnicianLoad load = loadsByEmail.get(a.technicianEmail);
+        loadIndex.remove(load);
+        load.add(a.ticket.scheduleDate, -1);
+        loadIndex.add(load);
+        deferred.add(a.ticket);
+    }
+}